@@ -0,0 +1,72 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.resource.ResourceUtils;
+import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Loading dialects of a language specification project: finding all resources that are not ignored and passing them
+ * to the dialect processor as a first build does, or finding only the resources changed since the previous update as
+ * recorded by the dialect journal, and passing only those.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 5)
+@Measurement(iterations = 10) @Fork(1) @State(Scope.Benchmark)
+public class DialectUpdateBenchmark {
+    @Param({ "5000" }) int files;
+
+    private File directory;
+    private FileObject location;
+    private File journalFile;
+
+
+    @Setup(Level.Trial) public void setup() throws Exception {
+        SpoofaxInit.init();
+        directory = SyntheticFiles.tempDirectory("spoofax-dialects");
+        new SyntheticFiles(0).sourceTree(directory, files, 4);
+        location = SpoofaxInit.spoofax().resourceService.resolve(directory);
+        journalFile = new File(SyntheticFiles.tempDirectory("spoofax-dialects-journal"), "dialects.journal");
+    }
+
+    @TearDown(Level.Trial) public void tearDown() throws Exception {
+        SyntheticFiles.delete(directory);
+        SyntheticFiles.delete(journalFile.getParentFile());
+    }
+
+
+    @Benchmark public void all() throws Exception {
+        final Iterable<FileObject> resources = ResourceUtils.find(location, new SpoofaxIgnoresSelector());
+        final List<ResourceChange> changes = Lists.newArrayList();
+        for(FileObject resource : resources) {
+            changes.add(new ResourceChange(resource));
+        }
+        SpoofaxInit.spoofax().processorRunner.updateDialects(location, changes).schedule().block();
+    }
+
+    @Benchmark public void journal() throws Exception {
+        final List<ResourceChange> changes = SpoofaxInit.dialectJournal().update(location, journalFile);
+        if(!changes.isEmpty()) {
+            SpoofaxInit.spoofax().processorRunner.updateDialects(location, changes).schedule().block();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.VFS;
+import org.apache.maven.shared.utils.io.SelectorUtils;
+import org.metaborg.spoofax.maven.plugin.misc.FileSetSelector;
+import org.metaborg.spoofax.maven.plugin.misc.FileWalk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Selecting files of a transformation file set in a large source tree of 100k files, with compiled patterns and
+ * pruning of excluded directories, compared to matching every file with {@link SelectorUtils}.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 5)
+@Measurement(iterations = 10) @Fork(1) @State(Scope.Benchmark)
+public class FileSetSelectorBenchmark {
+    private static final List<String> includes = Arrays.asList("**/*.str", "**/*.sdf3", "editor/**");
+    private static final List<String> excludes = Arrays.asList("src-gen/**", "target/**", "**/*.class");
+
+    @Param({ "100000" }) int files;
+
+    private File directory;
+    private FileObject root;
+
+
+    @Setup(Level.Trial) public void setup() throws Exception {
+        directory = SyntheticFiles.tempDirectory("spoofax-fileset");
+        new SyntheticFiles(0).sourceTree(directory, files, 4);
+        root = VFS.getManager().resolveFile(directory.toURI());
+    }
+
+    @TearDown(Level.Trial) public void tearDown() throws Exception {
+        SyntheticFiles.delete(directory);
+    }
+
+
+    @Benchmark public void compiled(Blackhole blackhole) {
+        for(FileObject file : new FileWalk(root, new FileSetSelector(includes, excludes))) {
+            blackhole.consume(file);
+        }
+    }
+
+    @Benchmark public void compiledFindFiles(Blackhole blackhole) throws Exception {
+        blackhole.consume(root.findFiles(new FileSetSelector(includes, excludes)));
+    }
+
+    @Benchmark public void selectorUtils(Blackhole blackhole) throws Exception {
+        blackhole.consume(root.findFiles(new SelectorUtilsSelector(includes, excludes)));
+    }
+
+
+    /**
+     * File set selector before patterns were compiled: every pattern is matched against every file with
+     * {@link SelectorUtils}, and all directories are traversed.
+     */
+    private static class SelectorUtilsSelector implements FileSelector {
+        private final Collection<String> includes;
+        private final Collection<String> excludes;
+
+
+        public SelectorUtilsSelector(Collection<String> includes, Collection<String> excludes) {
+            this.includes = includes;
+            this.excludes = excludes;
+        }
+
+
+        @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+            if(FileType.FOLDER.equals(fileInfo.getFile().getType())) {
+                return false;
+            }
+            String relativeName = fileInfo.getBaseFolder().getName().getRelativeName(fileInfo.getFile().getName());
+            for(String exclude : excludes) {
+                if(SelectorUtils.matchPath(exclude, relativeName)) {
+                    return false;
+                }
+            }
+            if(includes.isEmpty()) {
+                return true;
+            }
+            for(String include : includes) {
+                if(SelectorUtils.matchPath(include, relativeName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.ILanguageDiscoveryService;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Discovering a language component from a language artifact, as done when loading language dependencies, from a
+ * packaged archive read by the {@code zip} provider, from an archive read by the {@code mapped-zip} provider, and
+ * from an unpacked directory. After each invocation, the component is removed and the archive file system is closed,
+ * such that every invocation discovers the component as a new build would.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 5)
+@Measurement(iterations = 10) @Fork(1) @State(Scope.Benchmark)
+public class LanguageDiscoveryBenchmark {
+    @Param({ "zip", "mapped-zip", "directory" }) String layout;
+    @Param({ "500" }) int files;
+
+    private File directory;
+    private String url;
+    private Iterable<ILanguageComponent> components;
+
+
+    @Setup(Level.Trial) public void setup() throws Exception {
+        SpoofaxInit.init();
+        directory = SyntheticFiles.tempDirectory("spoofax-discovery");
+        final File component = new File(directory, "component");
+        new SyntheticFiles(0).languageComponent(component, "org.example:bench.lang:1.0.0", files);
+        if(layout.endsWith("zip")) {
+            final File zipFile = new File(directory, "bench.lang-1.0.0.spoofax-language");
+            SyntheticFiles.zip(component, zipFile);
+            url = layout + ":" + zipFile.getPath();
+        } else {
+            url = "file:" + component.getPath();
+        }
+    }
+
+    @TearDown(Level.Invocation) public void unload() throws Exception {
+        for(ILanguageComponent component : components) {
+            SpoofaxInit.spoofax().languageService.remove(component);
+        }
+        final FileObject location = SpoofaxInit.spoofax().resourceService.resolve(url);
+        final FileSystem fileSystem = location.getFileSystem();
+        fileSystem.getFileSystemManager().closeFileSystem(fileSystem);
+    }
+
+    @TearDown(Level.Trial) public void tearDown() throws Exception {
+        SyntheticFiles.delete(directory);
+    }
+
+
+    @Benchmark public Iterable<ILanguageComponent> discover() throws Exception {
+        final ILanguageDiscoveryService discoveryService = SpoofaxInit.spoofax().languageDiscoveryService;
+        final FileObject location = SpoofaxInit.spoofax().resourceService.resolve(url);
+        components = discoveryService.discover(discoveryService.request(location));
+        return components;
+    }
+}
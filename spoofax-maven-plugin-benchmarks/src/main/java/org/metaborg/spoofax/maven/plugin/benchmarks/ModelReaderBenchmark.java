@@ -0,0 +1,73 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.ModelProcessor;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.pomless.MetaborgModelReader;
+import org.metaborg.spoofax.maven.plugin.pomless.ModelCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the Maven model of a pomless language specification from a representative {@code metaborg.yaml} file, as
+ * Maven does for every language specification project in a reactor, with an empty model cache and with a cached model.
+ * The {@code resource} configuration has a {@code resource} export, which is read with the Spoofax configuration
+ * service, the {@code directory} configuration only has exports that are read directly.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Warmup(iterations = 5)
+@Measurement(iterations = 10) @Fork(1) @State(Scope.Benchmark)
+public class ModelReaderBenchmark {
+    @Param({ "resource", "directory" }) String config;
+
+    private File directory;
+    private Map<String, ?> options;
+    private MetaborgModelReader reader;
+    private Field modelCache;
+
+
+    @Setup(Level.Trial) public void setup() throws Exception {
+        SpoofaxInit.init();
+        directory = SyntheticFiles.tempDirectory("spoofax-model");
+        final File configFile = new SyntheticFiles(0).languageSpecConfig(directory,
+            "org.example:bench.lang:1.0.0-SNAPSHOT", "2.5.0", "resource".equals(config));
+        options = Collections.singletonMap(ModelProcessor.SOURCE, configFile.getPath());
+        reader = new MetaborgModelReader();
+        // The model cache is a Plexus requirement, inject it like Plexus would.
+        modelCache = MetaborgModelReader.class.getDeclaredField("modelCache");
+        modelCache.setAccessible(true);
+        modelCache.set(reader, new ModelCache());
+    }
+
+    @TearDown(Level.Trial) public void tearDown() throws Exception {
+        SyntheticFiles.delete(directory);
+    }
+
+
+    @Benchmark public Model read() throws Exception {
+        modelCache.set(reader, new ModelCache());
+        // The reader reads the configuration from the location in the options, not from the given reader.
+        return reader.read(new StringReader(""), options);
+    }
+
+    @Benchmark public Model readCached() throws Exception {
+        return reader.read(new StringReader(""), options);
+    }
+}
@@ -0,0 +1,26 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.spoofax.core.Spoofax;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cold start of Spoofax core, meta, and SPT services, as paid by the first mojo of every build that does not run in a
+ * persistent JVM. Initialisation happens once per JVM, so every measurement runs in a fresh fork.
+ */
+@BenchmarkMode(Mode.SingleShotTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 0)
+@Measurement(iterations = 1) @Fork(10)
+public class SpoofaxInitBenchmark {
+    @Benchmark public Spoofax init() throws Exception {
+        SpoofaxInit.init();
+        return SpoofaxInit.spoofax();
+    }
+}
@@ -0,0 +1,121 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.maven.plugin.metrics.BuildMetrics;
+import org.metaborg.spoofax.maven.plugin.spt.ISptTester;
+import org.metaborg.spoofax.maven.plugin.spt.SptTestExecutor;
+import org.metaborg.spoofax.maven.plugin.spt.TestDiscovery;
+import org.metaborg.spoofax.maven.plugin.spt.TestShardProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Provider;
+
+/**
+ * Running SPT test suites sharded by directory on a pool of threads, compared to testing the whole project with a
+ * single tester as the serial SPT runner does. The SPT language and a language under test cannot be generated, so
+ * tests are run by a tester that does a fixed amount of CPU work per test. This measures the overhead and speedup of
+ * sharding, not the cost of SPT itself.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Warmup(iterations = 5)
+@Measurement(iterations = 10) @Fork(1) @State(Scope.Benchmark)
+public class SptShardBenchmark {
+    @Param({ "2", "4" }) int threads;
+    @Param({ "16" }) int shards;
+    @Param({ "1000" }) int workPerTest;
+
+    private File directory;
+    private IProject project;
+    private List<FileObject> testSuites;
+    private SptTestExecutor executor;
+    private ISptTester tester;
+
+
+    @Setup(Level.Trial) public void setup() throws Exception {
+        directory = SyntheticFiles.tempDirectory("spoofax-spt");
+        new SyntheticFiles(0).testSuites(directory, shards, 8, 20);
+        final FileObject root = VFS.getManager().resolveFile(directory.toURI());
+        project = new TestShardProject(root, null);
+        testSuites = new TestDiscovery().find(root, Integer.MAX_VALUE);
+        tester = new WorkTester(workPerTest);
+        executor = new SptTestExecutor(new Provider<ISptTester>() {
+            @Override public ISptTester get() {
+                return new WorkTester(workPerTest);
+            }
+        }, new BuildMetrics(), null);
+    }
+
+    @TearDown(Level.Trial) public void tearDown() throws Exception {
+        SyntheticFiles.delete(directory);
+    }
+
+
+    @Benchmark public int serial() throws Exception {
+        return tester.test(project, testSuites, null, null);
+    }
+
+    @Benchmark public void sharded() throws Exception {
+        executor.test(project, testSuites, null, null, threads, null);
+    }
+
+
+    /**
+     * Tester that reads each given test suite and hashes it a fixed number of times for each test in it.
+     */
+    private static class WorkTester implements ISptTester {
+        private final int workPerTest;
+
+
+        public WorkTester(int workPerTest) {
+            this.workPerTest = workPerTest;
+        }
+
+
+        @Override public int test(IProject project, Iterable<FileObject> testSuites, ILanguageImpl sptLang,
+            ILanguageImpl testLang) throws MetaborgException {
+            try {
+                int hash = 0;
+                for(FileObject testSuite : testSuites) {
+                    final byte[] bytes;
+                    try(final InputStream stream = testSuite.getContent().getInputStream()) {
+                        bytes = ByteStreams.toByteArray(stream);
+                    }
+                    final int tests = new String(bytes, StandardCharsets.UTF_8).split("\ntest ").length - 1;
+                    for(int i = 0; i < tests * workPerTest; ++i) {
+                        final Hasher hasher = Hashing.murmur3_32().newHasher();
+                        hash += hasher.putInt(i).putBytes(bytes, 0, Math.min(bytes.length, 64)).hash().asInt();
+                    }
+                }
+                // All tests pass, the hash only prevents the work from being optimized away.
+                return hash == Integer.MIN_VALUE ? 1 : 0;
+            } catch(IOException e) {
+                throw new MetaborgException("Cannot read test suites", e);
+            }
+        }
+    }
+}
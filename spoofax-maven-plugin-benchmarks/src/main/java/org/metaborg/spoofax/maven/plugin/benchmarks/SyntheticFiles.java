@@ -0,0 +1,245 @@
+package org.metaborg.spoofax.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates synthetic projects and language artifacts, such that benchmarks run offline and on the same inputs every
+ * time. Contents are random but seeded, and file sizes are in the range of those of real Spoofax languages.
+ */
+public class SyntheticFiles {
+    private static final String[] directories = { "syntax", "trans", "editor", "lib", "src-gen/syntax",
+        "src-gen/signatures", "src-gen/pp", "src-gen/completion", "target/metaborg", "target/classes" };
+    private static final String[] extensions = { "sdf3", "str", "esv", "nabl2", "spt", "java", "class", "aterm" };
+
+    private final Random random;
+
+
+    public SyntheticFiles(long seed) {
+        this.random = new Random(seed);
+    }
+
+
+    /**
+     * Creates a temporary directory that is deleted when the JVM exits.
+     */
+    public static File tempDirectory(String prefix) throws IOException {
+        final File directory = Files.createTempDirectory(prefix).toFile();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override public void run() {
+                try {
+                    delete(directory);
+                } catch(IOException e) {
+                    // Best effort, the directory is in the temporary directory anyway.
+                }
+            }
+        });
+        return directory;
+    }
+
+    /**
+     * Deletes given file or directory, including its contents.
+     */
+    public static void delete(File file) throws IOException {
+        if(!file.exists()) {
+            return;
+        }
+        Files.walkFileTree(file.toPath(), new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+
+    /**
+     * Generates a source tree in the classic Spoofax language layout, with files spread over nested directories.
+     * 
+     * @param root
+     *            Directory to generate the tree in.
+     * @param files
+     *            Number of files to generate.
+     * @param depth
+     *            Maximum depth of nested directories below the top-level directories.
+     */
+    public void sourceTree(File root, int files, int depth) throws IOException {
+        for(int i = 0; i < files; ++i) {
+            final StringBuilder path = new StringBuilder(directories[random.nextInt(directories.length)]);
+            final int nesting = random.nextInt(depth + 1);
+            for(int j = 0; j < nesting; ++j) {
+                path.append("/d").append(random.nextInt(8));
+            }
+            path.append("/f").append(i).append('.').append(extensions[random.nextInt(extensions.length)]);
+            write(new File(root, path.toString()), 256 + random.nextInt(4096));
+        }
+    }
+
+    /**
+     * Generates a language component, as it is found in a built language specification.
+     * 
+     * @param root
+     *            Directory to generate the component in.
+     * @param id
+     *            Identifier of the component, in groupId:id:version form.
+     * @param files
+     *            Number of additional files to generate, such as generated sources and compiled classes.
+     */
+    public void languageComponent(File root, String id, int files) throws IOException {
+        final String name = id.split(":")[1];
+        // @formatter:off
+        final String config =
+            "---\n" +
+            "id: " + id + "\n" +
+            "name: " + name + "\n";
+        // @formatter:on
+        write(new File(root, "metaborg.component.yaml"), config);
+        write(new File(root, "target/metaborg/sdf.tbl"), 512 * 1024);
+        write(new File(root, "target/metaborg/stratego.ctree"), 1024 * 1024);
+        write(new File(root, "target/metaborg/editor.esv.af"), 16 * 1024);
+        sourceTree(root, files, 3);
+    }
+
+    /**
+     * Generates SPT test suites, spread over top-level directories that each form a test shard.
+     * 
+     * @param root
+     *            Directory to generate the test suites in.
+     * @param directories
+     *            Number of directories to generate.
+     * @param suites
+     *            Number of test suites to generate in each directory.
+     * @param maxTests
+     *            Maximum number of tests in a test suite, where each suite has at least one test.
+     */
+    public void testSuites(File root, int directories, int suites, int maxTests) throws IOException {
+        for(int i = 0; i < directories; ++i) {
+            for(int j = 0; j < suites; ++j) {
+                final StringBuilder suite = new StringBuilder("module d" + i + "-s" + j + "\n\nlanguage Lang\n");
+                final int tests = 1 + random.nextInt(maxTests);
+                for(int k = 0; k < tests; ++k) {
+                    suite.append("\ntest t").append(k).append(" [[\n");
+                    final int length = 32 + random.nextInt(512);
+                    for(int l = 0; l < length; ++l) {
+                        suite.append((char) ('a' + random.nextInt(26)));
+                    }
+                    suite.append("\n]] parse succeeds\n");
+                }
+                write(new File(root, "test" + i + "/s" + j + ".spt"), suite.toString());
+            }
+        }
+    }
+
+    /**
+     * Generates a language specification project configuration, with typical dependencies and exports.
+     * 
+     * @param root
+     *            Project directory to generate the configuration in.
+     * @param id
+     *            Identifier of the language specification, in groupId:id:version form.
+     * @param metaborgVersion
+     *            Metaborg version of the language specification.
+     * @param resourceExport
+     *            Whether to export the parse table with a {@code resource} export, which is only read by the Spoofax
+     *            configuration service, instead of the library directory with a plain directory export.
+     * @return Generated configuration file.
+     */
+    public File languageSpecConfig(File root, String id, String metaborgVersion, boolean resourceExport)
+        throws IOException {
+        final String name = id.split(":")[1];
+        // @formatter:off
+        final String config =
+            "---\n" +
+            "id: " + id + "\n" +
+            "name: " + name + "\n" +
+            "metaborgVersion: " + metaborgVersion + "\n" +
+            "dependencies:\n" +
+            "  compile:\n" +
+            "  - org.metaborg:org.metaborg.meta.lang.esv:${metaborgVersion}\n" +
+            "  - org.metaborg:org.metaborg.meta.lang.template:${metaborgVersion}\n" +
+            "  - org.metaborg:org.metaborg.meta.nabl2.lang:${metaborgVersion}\n" +
+            "  source:\n" +
+            "  - org.metaborg:meta.lib.spoofax:${metaborgVersion}\n" +
+            "  - org.metaborg:org.metaborg.meta.nabl2.shared:${metaborgVersion}\n" +
+            "  java:\n" +
+            "  - org.metaborg:org.metaborg.meta.nabl2.java:${metaborgVersion}\n" +
+            "exports:\n" +
+            "- language: TemplateLang\n" +
+            "  directory: syntax\n" +
+            "- language: ATerm\n" +
+            "  directory: src-gen/syntax\n" +
+            "- language: Stratego-Sugar\n" +
+            "  directory: trans\n" +
+            (resourceExport ?
+            "- resource: target/metaborg/sdf.tbl\n" :
+            "- directory: ./\n" +
+            "  includes:\n" +
+            "  - lib/**/*\n") +
+            "language:\n" +
+            "  sdf:\n" +
+            "    pretty-print: " + name + "\n" +
+            "    sdf2table: java\n" +
+            "  stratego:\n" +
+            "    format: ctree\n" +
+            "    args:\n" +
+            "    - -la\n" +
+            "    - stratego-lib\n" +
+            "    - -la\n" +
+            "    - stratego-sglr\n";
+        // @formatter:on
+        final File file = new File(root, "metaborg.yaml");
+        write(file, config);
+        return file;
+    }
+
+    /**
+     * Packs the contents of a directory into a ZIP file, as the Spoofax packaging does.
+     */
+    public static void zip(File directory, File zipFile) throws IOException {
+        final Path root = directory.toPath();
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(zipFile))) {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    zip.putNextEntry(new ZipEntry(root.relativize(file).toString().replace(File.separatorChar, '/')));
+                    Files.copy(file, zip);
+                    zip.closeEntry();
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+
+    private void write(File file, int size) throws IOException {
+        // Text-like contents compress like real sources and tables, unlike uniformly random bytes.
+        final byte[] bytes = new byte[size];
+        for(int i = 0; i < size; ++i) {
+            bytes[i] = (byte) ('a' + random.nextInt(random.nextBoolean() ? 4 : 26));
+        }
+        file.getParentFile().mkdirs();
+        try(final OutputStream stream = new FileOutputStream(file)) {
+            stream.write(bytes);
+        }
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
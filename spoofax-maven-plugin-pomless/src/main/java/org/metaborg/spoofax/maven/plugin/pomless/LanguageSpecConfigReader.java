@@ -0,0 +1,220 @@
+package org.metaborg.spoofax.maven.plugin.pomless;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.model.Resource;
+import org.metaborg.core.MetaborgConstants;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * Reads the parts of a language specification configuration that are needed to build its Maven model, directly from
+ * the YAML file, without initialising Spoofax. Only configurations whose meaning is certain are read: configurations
+ * that are invalid, or use features that this reader does not support, such as interpolation of keys that are not in
+ * the configuration, are not read, such that the caller can fall back to the Spoofax configuration service, which also
+ * reports configuration errors.
+ */
+public class LanguageSpecConfigReader {
+    private static final ILogger logger = LoggerUtils.logger(LanguageSpecConfigReader.class);
+    private static final Pattern variable = Pattern.compile("\\$\\{([^}]*)\\}");
+    private static final Set<String> exportKeys =
+        ImmutableSet.of("language", "directory", "file", "includes", "excludes");
+
+    private final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
+
+
+    /**
+     * Configuration of a language specification, as far as its Maven model is concerned.
+     */
+    public static class Config {
+        public final LanguageIdentifier identifier;
+        public final String metaborgVersion;
+        public final boolean useBuildSystemSpec;
+        public final List<LanguageIdentifier> compileDeps;
+        public final List<LanguageIdentifier> sourceDeps;
+        public final List<LanguageIdentifier> javaDeps;
+        public final List<Resource> resources;
+
+
+        public Config(LanguageIdentifier identifier, String metaborgVersion, boolean useBuildSystemSpec,
+            List<LanguageIdentifier> compileDeps, List<LanguageIdentifier> sourceDeps,
+            List<LanguageIdentifier> javaDeps, List<Resource> resources) {
+            this.identifier = identifier;
+            this.metaborgVersion = metaborgVersion;
+            this.useBuildSystemSpec = useBuildSystemSpec;
+            this.compileDeps = compileDeps;
+            this.sourceDeps = sourceDeps;
+            this.javaDeps = javaDeps;
+            this.resources = resources;
+        }
+    }
+
+
+    /**
+     * Reads the configuration of the language specification in given directory.
+     * 
+     * @param root
+     *            Root directory of the language specification.
+     * @return Configuration, or null if the configuration does not exist, is invalid, or cannot be read without
+     *         Spoofax.
+     */
+    public @Nullable Config read(File root) {
+        final File file = new File(root, MetaborgConstants.FILE_CONFIG);
+        if(!file.isFile()) {
+            return null;
+        }
+        try {
+            return read(mapper.readTree(file));
+        } catch(IOException | UnsupportedConfigException | IllegalArgumentException e) {
+            logger.debug("Cannot read {} without Spoofax: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+
+    private Config read(JsonNode root) throws UnsupportedConfigException {
+        if(root == null || !root.isObject()) {
+            throw new UnsupportedConfigException("configuration is not a mapping");
+        }
+        final LanguageIdentifier identifier = LanguageIdentifier.parseFull(string(root, root, "id", true));
+        final String metaborgVersion = string(root, root, "metaborgVersion", true);
+        final JsonNode useBuildSystemSpec = root.path("build").path("useBuildSystemSpec");
+        if(!useBuildSystemSpec.isMissingNode() && !useBuildSystemSpec.isBoolean()) {
+            throw new UnsupportedConfigException("build.useBuildSystemSpec is not a boolean");
+        }
+
+        final JsonNode dependencies = root.path("dependencies");
+        final List<LanguageIdentifier> compileDeps = identifiers(root, dependencies.path("compile"));
+        final List<LanguageIdentifier> sourceDeps = identifiers(root, dependencies.path("source"));
+        final List<LanguageIdentifier> javaDeps = identifiers(root, dependencies.path("java"));
+
+        final List<Resource> resources = Lists.newArrayList();
+        for(JsonNode export : list(root.path("exports"))) {
+            for(Iterator<String> keys = export.fieldNames(); keys.hasNext();) {
+                final String key = keys.next();
+                if(!exportKeys.contains(key)) {
+                    throw new UnsupportedConfigException("unknown export key " + key);
+                }
+            }
+            final @Nullable String language = string(root, export, "language", false);
+            final @Nullable String directory = string(root, export, "directory", false);
+            final @Nullable String file = string(root, export, "file", false);
+            final Resource resource = new Resource();
+            if(directory != null) {
+                resource.setDirectory(directory);
+                if(language != null) {
+                    resource.setTargetPath(directory);
+                }
+                resource.setIncludes(strings(root, export.path("includes")));
+                resource.setExcludes(strings(root, export.path("excludes")));
+            } else if(language != null && file != null) {
+                resource.setDirectory(".");
+                resource.setIncludes(Lists.newArrayList(file));
+            } else {
+                throw new UnsupportedConfigException("export without directory or file");
+            }
+            resources.add(resource);
+        }
+
+        return new Config(identifier, metaborgVersion, useBuildSystemSpec.asBoolean(false), compileDeps, sourceDeps,
+            javaDeps, resources);
+    }
+
+    private List<LanguageIdentifier> identifiers(JsonNode root, JsonNode node) throws UnsupportedConfigException {
+        final List<LanguageIdentifier> identifiers = Lists.newArrayList();
+        for(String identifier : strings(root, node)) {
+            identifiers.add(LanguageIdentifier.parseFull(identifier));
+        }
+        return identifiers;
+    }
+
+    private List<String> strings(JsonNode root, JsonNode node) throws UnsupportedConfigException {
+        final List<String> strings = Lists.newArrayList();
+        for(JsonNode element : list(node)) {
+            if(!element.isValueNode()) {
+                throw new UnsupportedConfigException("expected a string, got " + element);
+            }
+            strings.add(interpolate(root, element.asText()));
+        }
+        return strings;
+    }
+
+    private @Nullable String string(JsonNode root, JsonNode node, String key, boolean required)
+        throws UnsupportedConfigException {
+        final JsonNode value = node.get(key);
+        if(value == null || value.isNull()) {
+            if(required) {
+                throw new UnsupportedConfigException("missing " + key);
+            }
+            return null;
+        }
+        if(!value.isValueNode()) {
+            throw new UnsupportedConfigException(key + " is not a string");
+        }
+        return interpolate(root, value.asText());
+    }
+
+    /**
+     * Gets the elements of a list. A single value is a list of one element, as in the Spoofax configuration.
+     */
+    private static Iterable<JsonNode> list(JsonNode node) {
+        if(node.isMissingNode() || node.isNull()) {
+            return Collections.emptyList();
+        }
+        if(node.isArray()) {
+            return node;
+        }
+        return Collections.singletonList(node);
+    }
+
+    /**
+     * Replaces variables with values of keys in the configuration, for example {@code ${metaborgVersion}}.
+     */
+    private static String interpolate(JsonNode root, String value) throws UnsupportedConfigException {
+        final Matcher matcher = variable.matcher(value);
+        if(!matcher.find()) {
+            return value;
+        }
+        final StringBuffer result = new StringBuffer();
+        do {
+            final String key = matcher.group(1);
+            JsonNode node = root;
+            for(String segment : key.split("\\.")) {
+                node = node.path(segment);
+            }
+            if(!node.isValueNode() || variable.matcher(node.asText()).find()) {
+                // Prefixed lookups, such as environment variables, and nested variables are not supported.
+                throw new UnsupportedConfigException("cannot interpolate ${" + key + "}");
+            }
+            matcher.appendReplacement(result, Matcher.quoteReplacement(node.asText()));
+        } while(matcher.find());
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+
+    private static class UnsupportedConfigException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+
+        public UnsupportedConfigException(String message) {
+            super(message);
+        }
+    }
+}
@@ -44,40 +44,30 @@ public class MetaborgModelReader extends ModelReaderSupport {
     private static final ILogger logger = LoggerUtils.logger(MetaborgModelReader.class);
 
     @Requirement(hint = "xml") private Mapping xmlMapping;
+    @Requirement private ModelCache modelCache;
 
+    private final LanguageSpecConfigReader configReader = new LanguageSpecConfigReader();
 
-    @Override public Model read(Reader input, Map<String, ?> options) throws IOException, ModelParseException {
-        if(SpoofaxInit.shouldInit()) {
-            logger.info("Initialising Spoofax core");
-            try {
-                SpoofaxInit.init();
-            } catch(MetaborgException e) {
-                throw new IOException("Cannot initialize Spoofax", e);
-            }
-        }
 
+    @Override public Model read(Reader input, Map<String, ?> options) throws IOException, ModelParseException {
         final File configFile = PolyglotModelUtil.getLocationFile(options);
         final File root = configFile.getParentFile();
-        final FileObject rootDir = SpoofaxInit.spoofax().resourceService.resolve(root);
-        final ConfigRequest<ISpoofaxLanguageSpecConfig> configRequest =
-            SpoofaxInit.spoofaxMeta().languageSpecConfigService.get(rootDir);
-        if(!configRequest.valid()) {
-            logger.error(
-                "Errors occurred when retrieving language specification configuration from project location {}",
-                rootDir);
-            configRequest
-                .reportErrors(new StreamMessagePrinter(SpoofaxInit.spoofax().sourceTextService, false, false, logger));
-            throw new ModelParseException("Configuration for language specification at " + rootDir + " is invalid", -1,
-                -1, null);
+        final File yamlFile = new File(root, MetaborgConstants.FILE_CONFIG);
+        final long modified = yamlFile.lastModified();
+        final long size = yamlFile.length();
+        final Model cachedModel = modelCache.get(yamlFile, modified, size);
+        if(cachedModel != null) {
+            logger.debug("Using cached model of {}", yamlFile);
+            return cachedModel;
         }
 
-        final ILanguageSpecConfig config = configRequest.config();
+        // Read the configuration without Spoofax if possible, Spoofax is initialised when a mojo needs it.
+        LanguageSpecConfigReader.Config config = configReader.read(root);
         if(config == null) {
-            logger.error("Could not retrieve language specification configuration from project location {}", rootDir);
-            throw new IOException("Could not read project configuration.");
+            config = readWithSpoofax(root);
         }
 
-        if(config.useBuildSystemSpec()) {
+        if(config.useBuildSystemSpec) {
             final File pom = xmlMapping.locatePom(root);
             logger.info("Using build system specification at {} instead of {}", pom, configFile);
 
@@ -86,13 +76,13 @@ public class MetaborgModelReader extends ModelReaderSupport {
             return model;
         }
 
-        final String metaborgVersion = config.metaborgVersion();
+        final String metaborgVersion = config.metaborgVersion;
 
         Model model = new Model();
         model.setModelVersion("4.0.0");
-        model.setGroupId(config.identifier().groupId);
-        model.setArtifactId(config.identifier().id);
-        model.setVersion(config.identifier().version.toString());
+        model.setGroupId(config.identifier.groupId);
+        model.setArtifactId(config.identifier.id);
+        model.setVersion(config.identifier.version.toString());
         model.setPackaging(Constants.languageSpecType);
 
         final Parent parent = new Parent();
@@ -102,17 +92,67 @@ public class MetaborgModelReader extends ModelReaderSupport {
         parent.setRelativePath("");
         model.setParent(parent);
 
-        for(LanguageIdentifier dep : config.compileDeps()) {
+        for(LanguageIdentifier dep : config.compileDeps) {
             model.addDependency(createDep(dep, Constants.languageSpecType, "provided"));
         }
-        for(LanguageIdentifier dep : config.sourceDeps()) {
+        for(LanguageIdentifier dep : config.sourceDeps) {
             model.addDependency(createDep(dep, Constants.languageSpecType, "provided"));
         }
-        for(LanguageIdentifier dep : config.javaDeps()) {
+        for(LanguageIdentifier dep : config.javaDeps) {
             model.addDependency(createDep(dep, "jar", "compile"));
         }
 
         final Build build = new Build();
+        build.setResources(config.resources);
+
+        final Plugin metaborgPlugin = new Plugin();
+        metaborgPlugin.setGroupId(MetaborgConstants.METABORG_GROUP_ID);
+        metaborgPlugin.setArtifactId(Constants.pluginId);
+        metaborgPlugin.setVersion(metaborgVersion);
+        metaborgPlugin.setExtensions(true);
+        build.addPlugin(metaborgPlugin);
+
+        model.setBuild(build);
+
+        // Models of build system specifications are not cached, since they depend on the POM file as well.
+        modelCache.put(yamlFile, modified, size, model);
+
+        return model;
+    }
+
+
+    /**
+     * Reads the configuration of a language specification with the Spoofax configuration service, which supports all
+     * configuration features and reports configuration errors, but requires initialising Spoofax.
+     */
+    LanguageSpecConfigReader.Config readWithSpoofax(File root) throws IOException, ModelParseException {
+        if(SpoofaxInit.shouldInit()) {
+            logger.info("Initialising Spoofax core");
+            try {
+                SpoofaxInit.init();
+            } catch(MetaborgException e) {
+                throw new IOException("Cannot initialize Spoofax", e);
+            }
+        }
+
+        final FileObject rootDir = SpoofaxInit.spoofax().resourceService.resolve(root);
+        final ConfigRequest<ISpoofaxLanguageSpecConfig> configRequest =
+            SpoofaxInit.spoofaxMeta().languageSpecConfigService.get(rootDir);
+        if(!configRequest.valid()) {
+            logger.error(
+                "Errors occurred when retrieving language specification configuration from project location {}",
+                rootDir);
+            configRequest
+                .reportErrors(new StreamMessagePrinter(SpoofaxInit.spoofax().sourceTextService, false, false, logger));
+            throw new ModelParseException("Configuration for language specification at " + rootDir + " is invalid", -1,
+                -1, null);
+        }
+
+        final ILanguageSpecConfig config = configRequest.config();
+        if(config == null) {
+            logger.error("Could not retrieve language specification configuration from project location {}", rootDir);
+            throw new IOException("Could not read project configuration.");
+        }
 
         final List<Resource> resources = Lists.newArrayList();
         for(IExportConfig export : config.exports()) {
@@ -142,21 +182,12 @@ public class MetaborgModelReader extends ModelReaderSupport {
                 }
             });
         }
-        build.setResources(resources);
 
-        final Plugin metaborgPlugin = new Plugin();
-        metaborgPlugin.setGroupId(MetaborgConstants.METABORG_GROUP_ID);
-        metaborgPlugin.setArtifactId(Constants.pluginId);
-        metaborgPlugin.setVersion(metaborgVersion);
-        metaborgPlugin.setExtensions(true);
-        build.addPlugin(metaborgPlugin);
-
-        model.setBuild(build);
-
-        return model;
+        return new LanguageSpecConfigReader.Config(config.identifier(), config.metaborgVersion(),
+            config.useBuildSystemSpec(), Lists.newArrayList(config.compileDeps()),
+            Lists.newArrayList(config.sourceDeps()), Lists.newArrayList(config.javaDeps()), resources);
     }
 
-
     private Dependency createDep(LanguageIdentifier id, String type, String scope) {
         final Dependency dep = new Dependency();
         dep.setGroupId(id.groupId);
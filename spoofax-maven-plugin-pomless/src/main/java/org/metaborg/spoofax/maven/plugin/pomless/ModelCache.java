@@ -0,0 +1,99 @@
+package org.metaborg.spoofax.maven.plugin.pomless;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.model.Model;
+import org.codehaus.plexus.component.annotations.Component;
+
+/**
+ * Caches the Maven models built from language specification configurations, since Maven may read the model of a
+ * project several times, for example when scanning the reactor and when resolving parents. A cached model is used
+ * as long as the modification time and size of its configuration file did not change. Models are copied when they
+ * are stored and when they are returned, since Maven modifies the models it reads.
+ */
+@Component(role = ModelCache.class)
+public class ModelCache {
+    private static class Entry {
+        public final long modified;
+        public final long size;
+        public final Model model;
+
+
+        public Entry(long modified, long size, Model model) {
+            this.modified = modified;
+            this.size = size;
+            this.model = model;
+        }
+    }
+
+
+    private final ConcurrentMap<File, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+
+    /**
+     * Gets the cached model of given configuration file.
+     * 
+     * @param file
+     *            Configuration file.
+     * @param modified
+     *            Current modification time of the file.
+     * @param size
+     *            Current size of the file.
+     * @return Copy of the cached model, or null if no model was cached for the current modification time and size.
+     */
+    public @Nullable Model get(File file, long modified, long size) {
+        final Entry entry = entries.get(file.getAbsoluteFile());
+        if(entry == null || entry.modified != modified || entry.size != size) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.model.clone();
+    }
+
+    /**
+     * Caches the model of given configuration file, replacing the model cached for an earlier version of the file.
+     * 
+     * @param file
+     *            Configuration file.
+     * @param modified
+     *            Modification time of the file before it was read.
+     * @param size
+     *            Size of the file before it was read.
+     * @param model
+     *            Model built from the file.
+     */
+    public void put(File file, long modified, long size, Model model) {
+        entries.put(file.getAbsoluteFile(), new Entry(modified, size, model.clone()));
+    }
+
+
+    /**
+     * @return Number of reads that returned a cached model since the last reset.
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of reads that did not find a cached model since the last reset.
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * Resets the hit and miss counts, but keeps the cached models.
+     */
+    public void resetCounts() {
+        hits.set(0);
+        misses.set(0);
+    }
+}
@@ -0,0 +1,34 @@
+package org.metaborg.spoofax.maven.plugin.pomless;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.codehaus.plexus.component.annotations.Component;
+import org.codehaus.plexus.component.annotations.Requirement;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Reports the hit rate of the {@link ModelCache} when a session ends and the {@code spoofax.metrics} property is true.
+ * Counts are reset afterwards, such that each session in a persistent JVM reports its own hit rate.
+ */
+@Component(role = AbstractMavenLifecycleParticipant.class, hint = "spoofax-model-cache")
+public class ModelCacheLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+    private static final ILogger logger = LoggerUtils.logger(ModelCacheLifecycleParticipant.class);
+
+    @Requirement private ModelCache modelCache;
+
+
+    @Override public void afterSessionEnd(MavenSession session) {
+        String metrics = session.getUserProperties().getProperty("spoofax.metrics");
+        if(metrics == null) {
+            metrics = session.getSystemProperties().getProperty("spoofax.metrics");
+        }
+        if(Boolean.parseBoolean(metrics)) {
+            final long hits = modelCache.hits();
+            final long reads = hits + modelCache.misses();
+            logger.info("Spoofax model cache: {} of {} model reads hit the cache ({}%)", hits, reads,
+                reads == 0 ? 0 : hits * 100 / reads);
+        }
+        modelCache.resetCounts();
+    }
+}
@@ -0,0 +1,168 @@
+package org.metaborg.spoofax.maven.plugin.pomless;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.apache.maven.model.Resource;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.core.MetaborgConstants;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+
+/**
+ * Tests that reading a configuration directly gives the same configuration as reading it with the Spoofax
+ * configuration service, and that configurations that the direct reader does not support are left to Spoofax.
+ */
+public class LanguageSpecConfigReaderTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @BeforeClass public static void initSpoofax() throws Exception {
+        if(SpoofaxInit.shouldInit()) {
+            SpoofaxInit.init();
+        }
+    }
+
+
+    @Test public void langDirExports() throws Exception {
+        assertSameConfig(config(
+            "exports:\n" +
+            "- language: TemplateLang\n" +
+            "  directory: syntax\n" +
+            "- language: Stratego-Sugar\n" +
+            "  directory: trans\n" +
+            "  includes:\n" +
+            "  - '**/*.str'\n" +
+            "  excludes:\n" +
+            "  - 'test/**/*'\n"));
+    }
+
+    @Test public void langFileExports() throws Exception {
+        assertSameConfig(config(
+            "exports:\n" +
+            "- language: ATerm\n" +
+            "  file: target/metaborg/sdf.tbl\n" +
+            "- language: Stratego-Sugar\n" +
+            "  file: lib/lang.str\n"));
+    }
+
+    @Test public void resourceExports() throws Exception {
+        assertSameConfig(config(
+            "exports:\n" +
+            "- directory: ./\n" +
+            "  includes:\n" +
+            "  - lib/**/*\n" +
+            "  excludes:\n" +
+            "  - lib/**/*.bak\n" +
+            "- directory: icons\n"));
+    }
+
+    @Test public void dependencies() throws Exception {
+        assertSameConfig(config(
+            "dependencies:\n" +
+            "  compile:\n" +
+            "  - org.metaborg:org.metaborg.meta.lang.esv:2.5.0\n" +
+            "  - org.metaborg:org.metaborg.meta.lang.template:2.5.0\n" +
+            "  source:\n" +
+            "  - org.metaborg:meta.lib.spoofax:2.5.0\n" +
+            "  java:\n" +
+            "  - org.metaborg:org.metaborg.meta.nabl2.java:2.5.0\n"));
+    }
+
+    @Test public void interpolation() throws Exception {
+        assertSameConfig(config(
+            "dependencies:\n" +
+            "  compile:\n" +
+            "  - org.metaborg:org.metaborg.meta.lang.esv:${metaborgVersion}\n" +
+            "  source:\n" +
+            "  - org.metaborg:meta.lib.spoofax:${metaborgVersion}\n" +
+            "exports:\n" +
+            "- language: Stratego-Sugar\n" +
+            "  directory: ${name}\n" +
+            "- directory: ./\n" +
+            "  includes:\n" +
+            "  - lib/${name}/**/*\n"));
+    }
+
+    @Test public void singleValueLists() throws Exception {
+        assertSameConfig(config(
+            "dependencies:\n" +
+            "  compile: org.metaborg:org.metaborg.meta.lang.esv:${metaborgVersion}\n" +
+            "  java: org.metaborg:org.metaborg.meta.nabl2.java:${metaborgVersion}\n" +
+            "exports:\n" +
+            "  directory: ./\n" +
+            "  includes: lib/**/*\n" +
+            "  excludes: lib/**/*.bak\n"));
+    }
+
+    @Test public void useBuildSystemSpec() throws Exception {
+        assertSameConfig(config(
+            "build:\n" +
+            "  useBuildSystemSpec: true\n"));
+        assertSameConfig(config(
+            "build:\n" +
+            "  useBuildSystemSpec: false\n"));
+    }
+
+    @Test public void unsupportedConfigurationsAreLeftToSpoofax() throws Exception {
+        assertNull(new LanguageSpecConfigReader().read(write(config(
+            "exports:\n" +
+            "- resource: target/metaborg/sdf.tbl\n"))));
+        assertNull(new LanguageSpecConfigReader().read(write(config(
+            "dependencies:\n" +
+            "  compile:\n" +
+            "  - org.metaborg:org.metaborg.meta.lang.esv:${env.METABORG_VERSION}\n"))));
+        assertNull(new LanguageSpecConfigReader().read(write("---\nname: lang\n")));
+    }
+
+
+    private static String config(String rest) {
+        return "---\n" +
+            "id: org.example:lang:1.0.0-SNAPSHOT\n" +
+            "name: lang\n" +
+            "metaborgVersion: 2.5.0\n" +
+            rest;
+    }
+
+    private File write(String config) throws IOException {
+        final File root = temp.newFolder();
+        Files.write(new File(root, MetaborgConstants.FILE_CONFIG).toPath(), config.getBytes(StandardCharsets.UTF_8));
+        return root;
+    }
+
+    private void assertSameConfig(String config) throws Exception {
+        final File root = write(config);
+        final LanguageSpecConfigReader.Config direct = new LanguageSpecConfigReader().read(root);
+        assertNotNull("Configuration was not read directly", direct);
+        final LanguageSpecConfigReader.Config spoofax = new MetaborgModelReader().readWithSpoofax(root);
+
+        assertEquals(spoofax.identifier, direct.identifier);
+        assertEquals(spoofax.metaborgVersion, direct.metaborgVersion);
+        assertEquals(spoofax.useBuildSystemSpec, direct.useBuildSystemSpec);
+        assertEquals(spoofax.compileDeps, direct.compileDeps);
+        assertEquals(spoofax.sourceDeps, direct.sourceDeps);
+        assertEquals(spoofax.javaDeps, direct.javaDeps);
+        assertSameResources(spoofax.resources, direct.resources);
+    }
+
+    private static void assertSameResources(List<Resource> expected, List<Resource> actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); ++i) {
+            final Resource expectedResource = expected.get(i);
+            final Resource actualResource = actual.get(i);
+            assertEquals(expectedResource.getDirectory(), actualResource.getDirectory());
+            assertEquals(expectedResource.getTargetPath(), actualResource.getTargetPath());
+            assertEquals(expectedResource.getIncludes(), actualResource.getIncludes());
+            assertEquals(expectedResource.getExcludes(), actualResource.getExcludes());
+        }
+    }
+}
@@ -1,55 +1,101 @@
 package org.metaborg.spoofax.maven.plugin;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.maven.RepositoryUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
-import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
-import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
 import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.repository.RepositorySystem;
 import org.apache.maven.shared.dependency.tree.DependencyNode;
 import org.apache.maven.shared.dependency.tree.DependencyTreeBuilder;
 import org.apache.maven.shared.dependency.tree.DependencyTreeBuilderException;
 import org.apache.maven.shared.dependency.tree.traversal.DependencyNodeVisitor;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageDiscoveryRequest;
+import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.language.LanguageIdentifier;
 import org.metaborg.core.language.LanguageVersion;
 import org.metaborg.core.project.IProject;
 import org.metaborg.core.resource.ResourceChange;
-import org.metaborg.core.resource.ResourceChangeKind;
-import org.metaborg.core.resource.ResourceUtils;
-import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
+import org.metaborg.spoofax.maven.plugin.archive.MappedZipFileProvider;
+import org.metaborg.spoofax.maven.plugin.daemon.DaemonClient;
+import org.metaborg.spoofax.maven.plugin.daemon.DaemonInfo;
+import org.metaborg.spoofax.maven.plugin.daemon.MojoRequests;
+import org.metaborg.spoofax.maven.plugin.discovery.DependencyCache;
+import org.metaborg.spoofax.maven.plugin.discovery.DiscoveryIndex;
+import org.metaborg.spoofax.maven.plugin.discovery.ExtractionCache;
+import org.metaborg.spoofax.maven.plugin.incremental.FingerprintBuilder;
+import org.metaborg.spoofax.maven.plugin.metrics.BuildMetrics;
+import org.metaborg.spoofax.maven.plugin.metrics.Phase;
+import org.metaborg.spoofax.maven.plugin.spt.TestJournal;
 import org.metaborg.util.iterators.Iterables2;
 
+import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public abstract class AbstractSpoofaxMojo extends AbstractMojo {
     private static final String PROJECT_ID = "spoofax-maven-plugin.project";
     private static final String DISCOVERED_ID = "spoofax-maven-plugin.discovered";
+    private static final String DEPENDENCIES_ID = "spoofax-maven-plugin.dependencies";
+    private static final String DAEMON_ID = "spoofax-maven-plugin.daemon";
+    private static final String DAEMON_CONTEXT_ID = "spoofax-maven-plugin.daemon.context";
 
     @Component(hint = "default") private DependencyTreeBuilder dependencyTreeBuilder;
     @Component private RepositorySystem repoSystem;
 
     @Parameter(defaultValue = "${basedir}", readonly = true, required = true) private File basedir;
     @Parameter(defaultValue = "${project}", readonly = true) private MavenProject project;
+    @Parameter(defaultValue = "${session}", readonly = true) private MavenSession session;
     @Parameter(defaultValue = "${localRepository}", readonly = true) private ArtifactRepository localRepository;
 
     @Parameter(property = "spoofax.skip", defaultValue = "false") protected boolean skipAll;
+    @Parameter(property = "spoofax.discovery.threads", defaultValue = "1") private int discoveryThreads;
+    @Parameter(property = "spoofax.discovery.index", defaultValue = "true") private boolean useDiscoveryIndex;
+    @Parameter(property = "spoofax.discovery.mappedArchives", defaultValue = "false") private boolean mappedArchives;
+    @Parameter(property = "spoofax.discovery.extractArchives", defaultValue = "false") private boolean extractArchives;
+    @Parameter(property = "spoofax.discovery.extractDirectory") private File extractDirectory;
+    @Parameter(property = "spoofax.discovery.extractMaxSize", defaultValue = "2048") private long extractMaxSize;
+    @Parameter(property = "spoofax.daemon", defaultValue = "false") private boolean daemon;
+    @Parameter(property = "spoofax.daemon.file") private File daemonFile;
+    @Parameter(defaultValue = "${plugin.version}", readonly = true) private String pluginVersion;
+
+    /** If this mojo is executed by the Spoofax daemon, for a project in the build of a client. */
+    private transient boolean daemonExecution = false;
+    private @Nullable ExtractionCache extractionCache;
 
     private FileObject basedirLocation;
     private @Nullable IProject metaborgProject;
@@ -78,7 +124,7 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
     @Override public void execute() throws MojoExecutionException, MojoFailureException {
         if(SpoofaxInit.shouldInit()) {
             getLog().info("Initialising Spoofax core");
-            try {
+            try(final Phase phase = phase("init", null)) {
                 SpoofaxInit.init();
             } catch(MetaborgException e) {
                 throw new MojoExecutionException("Cannot instantiate Spoofax", e);
@@ -88,6 +134,13 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
         basedirLocation = SpoofaxInit.spoofax().resourceService.resolve(basedir);
         if(!getContextBool(project, PROJECT_ID)) {
             try {
+                // When the JVM outlives a single build, for example in a Maven daemon, the project may have been
+                // created by an earlier build. Create it again to pick up configuration changes.
+                final IProject existingProject = SpoofaxInit.projectService().get(basedirLocation);
+                if(existingProject != null
+                    && existingProject.location().getName().equals(basedirLocation.getName())) {
+                    SpoofaxInit.projectService().remove(existingProject);
+                }
                 metaborgProject = SpoofaxInit.projectService().create(basedirLocation);
             } catch(MetaborgException e) {
                 throw new MojoExecutionException("Cannot create Metaborg project", e);
@@ -100,6 +153,81 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
     }
 
 
+    /**
+     * Executes this mojo in the Spoofax daemon, if the daemon is enabled and running. The language dependencies of the
+     * project are resolved in this process, and loaded by the daemon. Context values of the project that hold the
+     * state of the Spoofax core of the daemon are kept apart from those of this process, such that executions in this
+     * process do not depend on state that only exists in the daemon, and the other way around.
+     * 
+     * @return True if the daemon executed this mojo, false if this mojo must be executed in this process.
+     */
+    protected boolean executeInDaemon() throws MojoExecutionException, MojoFailureException {
+        if(!daemon || daemonExecution || project == null) {
+            return false;
+        }
+        try(final DaemonClient client =
+            DaemonClient.connect(DaemonInfo.file(daemonFile, localRepository), pluginVersion, getLog())) {
+            if(client == null) {
+                return false;
+            }
+            final String daemonToken = client.info().token();
+            @SuppressWarnings("unchecked") final Map<String, Boolean> daemonContext =
+                daemonToken.equals(project.getContextValue(DAEMON_ID))
+                    ? (Map<String, Boolean>) project.getContextValue(DAEMON_CONTEXT_ID)
+                    : Collections.<String, Boolean>emptyMap();
+
+            final Properties request = new Properties();
+            MojoRequests.writeMojo(this, request);
+            MojoRequests.writeProject(project, request);
+            MojoRequests.writeArtifacts(resolveLanguageDependencies(Sets.<String>newHashSet()), request);
+            MojoRequests.writeContext(daemonContext, request);
+            final Properties result = client.execute(request, getLog());
+
+            final Map<String, Boolean> resultContext = MojoRequests.readContext(result);
+            project.setContextValue(DAEMON_ID, daemonToken);
+            project.setContextValue(DAEMON_CONTEXT_ID, resultContext);
+            for(Map.Entry<String, Boolean> entry : resultContext.entrySet()) {
+                final String id = entry.getKey();
+                // Whether the project was created and its languages were loaded is only known for the daemon.
+                if(!id.equals(PROJECT_ID) && !id.equals(DISCOVERED_ID)) {
+                    project.setContextValue(id, entry.getValue());
+                }
+            }
+            final @Nullable File artifactFile = MojoRequests.readProjectArtifactFile(result);
+            if(artifactFile != null) {
+                project.getArtifact().setFile(artifactFile);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Prepares this mojo for an execution by the Spoofax daemon, for a project in the build of a client.
+     * 
+     * @param project
+     *            Project of the daemon, which has the coordinates and build directories of the project of the client.
+     * @param session
+     *            Session of the daemon.
+     * @param localRepository
+     *            Local repository of the daemon.
+     * @param languageDependencies
+     *            Language artifacts that the project depends on, resolved by the client, sorted by artifact id.
+     * @param context
+     *            Context values that earlier executions by the daemon set on the project in the same build.
+     */
+    public void prepareDaemonExecution(MavenProject project, MavenSession session, ArtifactRepository localRepository,
+        List<Artifact> languageDependencies, Map<String, Boolean> context) {
+        this.project = project;
+        this.session = session;
+        this.localRepository = localRepository;
+        this.daemonExecution = true;
+        project.setContextValue(DEPENDENCIES_ID, languageDependencies);
+        for(Map.Entry<String, Boolean> entry : context.entrySet()) {
+            project.setContextValue(entry.getKey(), entry.getValue());
+        }
+    }
+
+
     public File basedir() {
         return basedir;
     }
@@ -133,6 +261,67 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
     }
 
 
+    /**
+     * @return Metrics of the current Maven session.
+     */
+    public BuildMetrics metrics() {
+        return BuildMetrics.get(session);
+    }
+
+    /**
+     * Starts measuring a phase of the build of this project.
+     * 
+     * @param name
+     *            Name of the phase.
+     * @param detail
+     *            Detail that distinguishes executions of the same phase, such as an artifact, or null if none.
+     * @return Running phase, which must be closed on the same thread.
+     */
+    public Phase phase(String name, @Nullable String detail) {
+        return metrics().start(name, project != null ? project.getArtifactId() : null, detail);
+    }
+
+
+    /**
+     * @return Version of the plugin.
+     */
+    public @Nullable String pluginVersion() {
+        return pluginVersion;
+    }
+
+
+    /**
+     * @return Language artifacts that the project depends on, sorted by artifact id. Empty if language dependencies
+     *         have not been resolved for the project.
+     */
+    public List<Artifact> languageDependencies() {
+        if(project == null) {
+            return Collections.emptyList();
+        }
+        @SuppressWarnings("unchecked") final List<Artifact> dependencies =
+            (List<Artifact>) project.getContextValue(DEPENDENCIES_ID);
+        return dependencies != null ? dependencies : Collections.<Artifact>emptyList();
+    }
+
+    /**
+     * Adds the language artifacts that the project depends on to given section of given fingerprint builder. Artifacts
+     * are identified by their id, and by the file or directory that their language components are loaded from.
+     * 
+     * @param builder
+     *            Fingerprint builder to add artifacts to.
+     * @param section
+     *            Section of the fingerprint to add artifacts to.
+     */
+    public void addLanguageDependencies(FingerprintBuilder builder, String section) throws IOException {
+        for(Artifact artifact : languageDependencies()) {
+            builder.addString(section, artifact.getId());
+            final @Nullable File file = languageFile(artifact);
+            if(file != null) {
+                builder.addFile(section, file.getName(), file);
+            }
+        }
+    }
+
     public void discoverLanguages() throws MojoExecutionException {
         discoverLanguages(Sets.<String>newHashSet());
     }
@@ -146,55 +335,205 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
             return;
         }
 
-        getLog().info("Collecting language dependencies");
+        final List<Artifact> sortedDependencies = resolveLanguageDependencies(scopes);
+        final int threads = Math.max(1, Math.min(discoveryThreads, sortedDependencies.size()));
 
-        final Iterable<Artifact> dependencies;
-        try {
-            final Iterable<Artifact> allDependencies = allDependencies(scopes);
-            dependencies = resolveArtifacts(allDependencies);
-        } catch(DependencyTreeBuilderException e) {
-            throw new MojoExecutionException("Resolving dependencies failed", e);
+        getLog().info("Loading language components from " + sortedDependencies.size() + " dependencies"
+            + (threads > 1 ? " using " + threads + " threads" : ""));
+
+        final @Nullable DiscoveryIndex discoveryIndex;
+        if(useDiscoveryIndex) {
+            discoveryIndex = new DiscoveryIndex(new File(project.getBuild().getDirectory(), "spoofax/discovery.index"));
+            discoveryIndex.load();
+        } else {
+            discoveryIndex = null;
         }
 
-        getLog().info("Loading language components from dependencies");
+        if(extractArchives) {
+            // Shared by all projects that use the same local repository, next to it by default.
+            final File directory = extractDirectory != null ? extractDirectory
+                : new File(new File(localRepository.getBasedir()).getParentFile(), "spoofax/extracted");
+            extractionCache = new ExtractionCache(directory, extractMaxSize * 1024 * 1024);
+        }
 
-        boolean error = false;
-        for(Artifact dependency : dependencies) {
-            if(loadComponents(dependency) == null) {
-                error = true;
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final List<Iterable<ILanguageComponent>> results;
+        if(threads > 1) {
+            results = loadComponentsConcurrently(sortedDependencies, discoveryIndex, threads);
+        } else {
+            results = Lists.newArrayListWithCapacity(sortedDependencies.size());
+            for(Artifact dependency : sortedDependencies) {
+                results.add(loadComponents(dependency, discoveryIndex));
             }
         }
 
-        if(error) {
+        if(discoveryIndex != null) {
+            discoveryIndex.save();
+        }
+
+        final List<String> failed = Lists.newArrayList();
+        for(int i = 0; i < sortedDependencies.size(); ++i) {
+            final Iterable<ILanguageComponent> components = results.get(i);
+            if(components == null) {
+                failed.add(sortedDependencies.get(i).getId());
+                continue;
+            }
+            for(ILanguageComponent component : components) {
+                getLog().info("Loaded " + component);
+            }
+        }
+
+        getLog().info("Loading language components took " + stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms");
+
+        if(!failed.isEmpty()) {
+            getLog().error("Discovering languages failed for: " + Joiner.on(", ").join(failed));
             throw new MojoExecutionException("Error(s) occurred while discovering languages");
         }
 
         getLog().info("Loading dialects");
 
-        try {
-            final Iterable<FileObject> resources = ResourceUtils.find(basedirLocation, new SpoofaxIgnoresSelector());
-            final Iterable<ResourceChange> creations = ResourceUtils.toChanges(resources, ResourceChangeKind.Create);
-            SpoofaxInit.spoofax().processorRunner.updateDialects(basedirLocation, creations).schedule().block();
+        final File dialectJournalFile = new File(project.getBuild().getDirectory(), "spoofax/dialects.journal");
+        boolean dialectsUpdated = false;
+        try(final Phase phase = phase("load-dialects", null)) {
+            final List<ResourceChange> changes =
+                SpoofaxInit.dialectJournal().update(basedirLocation, dialectJournalFile);
+            phase.items(changes.size());
+            if(!changes.isEmpty()) {
+                SpoofaxInit.spoofax().processorRunner.updateDialects(basedirLocation, changes).schedule().block();
+            }
+            dialectsUpdated = true;
         } catch(FileSystemException | InterruptedException e) {
             throw new MojoExecutionException("Error(s) occurred while loading dialects");
+        } finally {
+            if(!dialectsUpdated) {
+                // Process all files again next time, since it is unknown which changes were processed.
+                SpoofaxInit.dialectJournal().invalidate(basedirLocation, dialectJournalFile);
+            }
         }
 
         setContextBool(project, DISCOVERED_ID, true);
     }
 
-    public void discoverSelf() {
+    /**
+     * Loads the language components of this project from its build output.
+     * 
+     * @return True if components were loaded, false if this project is not a language specification, or if loading
+     *         failed.
+     */
+    public boolean discoverSelf() {
         if(!project.getPackaging().equals(Constants.languageSpecType)) {
-            return;
+            return false;
+        }
+        final LanguageIdentifier identifier = new LanguageIdentifier(project.getGroupId(), project.getArtifactId(),
+            LanguageVersion.parse(project.getVersion()));
+        final Iterable<ILanguageComponent> components;
+        // Hold the lock for this identifier, such that concurrently building projects that depend on this project do
+        // not load it at the same time.
+        synchronized(SpoofaxInit.discoveredArtifacts().lock(identifier)) {
+            components = loadComponents(project.getBasedir());
+        }
+        if(components == null) {
+            return false;
+        }
+        for(ILanguageComponent component : components) {
+            getLog().info("Loaded " + component);
+        }
+        return true;
+    }
+
+    /**
+     * Loads the test journal of this project. The journal is valid for the SPT language and language under test of
+     * this build, identified by the contents of the language dependencies, and if the language of this project is
+     * under test, by its configuration and the contents of its build in target/metaborg. Contents are hashed, such that
+     * a language that is built again with the same outputs does not cause all tests to run again.
+     * 
+     * @param sptLang
+     *            SPT language that tests are run with.
+     * @param testLang
+     *            Language under test.
+     * @param testSelf
+     *            If the language of this project is under test.
+     * @return Loaded test journal.
+     */
+    public TestJournal testJournal(ILanguageImpl sptLang, ILanguageImpl testLang, boolean testSelf)
+        throws MojoExecutionException {
+        // Language dependencies are part of the fingerprint, make sure they are known.
+        discoverLanguages();
+        final File buildDirectory = new File(project.getBuild().getDirectory());
+        final FingerprintBuilder builder = new FingerprintBuilder(true);
+        try {
+            if(testSelf) {
+                // Loaded from the project directory, see discoverSelf.
+                builder.addResource("language", basedirLocation, basedirLocation.resolveFile("metaborg.yaml"));
+                builder.addResource("language", basedirLocation,
+                    SpoofaxInit.spoofax().resourceService.resolve(new File(buildDirectory, "metaborg")));
+            }
+            addLanguageDependencies(builder, "languages");
+        } catch(IOException e) {
+            throw new MojoExecutionException("Cannot compute fingerprint of language under test", e);
+        }
+        builder.addString("languages", sptLang.id().toString());
+        builder.addString("languages", testLang.id().toString());
+
+        final TestJournal journal =
+            new TestJournal(new File(buildDirectory, "spoofax/spt.journal"), builder.build().hash());
+        journal.load();
+        return journal;
+    }
+
+    /**
+     * Resolves the language artifacts that the project depends on, once per project.
+     * 
+     * @return Language artifacts, sorted by artifact id.
+     */
+    private List<Artifact> resolveLanguageDependencies(Set<String> scopes) throws MojoExecutionException {
+        @SuppressWarnings("unchecked") final List<Artifact> resolvedDependencies =
+            (List<Artifact>) project.getContextValue(DEPENDENCIES_ID);
+        if(resolvedDependencies != null) {
+            return resolvedDependencies;
         }
-        loadComponents(project.getBasedir());
+
+        getLog().info("Collecting language dependencies");
+
+        final Iterable<Artifact> dependencies;
+        try {
+            final DependencyCache dependencyCache = DependencyCache.get(session);
+            final Iterable<Artifact> allDependencies;
+            try(final Phase phase = phase("collect-dependencies", null)) {
+                allDependencies = allDependencies(scopes, dependencyCache);
+            }
+            try(final Phase phase = phase("resolve-artifacts", null)) {
+                dependencies = resolveArtifacts(allDependencies, dependencyCache);
+            }
+        } catch(DependencyTreeBuilderException e) {
+            throw new MojoExecutionException("Resolving dependencies failed", e);
+        }
+
+        final List<Artifact> sortedDependencies = Lists.newArrayList(dependencies);
+        Collections.sort(sortedDependencies, new Comparator<Artifact>() {
+            @Override public int compare(Artifact a1, Artifact a2) {
+                return a1.getId().compareTo(a2.getId());
+            }
+        });
+        project.setContextValue(DEPENDENCIES_ID, sortedDependencies);
+        return sortedDependencies;
     }
-    
+
     /**
      * Get the dependency tree so that we also see dependencies that have been omitted by Maven. Maven does conflict
      * resolution so that it only has to load a single version of the artifact in the JVM, which makes sense for Java,
      * but not for Spoofax. We actually want to load multiple versions of the same language for bootstrapping purposes.
+     * The result is cached in the session, keyed by the dependencies of the project and the requested scopes. The
+     * root of the tree is skipped, such that projects with the same dependencies can share the result.
      */
-    private Iterable<Artifact> allDependencies(final Set<String> scopes) throws DependencyTreeBuilderException {
+    private Iterable<Artifact> allDependencies(final Set<String> scopes, DependencyCache dependencyCache)
+        throws DependencyTreeBuilderException {
+        final String closureKey = DependencyCache.closureKey(project, scopes);
+        final Collection<Artifact> cachedDependencies = dependencyCache.dependencies(closureKey);
+        if(cachedDependencies != null) {
+            return cachedDependencies;
+        }
+
         final Set<Artifact> dependencies = Sets.newHashSet();
         final DependencyNode node =
             dependencyTreeBuilder.buildDependencyTree(project, localRepository, new ArtifactFilter() {
@@ -208,7 +547,7 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
         node.accept(new DependencyNodeVisitor() {
             @Override public boolean visit(DependencyNode node) {
                 final Artifact artifact = node.getArtifact();
-                if(artifact.getType().equalsIgnoreCase(Constants.languageSpecType)) {
+                if(node.getParent() != null && artifact.getType().equalsIgnoreCase(Constants.languageSpecType)) {
                     dependencies.add(artifact);
                 }
                 return true;
@@ -218,51 +557,149 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
                 return true;
             }
         });
-        dependencies.remove(project.getArtifact());
+        dependencyCache.putDependencies(closureKey, dependencies);
         return dependencies;
     }
 
     /**
      * Omitted dependencies in the dependency tree are not resolved. Resolve them manually and return the resolved
-     * artifacts.
+     * artifacts. Artifacts that were resolved earlier in the session are taken from the cache, the remaining ones are
+     * resolved in a single request.
      */
-    private Iterable<Artifact> resolveArtifacts(Iterable<Artifact> dependencies) {
+    private Iterable<Artifact> resolveArtifacts(Iterable<Artifact> dependencies, DependencyCache dependencyCache) {
         final Set<Artifact> artifacts = Sets.newHashSet();
+        final List<Artifact> unresolved = Lists.newArrayList();
+        final List<ArtifactRequest> requests = Lists.newArrayList();
         for(Artifact dependency : dependencies) {
+            artifacts.add(dependency);
             if(dependency.isResolved()) {
-                artifacts.add(dependency);
-            } else {
-                final ArtifactResolutionRequest request = new ArtifactResolutionRequest();
-                request.setArtifact(dependency);
-                // HACK: setting remote repositories causes ClassCastException in Maven, disable for now..
-                // request.setRemoteRepositories(projectRepos);
-                request.setLocalRepository(localRepository);
-                final ArtifactResolutionResult result = repoSystem.resolve(request);
-                artifacts.addAll(result.getArtifacts());
+                continue;
+            }
+            final File cachedFile = dependencyCache.resolvedFile(dependency);
+            if(cachedFile != null) {
+                dependency.setFile(cachedFile);
+                dependency.setResolved(true);
+                continue;
+            }
+            unresolved.add(dependency);
+            requests.add(new ArtifactRequest(RepositoryUtils.toArtifact(dependency),
+                project.getRemoteProjectRepositories(), null));
+        }
+
+        if(requests.isEmpty()) {
+            return artifacts;
+        }
+
+        List<ArtifactResult> results;
+        try {
+            results = repoSystem.resolveArtifacts(session.getRepositorySession(), requests);
+        } catch(ArtifactResolutionException e) {
+            // Unresolved artifacts have no file, which is reported when loading their components.
+            getLog().debug("Resolving omitted dependencies failed", e);
+            results = e.getResults();
+        }
+        for(int i = 0; i < unresolved.size(); ++i) {
+            final Artifact dependency = unresolved.get(i);
+            final ArtifactResult result = results.get(i);
+            if(result.isResolved()) {
+                final File file = result.getArtifact().getFile();
+                dependency.setFile(file);
+                dependency.setResolved(true);
+                dependencyCache.putResolvedFile(dependency, file);
             }
         }
         return artifacts;
     }
 
+    /**
+     * Loads language components from given artifacts using a bounded pool of worker threads.
+     * 
+     * @param artifacts
+     *            Artifacts to load language components from.
+     * @param discoveryIndex
+     *            Index of previously discovered component locations, or null to always discover from scratch.
+     * @param threads
+     *            Number of worker threads to use.
+     * @return Loaded components for each artifact, in the same order as given artifacts. An element is null if an
+     *         error occurred while loading components from the corresponding artifact.
+     */
+    private List<Iterable<ILanguageComponent>> loadComponentsConcurrently(List<Artifact> artifacts,
+        final @Nullable DiscoveryIndex discoveryIndex, int threads) throws MojoExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("spoofax-discovery-%d").setDaemon(true).build());
+        try {
+            final List<Future<Iterable<ILanguageComponent>>> futures = Lists.newArrayListWithCapacity(artifacts.size());
+            for(final Artifact artifact : artifacts) {
+                futures.add(executor.submit(new Callable<Iterable<ILanguageComponent>>() {
+                    @Override public Iterable<ILanguageComponent> call() throws Exception {
+                        return loadComponents(artifact, discoveryIndex);
+                    }
+                }));
+            }
+
+            final List<Iterable<ILanguageComponent>> results = Lists.newArrayListWithCapacity(artifacts.size());
+            for(int i = 0; i < artifacts.size(); ++i) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch(ExecutionException e) {
+                    getLog().error("Unexpected error while discovering languages in " + artifacts.get(i), e.getCause());
+                    results.add(null);
+                }
+            }
+            return results;
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while discovering languages", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Loads language components given an artifact.
      * 
      * @param artifact
      *            Artifact to load language components from.
+     * @param discoveryIndex
+     *            Index of previously discovered component locations, or null to always discover from scratch.
      * @return Loaded components, or null if an error occurred.
      */
-    private Iterable<ILanguageComponent> loadComponents(Artifact artifact) {
+    Iterable<ILanguageComponent> loadComponents(Artifact artifact, @Nullable DiscoveryIndex discoveryIndex) {
         final LanguageVersion version = LanguageVersion.parse(artifact.getBaseVersion());
         final LanguageIdentifier identifier =
             new LanguageIdentifier(artifact.getGroupId(), artifact.getArtifactId(), version);
+        // Hold the lock for this identifier, such that concurrently building projects do not load it twice.
+        synchronized(SpoofaxInit.discoveredArtifacts().lock(identifier)) {
+            try(final Phase phase = phase("load-components", identifier.toString())) {
+                final Iterable<ILanguageComponent> components = loadComponents(artifact, identifier, discoveryIndex);
+                if(components != null) {
+                    phase.items(Iterables.size(components));
+                }
+                return components;
+            }
+        }
+    }
+
+    private Iterable<ILanguageComponent> loadComponents(Artifact artifact, LanguageIdentifier identifier,
+        @Nullable DiscoveryIndex discoveryIndex) {
+        final File file = artifact.getFile();
         final ILanguageComponent existingComponent = SpoofaxInit.spoofax().languageService.getComponent(identifier);
-        if(existingComponent != null) {
+        if(existingComponent != null
+            && (file == null || SpoofaxInit.discoveredArtifacts().upToDate(identifier, file))) {
+            if(extractionCache != null && file != null && file.isFile()) {
+                // The loaded component still reads from its extracted archive, which is only kept in the cache while
+                // it is used. Extracting it again touches it, or restores it when another build removed it.
+                try {
+                    extractionCache.extract(file);
+                } catch(IOException e) {
+                    getLog().warn("Cannot extract " + file + " into " + extractionCache, e);
+                }
+            }
             return Iterables2.empty();
         }
 
-        final File file = artifact.getFile();
         if(file != null && file.exists()) {
-            final String url = (file.isDirectory() ? "file:" : "zip:") + file.getPath();
+            final String url = artifactUrl(file);
             final FileObject artifactLocation = SpoofaxInit.spoofax().resourceService.resolve(url);
 
             try {
@@ -274,34 +711,33 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
                 // When running in Eclipse using M2E, artifact location will point to the target/classes/
                 // directory which is empty. Try again with the packaged artifact.
                 final FileObject targetLocation = artifactLocation.getParent();
-                final String filename =
-                    artifact.getArtifactId() + "-" + artifact.getBaseVersion() + "." + artifact.getType();
-                final FileObject packageLocation = targetLocation.resolveFile(filename);
+                final FileObject packageLocation = targetLocation.resolveFile(packageFilename(artifact));
                 // NOTE: FileObject.getName().getPath() will not include the drive letter on Windows.
                 // To fix this, use FileObject.getURL().getPath() instead.
                 final FileObject packageFile =
-                    SpoofaxInit.spoofax().resourceService.resolve("zip:" + packageLocation.getURL().getPath());
+                    SpoofaxInit.spoofax().resourceService.resolve(archiveUrl(packageLocation.getURL().getPath()));
 
-                final Iterable<ILanguageDiscoveryRequest> requests;
+                final FileObject location;
+                final @Nullable File indexedFile;
                 if(packageFile.exists()) {
-                    requests = SpoofaxInit.spoofax().languageDiscoveryService.request(packageFile);
+                    location = packageFile;
+                    indexedFile = SpoofaxInit.spoofax().resourceService.localFile(packageLocation);
                 } else {
-                    requests = SpoofaxInit.spoofax().languageDiscoveryService.request(artifactLocation);
+                    location = artifactLocation;
+                    // Directories may change without their modification time changing, never index them.
+                    indexedFile = file.isDirectory() ? null : file;
                 }
                 final Iterable<ILanguageComponent> components =
-                    SpoofaxInit.spoofax().languageDiscoveryService.discover(requests);
+                    discoverComponents(location, indexedFile, artifact.isSnapshot(), discoveryIndex);
 
                 if(Iterables.isEmpty(components)) {
                     getLog().error("No languages were discovered in " + artifact);
                     return null;
                 }
 
-                for(ILanguageComponent component : components) {
-                    getLog().info("Loaded " + component);
-                }
-
+                SpoofaxInit.discoveredArtifacts().add(identifier, file);
                 return components;
-            } catch(FileSystemException | MetaborgException e) {
+            } catch(IOException | MetaborgException e) {
                 getLog().error("Unexpected error while discovering languages in " + artifact, e);
                 return null;
             }
@@ -311,10 +747,115 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
         return null;
     }
 
+    /**
+     * Gets the file or directory that the language components of given artifact are loaded from, like
+     * {@link #loadComponents(Artifact, LanguageIdentifier, DiscoveryIndex)} does. A directory artifact, which is the
+     * target/classes directory of a language specification in the reactor or in M2E, is loaded from the packaged
+     * language next to it if it exists.
+     */
+    private static @Nullable File languageFile(Artifact artifact) {
+        final File file = artifact.getFile();
+        if(file == null || !file.isDirectory()) {
+            return file;
+        }
+        final File packageFile = new File(file.getParentFile(), packageFilename(artifact));
+        return packageFile.isFile() ? packageFile : file;
+    }
+
+    private static String packageFilename(Artifact artifact) {
+        return artifact.getArtifactId() + "-" + artifact.getBaseVersion() + "." + artifact.getType();
+    }
+
+    /**
+     * Discovers language components at given location. If the discovery index has a valid entry for given file, only
+     * the component locations recorded in that entry are searched. Otherwise, the entire location is searched and the
+     * discovered component locations are recorded in the index. In both cases the discovery service reads and parses
+     * the configuration of each component.
+     * 
+     * @param location
+     *            Location to discover language components at.
+     * @param indexedFile
+     *            Local file that location points into, used as key in the discovery index, or null if location cannot
+     *            be indexed.
+     * @param snapshot
+     *            If the file belongs to a snapshot artifact, in which case its hash is verified against the index.
+     * @param discoveryIndex
+     *            Index of previously discovered component locations, or null to always discover from scratch.
+     * @return Discovered components.
+     */
+    private Iterable<ILanguageComponent> discoverComponents(FileObject location, @Nullable File indexedFile,
+        boolean snapshot, @Nullable DiscoveryIndex discoveryIndex) throws IOException, MetaborgException {
+        if(discoveryIndex == null || indexedFile == null) {
+            return SpoofaxInit.spoofax().languageDiscoveryService
+                .discover(SpoofaxInit.spoofax().languageDiscoveryService.request(location));
+        }
+
+        final List<String> componentLocations = discoveryIndex.get(indexedFile, snapshot);
+        if(componentLocations != null) {
+            try {
+                final List<ILanguageDiscoveryRequest> requests = Lists.newArrayList();
+                for(String componentLocation : componentLocations) {
+                    if(!componentLocation.startsWith(location.getName().getURI())) {
+                        // Indexed when the artifact was read differently, for example before it was extracted.
+                        throw new MetaborgException("Indexed location " + componentLocation + " is not in " + location);
+                    }
+                    final FileObject componentResource =
+                        SpoofaxInit.spoofax().resourceService.resolve(componentLocation);
+                    Iterables.addAll(requests,
+                        SpoofaxInit.spoofax().languageDiscoveryService.request(componentResource));
+                }
+                final Iterable<ILanguageComponent> components =
+                    SpoofaxInit.spoofax().languageDiscoveryService.discover(requests);
+                if(!Iterables.isEmpty(components)) {
+                    return components;
+                }
+            } catch(MetaborgException e) {
+                getLog().debug("Discovery at indexed locations of " + indexedFile + " failed, discovering again", e);
+            }
+        }
+
+        final Iterable<ILanguageComponent> components = SpoofaxInit.spoofax().languageDiscoveryService
+            .discover(SpoofaxInit.spoofax().languageDiscoveryService.request(location));
+        if(!Iterables.isEmpty(components)) {
+            final List<String> discoveredLocations = Lists.newArrayList();
+            for(ILanguageComponent component : components) {
+                discoveredLocations.add(component.location().getName().getURI());
+            }
+            discoveryIndex.put(indexedFile, snapshot, discoveredLocations);
+        }
+        return components;
+    }
+
+    /**
+     * Gets the URL of the contents of an artifact file. Archives are extracted when the extraction cache is enabled,
+     * and read through a file system for archives otherwise, or when extraction fails.
+     */
+    private String artifactUrl(File file) {
+        if(file.isDirectory()) {
+            return "file:" + file.getPath();
+        }
+        if(extractionCache != null) {
+            try {
+                return "file:" + extractionCache.extract(file).getPath();
+            } catch(IOException e) {
+                getLog().warn("Cannot extract " + file + " into " + extractionCache + ", reading it as an archive", e);
+            }
+        }
+        return archiveUrl(file.getPath());
+    }
+
+    /**
+     * Gets the URL of the contents of a language archive. Archives are read with {@link MappedZipFileProvider} when
+     * mapped archives are enabled, and with the default {@code zip} provider otherwise.
+     */
+    private String archiveUrl(String path) {
+        final String scheme = mappedArchives && SpoofaxInit.mappedArchives() ? MappedZipFileProvider.scheme : "zip";
+        return scheme + ":" + path;
+    }
+
     private Iterable<ILanguageComponent> loadComponents(File file) {
         if(file != null && file.exists()) {
-            final String url = (file.isDirectory() ? "file:" : "zip:") + file.getPath();
-            final FileObject location = SpoofaxInit.spoofax().resourceService.resolve(url);
+            final FileObject location = SpoofaxInit.spoofax().resourceService.resolve(artifactUrl(file));
 
             try {
                 if(!location.exists()) {
@@ -332,10 +873,6 @@ public abstract class AbstractSpoofaxMojo extends AbstractMojo {
                     return null;
                 }
 
-                for(ILanguageComponent component : components) {
-                    getLog().info("Loaded " + component);
-                }
-
                 return components;
             } catch(FileSystemException | MetaborgException e) {
                 getLog().error("Unexpected error while discovering languages at " + location, e);
@@ -1,13 +1,25 @@
 package org.metaborg.spoofax.maven.plugin;
 
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.project.ISimpleProjectService;
 import org.metaborg.spoofax.core.Spoofax;
+import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
+import org.metaborg.spoofax.maven.plugin.archive.MappedZipFileProvider;
+import org.metaborg.spoofax.maven.plugin.discovery.DialectJournal;
+import org.metaborg.spoofax.maven.plugin.discovery.DiscoveredArtifacts;
 import org.metaborg.spoofax.meta.core.SpoofaxMeta;
 import org.metaborg.spt.core.SPTModule;
 
 import com.google.inject.Injector;
 
+/**
+ * Holds the Spoofax core services, shared by all mojo executions in this JVM. Initialisation is thread-safe, such that
+ * mojos of different projects can be executed concurrently in parallel reactor builds. All fields are published
+ * before {@link #shouldInit()} returns false.
+ */
 public class SpoofaxInit {
     private static class ShutdownHook extends Thread {
         public void run() {
@@ -16,11 +28,18 @@ public class SpoofaxInit {
         }
     }
 
-    private static Spoofax spoofax;
-    private static SpoofaxMeta spoofaxMeta;
-    private static Injector sptInjector;
+    private static final Object lock = new Object();
 
-    private static ISimpleProjectService projectService;
+    private static volatile Spoofax spoofax;
+    private static volatile SpoofaxMeta spoofaxMeta;
+    private static volatile Injector sptInjector;
+
+    private static volatile ISimpleProjectService projectService;
+    private static volatile DiscoveredArtifacts discoveredArtifacts;
+    private static volatile DialectJournal dialectJournal;
+    private static volatile boolean mappedArchives;
+
+    private static volatile boolean initialized = false;
 
 
     public static Spoofax spoofax() {
@@ -40,20 +59,60 @@ public class SpoofaxInit {
         return projectService;
     }
 
+    public static DiscoveredArtifacts discoveredArtifacts() {
+        return discoveredArtifacts;
+    }
+
+    public static DialectJournal dialectJournal() {
+        return dialectJournal;
+    }
+
+    /**
+     * @return True if archives can be resolved with the {@link MappedZipFileProvider#scheme} scheme.
+     */
+    public static boolean mappedArchives() {
+        return mappedArchives;
+    }
+
 
     public static boolean shouldInit() {
-        return spoofax == null || spoofaxMeta == null;
+        return !initialized;
     }
 
     public static void init() throws MetaborgException {
-        if(shouldInit()) {
+        synchronized(lock) {
+            if(initialized) {
+                return;
+            }
+
             spoofax = new Spoofax(new MavenSpoofaxModule());
             spoofaxMeta = new SpoofaxMeta(spoofax);
             sptInjector = spoofaxMeta.injector.createChildInjector(new SPTModule());
 
             projectService = spoofax.injector.getInstance(ISimpleProjectService.class);
+            discoveredArtifacts = new DiscoveredArtifacts();
+            dialectJournal = new DialectJournal(new SpoofaxIgnoresSelector());
+            mappedArchives = addMappedArchiveProvider(spoofax.injector.getInstance(FileSystemManager.class));
 
             Runtime.getRuntime().addShutdownHook(new ShutdownHook());
+
+            initialized = true;
+        }
+    }
+
+
+    private static boolean addMappedArchiveProvider(FileSystemManager fileSystemManager) throws MetaborgException {
+        if(!(fileSystemManager instanceof DefaultFileSystemManager)) {
+            return false;
+        }
+        final DefaultFileSystemManager defaultFileSystemManager = (DefaultFileSystemManager) fileSystemManager;
+        try {
+            if(!defaultFileSystemManager.hasProvider(MappedZipFileProvider.scheme)) {
+                defaultFileSystemManager.addProvider(MappedZipFileProvider.scheme, new MappedZipFileProvider());
+            }
+        } catch(FileSystemException e) {
+            throw new MetaborgException("Cannot add file provider for mapped archives", e);
         }
+        return true;
     }
 }
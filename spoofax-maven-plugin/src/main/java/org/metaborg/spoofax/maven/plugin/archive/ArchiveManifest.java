@@ -0,0 +1,145 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Names, sizes, and CRC-32 checksums of the files in an archive, or of the files that are expected to be in an
+ * archive. The manifest of an archive is read from its central directory, without reading or decompressing the
+ * contents of its entries.
+ */
+public class ArchiveManifest {
+    public static class Entry {
+        public final long size;
+        public final long crc;
+
+
+        public Entry(long size, long crc) {
+            this.size = size;
+            this.crc = crc;
+        }
+
+
+        @Override public boolean equals(Object obj) {
+            if(!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry other = (Entry) obj;
+            return size == other.size && crc == other.crc;
+        }
+
+        @Override public int hashCode() {
+            return 31 * Long.hashCode(size) + Long.hashCode(crc);
+        }
+    }
+
+
+    private final Map<String, Entry> entries = Maps.newTreeMap();
+
+
+    /**
+     * Reads the manifest of a ZIP archive from its central directory.
+     * 
+     * @param archive
+     *            Archive file.
+     * @return Manifest of the file entries in the archive.
+     */
+    public static ArchiveManifest ofArchive(File archive) throws IOException {
+        final ArchiveManifest manifest = new ArchiveManifest();
+        try(final ZipFile zipFile = new ZipFile(archive)) {
+            final Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+            while(zipEntries.hasMoreElements()) {
+                final ZipEntry zipEntry = zipEntries.nextElement();
+                if(!zipEntry.isDirectory()) {
+                    manifest.put(zipEntry.getName(), new Entry(zipEntry.getSize(), zipEntry.getCrc()));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Creates a manifest of the files in a directory, as they are expected in an archive.
+     * 
+     * @param directory
+     *            Directory to add the files of, including files in subdirectories.
+     * @param prefix
+     *            Path in the archive the directory is expected at, ending with a slash, or empty for the root.
+     * @return Manifest of the files in the directory.
+     */
+    public static ArchiveManifest ofDirectory(File directory, final String prefix) throws IOException {
+        final ArchiveManifest manifest = new ArchiveManifest();
+        final Path root = directory.toPath();
+        if(!directory.isDirectory()) {
+            return manifest;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final String name = prefix + root.relativize(file).toString().replace(File.separatorChar, '/');
+                manifest.put(name, new Entry(attrs.size(), crc(file.toFile())));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return manifest;
+    }
+
+
+    public void put(String name, Entry entry) {
+        entries.put(name, entry);
+    }
+
+    public Map<String, Entry> entries() {
+        return entries;
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Compares this manifest to a manifest of expected entries.
+     * 
+     * @param expected
+     *            Manifest of entries that are expected to be in this manifest.
+     * @return Names of expected entries that are missing from this manifest, or that have a different size or
+     *         checksum. Entries in this manifest that are not expected are ignored.
+     */
+    public List<String> mismatches(ArchiveManifest expected) {
+        final List<String> mismatches = Lists.newArrayList();
+        for(Map.Entry<String, Entry> entry : expected.entries.entrySet()) {
+            if(!entry.getValue().equals(entries.get(entry.getKey()))) {
+                mismatches.add(entry.getKey());
+            }
+        }
+        return mismatches;
+    }
+
+
+    private static long crc(File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        try(final InputStream stream = new FileInputStream(file)) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while((read = stream.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
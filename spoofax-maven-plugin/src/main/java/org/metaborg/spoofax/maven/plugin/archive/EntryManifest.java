@@ -0,0 +1,143 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.Set;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hashing;
+
+/**
+ * Manifest of the entries of an archive written by {@link ZipWriter}: the size, modification time, and content hash
+ * of the file each entry was written from, and the size and modification time of the archive itself. Entries whose
+ * file did not change can be copied from the archive when it is written again, as long as the archive itself did not
+ * change since the manifest was saved. The content hash of a file is only computed when its size or modification
+ * time changed.
+ */
+public class EntryManifest {
+    private static final ILogger logger = LoggerUtils.logger(EntryManifest.class);
+    private static final String archiveKey = "/archive";
+
+    private final File file;
+    private final Properties previous = new Properties();
+    private final Properties current = new Properties();
+
+
+    /**
+     * @param file
+     *            File to store the manifest in.
+     */
+    public EntryManifest(File file) {
+        this.file = file;
+    }
+
+
+    /**
+     * Loads the manifest of given archive from disk. A manifest that does not exist, cannot be read, or was saved for a
+     * different version of the archive is treated as empty, such that all entries are written again.
+     * 
+     * @param archive
+     *            Archive the manifest belongs to.
+     * @return True if a manifest for the current version of the archive was loaded, false otherwise.
+     */
+    public boolean load(File archive) {
+        previous.clear();
+        current.clear();
+        if(!file.exists() || !archive.exists()) {
+            return false;
+        }
+        try(final InputStream stream = new FileInputStream(file)) {
+            previous.load(stream);
+        } catch(IOException e) {
+            logger.warn("Cannot read archive manifest {}, ignoring it", e, file);
+            previous.clear();
+            return false;
+        }
+        if(!stamp(archive).equals(previous.getProperty(archiveKey))) {
+            // The archive was written or restored by something else, its entries cannot be trusted.
+            previous.clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Saves the entries passed to {@link #unchanged(String, File)} as the manifest of given archive, which must have
+     * been written from those entries.
+     * 
+     * @param archive
+     *            Archive the manifest belongs to.
+     */
+    public void save(File archive) {
+        current.setProperty(archiveKey, stamp(archive));
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                current.store(stream, "Spoofax archive manifest");
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            logger.warn("Cannot write archive manifest {}", e, file);
+        }
+    }
+
+    /**
+     * Deletes the manifest, for example when the archive was written without recording its entries.
+     */
+    public void delete() {
+        previous.clear();
+        current.clear();
+        file.delete();
+    }
+
+
+    /**
+     * Records the file an entry is written from, and checks if its contents changed since the archive was written.
+     * 
+     * @param name
+     *            Name of the entry.
+     * @param source
+     *            File the entry is written from.
+     * @return True if the archive has an entry with given name, written from a file with the same contents.
+     */
+    public boolean unchanged(String name, File source) throws IOException {
+        final String stamp = stamp(source);
+        final String previousValue = previous.getProperty(name);
+        if(previousValue != null && previousValue.startsWith(stamp + " ")) {
+            current.setProperty(name, previousValue);
+            return true;
+        }
+        final String hash = com.google.common.io.Files.asByteSource(source).hash(Hashing.sha1()).toString();
+        current.setProperty(name, stamp + " " + hash);
+        return previousValue != null && previousValue.endsWith(" " + hash);
+    }
+
+    /**
+     * Gets the names of entries that are in the archive, but were not passed to {@link #unchanged(String, File)}. Must
+     * be called after all entries were passed to {@link #unchanged(String, File)}.
+     * 
+     * @return Names of removed entries.
+     */
+    public Set<String> removed() {
+        final Set<String> removed = Sets.newHashSet(previous.stringPropertyNames());
+        removed.remove(archiveKey);
+        removed.removeAll(current.stringPropertyNames());
+        return removed;
+    }
+
+
+    private static String stamp(File file) {
+        return file.length() + ":" + file.lastModified();
+    }
+}
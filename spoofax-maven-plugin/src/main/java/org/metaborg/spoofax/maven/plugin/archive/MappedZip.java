@@ -0,0 +1,424 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Read-only view of a ZIP archive that streams entries from the archive file instead of reading them into the heap.
+ * Opening an archive only reads its central directory. The central directory is indexed on the first lookup, where the
+ * index only holds the names of entries and the positions of their records in the central directory; all other entry
+ * data is read from the central directory when needed. Entry streams read directly from the archive file, without
+ * copying entries to the heap first. Directories that have no entry of their own are derived from the names of the
+ * entries in them.
+ * 
+ * The archive is read with positional reads on a file channel, and is not memory-mapped: a mapping stays valid until
+ * it is garbage collected, which may be never in a long-lived JVM, such that rewriting or truncating the archive in
+ * place crashes the JVM when a mapped page is accessed, and on Windows a mapped file cannot be overwritten. Channels
+ * are only open while an entry stream is open, and do not prevent the archive from being replaced. An archive that
+ * changed since it was opened is reported by {@link #isStale()}, and reading its entries fails instead of returning
+ * wrong contents when its size changed. ZIP64 archives are not supported.
+ */
+public class MappedZip implements Closeable {
+    private static final int endSignature = 0x06054b50;
+    private static final int centralSignature = 0x02014b50;
+    private static final int localSignature = 0x04034b50;
+    private static final int endSize = 22;
+    private static final int localSize = 30;
+    private static final int maxCommentSize = 0xFFFF;
+    private static final int stored = 0;
+    private static final int deflated = 8;
+
+    private final File file;
+    private final long length;
+    private final long lastModified;
+    private final ByteBuffer directory;
+    private final long directoryOffset;
+    private final int count;
+
+    private volatile @Nullable Index index;
+    private volatile boolean closed;
+
+
+    /**
+     * Opens given archive and reads its central directory.
+     * 
+     * @param file
+     *            Archive to open.
+     * @throws IOException
+     *             When the archive cannot be read, is not a ZIP archive, or is not supported.
+     */
+    public MappedZip(File file) throws IOException {
+        this.file = file;
+        // Get the modification time before reading, such that a change during reading makes the archive stale.
+        this.lastModified = file.lastModified();
+        try(final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            this.length = channel.size();
+            // The end of central directory record is followed by a comment of at most 64 KiB.
+            final int tailSize = (int) Math.min(length, endSize + maxCommentSize);
+            final long tailOffset = length - tailSize;
+            final ByteBuffer tail = read(channel, tailOffset, tailSize);
+            final int end = findEnd(tail);
+            if(end < 0) {
+                throw new IOException("Archive " + file + " is not a ZIP archive");
+            }
+            final int entries = tail.getShort(end + 10) & 0xFFFF;
+            final long offset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+            final long size = tail.getInt(end + 12) & 0xFFFFFFFFL;
+            if(entries == 0xFFFF || offset == 0xFFFFFFFFL || offset + size > tailOffset + end) {
+                throw new IOException("Archive " + file + " is a ZIP64 archive or has an invalid central directory");
+            }
+            this.count = entries;
+            this.directoryOffset = offset;
+            this.directory = read(channel, offset, (int) size);
+        }
+    }
+
+
+    /**
+     * @return Archive file that is read.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * @return Number of entries in the central directory of the archive.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return True if the archive file was changed or removed since it was opened, according to its size and
+     *         modification time.
+     */
+    public boolean isStale() {
+        return file.length() != length || file.lastModified() != lastModified;
+    }
+
+
+    /**
+     * @param path
+     *            Path in the archive, without leading slash.
+     * @return True if the archive has a file entry at given path.
+     */
+    public boolean isFile(String path) throws IOException {
+        return index().entries.containsKey(path);
+    }
+
+    /**
+     * @param path
+     *            Path in the archive, without leading or trailing slash. The root of the archive is the empty path.
+     * @return True if the archive has a directory at given path.
+     */
+    public boolean isDirectory(String path) throws IOException {
+        return index().children.containsKey(path);
+    }
+
+    /**
+     * @param path
+     *            Path of a directory in the archive, without leading or trailing slash.
+     * @return Names of the files and directories in given directory, or an empty list if it is not a directory.
+     */
+    public List<String> children(String path) throws IOException {
+        final List<String> children = index().children.get(path);
+        return children != null ? Collections.unmodifiableList(children) : Collections.<String>emptyList();
+    }
+
+    /**
+     * @param path
+     *            Path of a file in the archive.
+     * @return Uncompressed size of the file.
+     */
+    public long size(String path) throws IOException {
+        return directory.getInt(record(path) + 24) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param path
+     *            Path of a file in the archive.
+     * @return Modification time of the file, in milliseconds since the epoch, interpreted in the default time zone.
+     */
+    public long lastModified(String path) throws IOException {
+        final int record = record(path);
+        final int time = directory.getShort(record + 12) & 0xFFFF;
+        final int date = directory.getShort(record + 14) & 0xFFFF;
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(1980 + (date >> 9), ((date >> 5) & 0xF) - 1, date & 0x1F, time >> 11, (time >> 5) & 0x3F,
+            (time & 0x1F) * 2);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Opens a stream of the uncompressed contents of a file, which reads directly from the archive file. The stream
+     * holds its own channel to the archive, which is closed when the stream is closed.
+     * 
+     * @param path
+     *            Path of a file in the archive.
+     * @return Stream of the contents of the file.
+     */
+    public InputStream open(String path) throws IOException {
+        final int record = record(path);
+        final int method = directory.getShort(record + 10) & 0xFFFF;
+        final long compressedSize = directory.getInt(record + 20) & 0xFFFFFFFFL;
+        final long local = directory.getInt(record + 42) & 0xFFFFFFFFL;
+        if(method != stored && method != deflated) {
+            throw new IOException(
+                "Entry " + path + " of archive " + file + " uses unsupported compression method " + method);
+        }
+        if(local + localSize > directoryOffset) {
+            throw new IOException("Entry " + path + " of archive " + file + " has an invalid local header");
+        }
+
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if(channel.size() != length) {
+                throw new IOException("Archive " + file + " changed since it was opened");
+            }
+            final ByteBuffer header = read(channel, local, localSize);
+            if(header.getInt(0) != localSignature) {
+                throw new IOException("Entry " + path + " of archive " + file + " has an invalid local header");
+            }
+            final long data = local + localSize + (header.getShort(26) & 0xFFFF) + (header.getShort(28) & 0xFFFF);
+            if(data + compressedSize > directoryOffset) {
+                throw new IOException("Entry " + path + " of archive " + file + " exceeds the archive");
+            }
+            final InputStream stream = new ChannelInputStream(channel, file, data, data + compressedSize);
+            if(method == stored) {
+                return new BufferedInputStream(stream, 8 * 1024);
+            }
+            return new RawInflaterInputStream(stream);
+        } catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Closes the archive, after which it cannot be read any more and its index and central directory are released.
+     * Streams that are open keep reading from the archive file until they are closed.
+     */
+    @Override public void close() {
+        closed = true;
+        index = null;
+    }
+
+
+    private int record(String path) throws IOException {
+        final Integer record = index().entries.get(path);
+        if(record == null) {
+            throw new IOException("Archive " + file + " has no file " + path);
+        }
+        return record;
+    }
+
+    private Index index() throws IOException {
+        if(closed) {
+            throw new IOException("Archive " + file + " is closed");
+        }
+        Index index = this.index;
+        if(index == null) {
+            synchronized(this) {
+                index = this.index;
+                if(index == null) {
+                    index = new Index();
+                    this.index = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private ByteBuffer read(FileChannel channel, long position, int size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Archive " + file + " was truncated while it was read");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int findEnd(ByteBuffer tail) {
+        final int last = tail.capacity() - endSize;
+        final int first = Math.max(0, last - maxCommentSize);
+        for(int position = last; position >= first; --position) {
+            if(tail.getInt(position) == endSignature
+                && position + endSize + (tail.getShort(position + 20) & 0xFFFF) == tail.capacity()) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Index of the central directory: the position of the record of each file entry, and the children of each
+     * directory.
+     */
+    private class Index {
+        private final Map<String, Integer> entries = Maps.newHashMapWithExpectedSize(count);
+        private final Map<String, List<String>> children = Maps.newHashMap();
+
+
+        public Index() throws IOException {
+            children.put("", Lists.<String>newArrayList());
+            int position = 0;
+            final int end = directory.capacity();
+            for(int i = 0; i < count; ++i) {
+                if(position + 46 > end || directory.getInt(position) != centralSignature) {
+                    throw new IOException("Archive " + file + " has an invalid central directory");
+                }
+                final int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                final int extraLength = directory.getShort(position + 30) & 0xFFFF;
+                final int commentLength = directory.getShort(position + 32) & 0xFFFF;
+                if(position + 46 + nameLength > end) {
+                    throw new IOException("Archive " + file + " has an invalid central directory");
+                }
+                final byte[] nameBytes = new byte[nameLength];
+                final ByteBuffer name = directory.duplicate();
+                name.position(position + 46);
+                name.get(nameBytes);
+
+                String path = new String(nameBytes, StandardCharsets.UTF_8);
+                while(path.startsWith("/")) {
+                    path = path.substring(1);
+                }
+                if(path.endsWith("/")) {
+                    addDirectory(path.substring(0, path.length() - 1));
+                } else if(!path.isEmpty()) {
+                    if(entries.put(path, position) == null) {
+                        addChild(path);
+                    }
+                }
+                position += 46 + nameLength + extraLength + commentLength;
+            }
+        }
+
+
+        private void addDirectory(String path) {
+            if(!path.isEmpty() && !children.containsKey(path)) {
+                children.put(path, Lists.<String>newArrayList());
+                addChild(path);
+            }
+        }
+
+        private void addChild(String path) {
+            final int separator = path.lastIndexOf('/');
+            final String parent = separator < 0 ? "" : path.substring(0, separator);
+            addDirectory(parent);
+            children.get(parent).add(path.substring(separator + 1));
+        }
+    }
+
+
+    /**
+     * Stream of a range of the archive file, read with positional reads from a channel that the stream closes.
+     */
+    private static class ChannelInputStream extends InputStream {
+        private final FileChannel channel;
+        private final File file;
+        private final long end;
+        private long position;
+
+
+        public ChannelInputStream(FileChannel channel, File file, long position, long end) {
+            this.channel = channel;
+            this.file = file;
+            this.position = position;
+            this.end = end;
+        }
+
+
+        @Override public int read() throws IOException {
+            final byte[] bytes = new byte[1];
+            return read(bytes, 0, 1) < 0 ? -1 : bytes[0] & 0xFF;
+        }
+
+        @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+            if(length == 0) {
+                return 0;
+            }
+            if(position >= end) {
+                return -1;
+            }
+            final int size = (int) Math.min(length, end - position);
+            final int read = channel.read(ByteBuffer.wrap(bytes, offset, size), position);
+            if(read < 0) {
+                throw new EOFException("Archive " + file + " was truncated while it was read");
+            }
+            position += read;
+            return read;
+        }
+
+        @Override public long skip(long n) {
+            final long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+
+        @Override public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static class RawInflaterInputStream extends InflaterInputStream {
+        private boolean dummyByte = false;
+        private boolean closed = false;
+
+
+        public RawInflaterInputStream(InputStream input) {
+            super(input, new Inflater(true), 8 * 1024);
+        }
+
+
+        @Override protected void fill() throws IOException {
+            len = in.read(buf, 0, buf.length);
+            if(len == -1) {
+                // Raw inflation may need an extra byte after the compressed data, as in java.util.zip.ZipFile.
+                if(dummyByte) {
+                    throw new EOFException("Unexpected end of compressed entry");
+                }
+                dummyByte = true;
+                buf[0] = 0;
+                len = 1;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override public void close() throws IOException {
+            if(!closed) {
+                closed = true;
+                inf.end();
+                super.close();
+            }
+        }
+    }
+}
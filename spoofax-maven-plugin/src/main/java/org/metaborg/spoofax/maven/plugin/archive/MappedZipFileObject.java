@@ -0,0 +1,57 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.provider.AbstractFileName;
+import org.apache.commons.vfs2.provider.AbstractFileObject;
+import org.apache.commons.vfs2.provider.UriParser;
+
+/**
+ * File or directory in a ZIP archive that is read with {@link MappedZip}.
+ */
+class MappedZipFileObject extends AbstractFileObject<MappedZipFileSystem> {
+    private final String path;
+
+
+    public MappedZipFileObject(AbstractFileName name, MappedZipFileSystem fileSystem) throws FileSystemException {
+        super(name, fileSystem);
+        final String decodedPath = name.getPathDecoded();
+        this.path = decodedPath.startsWith("/") ? decodedPath.substring(1) : decodedPath;
+    }
+
+
+    @Override protected FileType doGetType() throws Exception {
+        final MappedZip zip = getAbstractFileSystem().zip();
+        if(zip.isFile(path)) {
+            return FileType.FILE;
+        }
+        if(zip.isDirectory(path)) {
+            return FileType.FOLDER;
+        }
+        return FileType.IMAGINARY;
+    }
+
+    @Override protected String[] doListChildren() throws Exception {
+        final List<String> children = getAbstractFileSystem().zip().children(path);
+        final String[] names = new String[children.size()];
+        for(int i = 0; i < names.length; ++i) {
+            names[i] = UriParser.encode(children.get(i));
+        }
+        return names;
+    }
+
+    @Override protected long doGetContentSize() throws Exception {
+        return getAbstractFileSystem().zip().size(path);
+    }
+
+    @Override protected long doGetLastModifiedTime() throws Exception {
+        return getAbstractFileSystem().zip().lastModified(path);
+    }
+
+    @Override protected InputStream doGetInputStream() throws Exception {
+        return getAbstractFileSystem().zip().open(path);
+    }
+}
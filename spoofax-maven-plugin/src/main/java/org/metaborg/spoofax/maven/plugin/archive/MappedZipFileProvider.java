@@ -0,0 +1,59 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystem;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.provider.AbstractFileName;
+import org.apache.commons.vfs2.provider.AbstractLayeredFileProvider;
+import org.apache.commons.vfs2.provider.LayeredFileName;
+
+/**
+ * File provider for ZIP archives, such as language artifacts, that reads archives with {@link MappedZip} instead of
+ * {@link java.util.zip.ZipFile}. Unlike the {@code zip} provider, which creates and caches a file object for every
+ * entry when an archive is opened, file objects are only created for entries that are resolved. URLs have the same
+ * form as {@code zip} URLs, with the {@link #scheme} scheme, for example {@code mapped-zip:/path/to/archive!/entry}.
+ */
+public class MappedZipFileProvider extends AbstractLayeredFileProvider {
+    public static final String scheme = "mapped-zip";
+
+    static final Collection<Capability> capabilities = Collections.unmodifiableCollection(EnumSet.of(
+        Capability.GET_LAST_MODIFIED, Capability.GET_TYPE, Capability.LIST_CHILDREN, Capability.READ_CONTENT,
+        Capability.URI, Capability.COMPRESS, Capability.VIRTUAL));
+
+
+    /**
+     * Creates or gets the cached file system of given archive. When the archive changed since the cached file system
+     * opened it, for example because a snapshot dependency was rebuilt while the JVM was reused, the cached file system
+     * and its file objects are dropped, and the archive is opened again.
+     */
+    @Override public synchronized FileObject createFileSystem(String scheme, FileObject file,
+        FileSystemOptions options) throws FileSystemException {
+        final FileObject root = super.createFileSystem(scheme, file, options);
+        final MappedZipFileSystem fileSystem = (MappedZipFileSystem) root.getFileSystem();
+        if(!fileSystem.isStale()) {
+            return root;
+        }
+        getContext().getFileSystemManager().getFilesCache().clear(fileSystem);
+        closeFileSystem(fileSystem);
+        return super.createFileSystem(scheme, file, options);
+    }
+
+    @Override protected FileSystem doCreateFileSystem(String scheme, FileObject file, FileSystemOptions options)
+        throws FileSystemException {
+        final AbstractFileName rootName =
+            new LayeredFileName(scheme, file.getName(), FileName.ROOT_PATH, FileType.FOLDER);
+        return new MappedZipFileSystem(rootName, file, options);
+    }
+
+    @Override public Collection<Capability> getCapabilities() {
+        return capabilities;
+    }
+}
@@ -0,0 +1,83 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.Capability;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemOptions;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.provider.AbstractFileName;
+import org.apache.commons.vfs2.provider.AbstractFileSystem;
+
+/**
+ * File system of a ZIP archive that is read with {@link MappedZip}. The archive is closed when the file system is
+ * closed, and opened again when file objects of the closed file system are used.
+ */
+class MappedZipFileSystem extends AbstractFileSystem {
+    private volatile File file;
+    private volatile @Nullable MappedZip zip;
+
+
+    public MappedZipFileSystem(AbstractFileName rootName, FileObject parentLayer, FileSystemOptions options) {
+        super(rootName, parentLayer, options);
+    }
+
+
+    @Override public void init() throws FileSystemException {
+        super.init();
+        // Archives on the local file system are read in place, other archives are copied to a local file first.
+        file = getParentLayer().getFileSystem().replicateFile(getParentLayer(), Selectors.SELECT_SELF);
+        // Open the archive immediately, such that invalid archives fail when they are resolved.
+        zip();
+    }
+
+    public MappedZip zip() throws FileSystemException {
+        MappedZip zip = this.zip;
+        if(zip == null) {
+            synchronized(this) {
+                zip = this.zip;
+                if(zip == null) {
+                    try {
+                        zip = new MappedZip(file);
+                    } catch(IOException e) {
+                        throw new FileSystemException("Cannot open archive " + file, e);
+                    }
+                    this.zip = zip;
+                }
+            }
+        }
+        return zip;
+    }
+
+    /**
+     * @return True if the archive was changed since it was opened.
+     */
+    public boolean isStale() {
+        final MappedZip zip = this.zip;
+        return zip != null && zip.isStale();
+    }
+
+    @Override public void close() {
+        super.close();
+        synchronized(this) {
+            if(zip != null) {
+                zip.close();
+                zip = null;
+            }
+        }
+    }
+
+
+    @Override protected FileObject createFile(AbstractFileName name) throws FileSystemException {
+        return new MappedZipFileObject(name, this);
+    }
+
+    @Override protected void addCapabilities(Collection<Capability> caps) {
+        caps.addAll(MappedZipFileProvider.capabilities);
+    }
+}
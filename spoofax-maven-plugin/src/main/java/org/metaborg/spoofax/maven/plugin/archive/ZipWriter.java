@@ -0,0 +1,494 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Writes reproducible ZIP archives, compressing entries in parallel. Entries are compressed independently, on a
+ * bounded number of threads, and written to the archive in order of their names as soon as they are compressed, such
+ * that only a bounded number of compressed entries is held in memory. Large entries are compressed into temporary
+ * files instead of memory. Files that are already compressed, such as nested JAR files, are stored without
+ * compressing them again, and are streamed from disk when they are written.
+ * 
+ * The archive only depends on the names and contents of its entries: entries are sorted by name, all entries have the
+ * same timestamp, and no extra fields or file attributes are written. Therefore, entries of which the contents did not
+ * change can be copied from a previous archive without compressing them again, see {@link #reuse(File, Set)}. Archives
+ * larger than 4 GB or with more than 65535 entries (ZIP64) are not supported.
+ */
+public class ZipWriter {
+    private static final Set<String> compressedExtensions =
+        ImmutableSet.of("jar", "zip", "gz", "tgz", "xz", "bz2", "7z", "png", "jpg", "jpeg", "gif", "spoofax-language");
+    /** Entries of which the uncompressed size exceeds this size are compressed into temporary files. */
+    private static final long memoryThreshold = 8 * 1024 * 1024;
+    /** 1980-01-01 00:00:00, the earliest time that can be represented in a ZIP archive. */
+    private static final int dosTime = 0;
+    private static final int dosDate = (1 << 5) | 1;
+    private static final int version = 20;
+    private static final int utf8Flag = 1 << 11;
+    private static final int stored = 0;
+    private static final int deflated = 8;
+
+    private final SortedMap<String, File> entries = Maps.newTreeMap();
+    private final Map<String, CompressedEntry> reused = Maps.newHashMap();
+    private final int threads;
+
+
+    /**
+     * @param threads
+     *            Number of threads to compress entries with.
+     */
+    public ZipWriter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+
+    /**
+     * Adds a file to the archive, replacing an earlier file with the same name.
+     * 
+     * @param name
+     *            Name of the entry, relative path with forward slashes.
+     * @param file
+     *            File to add.
+     */
+    public ZipWriter add(String name, File file) {
+        entries.put(name, file);
+        return this;
+    }
+
+    /**
+     * @return Entries added to the archive, by name.
+     */
+    public SortedMap<String, File> entries() {
+        return entries;
+    }
+
+
+    /**
+     * Copies entries from a previous archive that was written by this writer, instead of compressing them again. Must
+     * only be used for entries of which the contents did not change since the previous archive was written.
+     * 
+     * @param previous
+     *            Previous archive. Must not be changed until the new archive is written.
+     * @param names
+     *            Names of entries of which the contents did not change.
+     * @return Number of entries that will be copied from the previous archive.
+     * @throws IOException
+     *             When the previous archive cannot be read, or was not written by this writer.
+     */
+    public int reuse(File previous, Set<String> names) throws IOException {
+        reused.clear();
+        try(final RandomAccessFile file = new RandomAccessFile(previous, "r")) {
+            // Archives written by this writer have no comment, so the end of central directory record is at the end.
+            final ByteBuffer end = read(file, file.length() - 22, 22);
+            if(end.getInt(0) != 0x06054b50) {
+                throw new IOException("Archive " + previous + " was not written by " + ZipWriter.class.getSimpleName());
+            }
+            final int count = end.getShort(10) & 0xFFFF;
+            final ByteBuffer directory = read(file, end.getInt(16) & 0xFFFFFFFFL, end.getInt(12) & 0xFFFFFFFFL);
+            for(int i = 0; i < count; ++i) {
+                if(directory.getInt() != 0x02014b50) {
+                    throw new IOException("Archive " + previous + " has an invalid central directory");
+                }
+                directory.position(directory.position() + 6);
+                final int method = directory.getShort() & 0xFFFF;
+                directory.position(directory.position() + 4);
+                final long crc = directory.getInt() & 0xFFFFFFFFL;
+                final long compressedSize = directory.getInt() & 0xFFFFFFFFL;
+                final long size = directory.getInt() & 0xFFFFFFFFL;
+                final int nameLength = directory.getShort() & 0xFFFF;
+                final int extraLength = directory.getShort() & 0xFFFF;
+                final int commentLength = directory.getShort() & 0xFFFF;
+                directory.position(directory.position() + 8);
+                final long offset = directory.getInt() & 0xFFFFFFFFL;
+                final byte[] nameBytes = new byte[nameLength];
+                directory.get(nameBytes);
+                directory.position(directory.position() + extraLength + commentLength);
+
+                final String name = new String(nameBytes, StandardCharsets.UTF_8);
+                if(names.contains(name) && entries.containsKey(name)) {
+                    final ByteBuffer local = read(file, offset, 30);
+                    final long dataOffset = offset + 30 + (local.getShort(26) & 0xFFFF) + (local.getShort(28) & 0xFFFF);
+                    reused.put(name, new CompressedEntry(name, method, crc, size, compressedSize, null, previous,
+                        dataOffset, false));
+                }
+            }
+        } catch(IOException | RuntimeException e) {
+            reused.clear();
+            throw e instanceof IOException ? (IOException) e
+                : new IOException("Archive " + previous + " has an invalid central directory", e);
+        }
+        return reused.size();
+    }
+
+    /**
+     * Stops copying entries from the previous archive, such that all entries are compressed again.
+     */
+    public void clearReused() {
+        reused.clear();
+    }
+
+
+    /**
+     * Writes the archive to given file. The archive is written to a temporary file first, and moved to given file when
+     * it is complete, such that an incomplete archive is never observed.
+     * 
+     * @param archive
+     *            File to write the archive to.
+     */
+    public void write(File archive) throws IOException {
+        final File tempFile = new File(archive.getPath() + ".tmp");
+        archive.getAbsoluteFile().getParentFile().mkdirs();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("spoofax-archive-%d").setDaemon(true).build());
+        final Deque<Future<CompressedEntry>> pending = new ArrayDeque<>();
+        // Entries that were compressed but not written yet, including entries of which the future was cancelled.
+        final Set<CompressedEntry> unwritten = Sets.newConcurrentHashSet();
+        try(final CountingOutputStream output =
+            new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024))) {
+            final List<CentralEntry> centralEntries = Lists.newArrayList();
+            for(final Map.Entry<String, File> entry : entries.entrySet()) {
+                // Bounds the number of compressed entries that are waiting to be written.
+                if(pending.size() >= threads * 2) {
+                    centralEntries.add(writeEntry(output, next(pending, unwritten)));
+                }
+                final CompressedEntry reusedEntry = reused.get(entry.getKey());
+                if(reusedEntry != null) {
+                    pending.add(Futures.immediateFuture(reusedEntry));
+                    continue;
+                }
+                pending.add(executor.submit(new Callable<CompressedEntry>() {
+                    @Override public CompressedEntry call() throws Exception {
+                        final CompressedEntry compressed = compress(entry.getKey(), entry.getValue());
+                        unwritten.add(compressed);
+                        return compressed;
+                    }
+                }));
+            }
+            while(!pending.isEmpty()) {
+                centralEntries.add(writeEntry(output, next(pending, unwritten)));
+            }
+            writeCentralDirectory(output, centralEntries);
+        } catch(IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        } finally {
+            // Entries that were not compressed yet are not needed any more when writing failed. Cancelled entries never
+            // complete, so only entries of which the future completed normally are cleaned up from the futures.
+            for(Future<CompressedEntry> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            awaitTermination(executor);
+            for(Future<CompressedEntry> future : pending) {
+                if(future.isDone() && !future.isCancelled()) {
+                    try {
+                        future.get().close();
+                    } catch(InterruptedException | ExecutionException | CancellationException e) {
+                        // Entry was not compressed, nothing to clean up.
+                    }
+                }
+            }
+            // Entries that were compressed while their future was being cancelled.
+            for(CompressedEntry entry : unwritten) {
+                entry.close();
+            }
+        }
+        Files.move(tempFile.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+
+    private static CompressedEntry compress(String name, File file) throws IOException {
+        final CRC32 crc = new CRC32();
+        if(isCompressed(name)) {
+            final long size;
+            try(final InputStream input = new FileInputStream(file)) {
+                size = update(crc, input, ByteStreams.nullOutputStream());
+            }
+            return new CompressedEntry(name, stored, crc.getValue(), size, size, null, file, 0, false);
+        }
+
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final boolean inMemory = file.length() <= memoryThreshold;
+        final ByteArrayOutputStream bytes =
+            inMemory ? new ByteArrayOutputStream((int) (file.length() / 2) + 64) : null;
+        final File tempFile = inMemory ? null : File.createTempFile("spoofax-archive", ".deflate");
+        try {
+            final CountingOutputStream compressed = new CountingOutputStream(
+                inMemory ? bytes : new BufferedOutputStream(new FileOutputStream(tempFile), 64 * 1024));
+            final long size;
+            try(final InputStream input = new FileInputStream(file);
+                final DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(compressed, deflater, 64 * 1024)) {
+                size = update(crc, input, deflaterOutput);
+            }
+            return new CompressedEntry(name, deflated, crc.getValue(), size, compressed.getCount(),
+                inMemory ? bytes.toByteArray() : null, tempFile, 0, tempFile != null);
+        } catch(IOException | RuntimeException e) {
+            if(tempFile != null) {
+                tempFile.delete();
+            }
+            throw e;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static long update(CRC32 crc, InputStream input, OutputStream output) throws IOException {
+        final byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        int read;
+        while((read = input.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+            output.write(buffer, 0, read);
+            size += read;
+        }
+        return size;
+    }
+
+    private static boolean isCompressed(String name) {
+        final int dot = name.lastIndexOf('.');
+        return dot >= 0 && compressedExtensions.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+
+    private static CentralEntry writeEntry(CountingOutputStream output, CompressedEntry entry) throws IOException {
+        try {
+            final long offset = output.getCount();
+            checkLimit(entry.size, "entry size");
+            checkLimit(offset + entry.compressedSize, "archive size");
+            final byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+            writeInt(output, 0x04034b50);
+            writeShort(output, version);
+            writeShort(output, utf8Flag);
+            writeShort(output, entry.method);
+            writeShort(output, dosTime);
+            writeShort(output, dosDate);
+            writeInt(output, entry.crc);
+            writeInt(output, entry.compressedSize);
+            writeInt(output, entry.size);
+            writeShort(output, name.length);
+            writeShort(output, 0);
+            output.write(name);
+            if(entry.data != null) {
+                output.write(entry.data);
+            } else {
+                // The file may have changed after it was compressed, only write the number of bytes that were checked.
+                // Stored entries are read from the original file or the previous archive, check them against their
+                // CRC, such that an archive never has an entry of which the data does not match its header.
+                try(final InputStream input = new FileInputStream(entry.file)) {
+                    ByteStreams.skipFully(input, entry.offset);
+                    final CheckedInputStream checked =
+                        new CheckedInputStream(ByteStreams.limit(input, entry.compressedSize), new CRC32());
+                    final long copied = ByteStreams.copy(checked, output);
+                    if(copied != entry.compressedSize
+                        || (entry.method == stored && checked.getChecksum().getValue() != entry.crc)) {
+                        throw new IOException("File " + entry.file + " changed while it was being archived");
+                    }
+                }
+            }
+            return new CentralEntry(entry, name, offset);
+        } finally {
+            entry.close();
+        }
+    }
+
+    private static void writeCentralDirectory(CountingOutputStream output, List<CentralEntry> entries)
+        throws IOException {
+        checkLimit(entries.size(), "number of entries", 0xFFFF);
+        final long offset = output.getCount();
+        for(CentralEntry entry : entries) {
+            writeInt(output, 0x02014b50);
+            writeShort(output, version);
+            writeShort(output, version);
+            writeShort(output, utf8Flag);
+            writeShort(output, entry.method);
+            writeShort(output, dosTime);
+            writeShort(output, dosDate);
+            writeInt(output, entry.crc);
+            writeInt(output, entry.compressedSize);
+            writeInt(output, entry.size);
+            writeShort(output, entry.name.length);
+            writeShort(output, 0); // Extra field length
+            writeShort(output, 0); // Comment length
+            writeShort(output, 0); // Disk number
+            writeShort(output, 0); // Internal attributes
+            writeInt(output, 0); // External attributes
+            writeInt(output, entry.offset);
+            output.write(entry.name);
+        }
+        final long size = output.getCount() - offset;
+        checkLimit(offset + size, "archive size");
+        writeInt(output, 0x06054b50);
+        writeShort(output, 0); // Disk number
+        writeShort(output, 0); // Disk with central directory
+        writeShort(output, entries.size());
+        writeShort(output, entries.size());
+        writeInt(output, size);
+        writeInt(output, offset);
+        writeShort(output, 0); // Comment length
+    }
+
+    private static void checkLimit(long value, String what) throws IOException {
+        checkLimit(value, what, 0xFFFFFFFFL);
+    }
+
+    private static void checkLimit(long value, String what, long limit) throws IOException {
+        if(value > limit) {
+            throw new IOException("Cannot write archive, " + what + " exceeds " + limit + " (ZIP64 is not supported)");
+        }
+    }
+
+    private static void writeShort(OutputStream output, int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream output, long value) throws IOException {
+        writeShort(output, (int) (value & 0xFFFF));
+        writeShort(output, (int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private static CompressedEntry next(Deque<Future<CompressedEntry>> pending, Set<CompressedEntry> unwritten)
+        throws IOException {
+        final CompressedEntry entry = get(pending.poll());
+        unwritten.remove(entry);
+        return entry;
+    }
+
+    private static CompressedEntry get(Future<CompressedEntry> future) throws IOException {
+        try {
+            return future.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing archive", e);
+        } catch(ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if(cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Cannot compress archive entry", cause);
+        }
+    }
+
+    /**
+     * Waits until compressions that were running when the executor was shut down have finished, such that their
+     * temporary files can be deleted.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while(!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Compressions are not interruptible, wait until the current ones are finished.
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    private static ByteBuffer read(RandomAccessFile file, long position, long length) throws IOException {
+        if(position < 0 || length > Integer.MAX_VALUE || position + length > file.length()) {
+            throw new IOException("Unexpected end of archive");
+        }
+        final byte[] bytes = new byte[(int) length];
+        file.seek(position);
+        file.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /**
+     * Compressed entry that is ready to be written: its data is in memory, or at an offset in a file.
+     */
+    private static class CompressedEntry {
+        public final String name;
+        public final int method;
+        public final long crc;
+        public final long size;
+        public final long compressedSize;
+        public final byte[] data;
+        public final File file;
+        public final long offset;
+        private final boolean deleteFile;
+
+
+        public CompressedEntry(String name, int method, long crc, long size, long compressedSize, byte[] data,
+            File file, long offset, boolean deleteFile) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+            this.data = data;
+            this.file = file;
+            this.offset = offset;
+            this.deleteFile = deleteFile;
+        }
+
+
+        public void close() {
+            if(deleteFile) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Entry in the central directory of the archive.
+     */
+    private static class CentralEntry {
+        public final byte[] name;
+        public final int method;
+        public final long crc;
+        public final long size;
+        public final long compressedSize;
+        public final long offset;
+
+
+        public CentralEntry(CompressedEntry entry, byte[] name, long offset) {
+            this.name = name;
+            this.method = entry.method;
+            this.crc = entry.crc;
+            this.size = entry.size;
+            this.compressedSize = entry.compressedSize;
+            this.offset = offset;
+        }
+    }
+}
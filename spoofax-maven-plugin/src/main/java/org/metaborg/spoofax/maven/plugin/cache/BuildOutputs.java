@@ -0,0 +1,137 @@
+package org.metaborg.spoofax.maven.plugin.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Named set of output files and directories of a build step, that can be packed into and unpacked from a build cache
+ * entry. Entries are zip files where each output is stored under its name, such that they do not depend on the
+ * location of the project.
+ */
+public class BuildOutputs {
+    private final SortedMap<String, File> outputs = Maps.newTreeMap();
+
+
+    /**
+     * Adds an output file or directory.
+     * 
+     * @param name
+     *            Name of the output, stable across builds.
+     * @param file
+     *            Output file or directory.
+     */
+    public BuildOutputs add(String name, File file) {
+        outputs.put(name, file);
+        return this;
+    }
+
+
+    /**
+     * @return Names of outputs that do not exist, in sorted order.
+     */
+    public List<String> missing() {
+        final List<String> missing = Lists.newArrayList();
+        for(Entry<String, File> output : outputs.entrySet()) {
+            if(!output.getValue().exists()) {
+                missing.add(output.getKey());
+            }
+        }
+        return missing;
+    }
+
+
+    /**
+     * Packs all existing outputs into given entry file.
+     */
+    public void pack(File entry) throws IOException {
+        try(final ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(entry))) {
+            for(Entry<String, File> output : outputs.entrySet()) {
+                pack(stream, output.getKey(), output.getValue());
+            }
+        }
+    }
+
+    /**
+     * Replaces all outputs with the outputs stored in given entry file.
+     */
+    public void unpack(File entry) throws IOException {
+        for(File file : outputs.values()) {
+            FileUtils.deleteQuietly(file);
+        }
+        try(final ZipInputStream stream = new ZipInputStream(new FileInputStream(entry))) {
+            ZipEntry zipEntry;
+            while((zipEntry = stream.getNextEntry()) != null) {
+                final File file = resolve(zipEntry.getName());
+                if(zipEntry.isDirectory()) {
+                    file.mkdirs();
+                } else {
+                    file.getParentFile().mkdirs();
+                    try(final OutputStream output = new FileOutputStream(file)) {
+                        ByteStreams.copy(stream, output);
+                    }
+                }
+            }
+        }
+    }
+
+
+    private static void pack(ZipOutputStream stream, String name, File file) throws IOException {
+        if(!file.exists()) {
+            return;
+        }
+        if(file.isDirectory()) {
+            stream.putNextEntry(new ZipEntry(name + "/"));
+            stream.closeEntry();
+            final File[] children = file.listFiles();
+            if(children == null) {
+                return;
+            }
+            Arrays.sort(children);
+            for(File child : children) {
+                pack(stream, name + "/" + child.getName(), child);
+            }
+        } else {
+            stream.putNextEntry(new ZipEntry(name));
+            try(final InputStream input = new FileInputStream(file)) {
+                ByteStreams.copy(input, stream);
+            }
+            stream.closeEntry();
+        }
+    }
+
+    private File resolve(String entryName) throws IOException {
+        for(Entry<String, File> output : outputs.entrySet()) {
+            final String name = output.getKey();
+            final File root = output.getValue();
+            if(entryName.equals(name) || entryName.equals(name + "/")) {
+                return root;
+            }
+            if(entryName.startsWith(name + "/")) {
+                final File file = new File(root, entryName.substring(name.length() + 1));
+                if(!file.getCanonicalPath().startsWith(root.getCanonicalPath() + File.separator)) {
+                    throw new IOException("Entry " + entryName + " points outside of output " + root);
+                }
+                return file;
+            }
+        }
+        throw new IOException("Entry " + entryName + " does not belong to any output");
+    }
+}
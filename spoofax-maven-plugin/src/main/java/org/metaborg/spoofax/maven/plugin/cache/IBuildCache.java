@@ -0,0 +1,31 @@
+package org.metaborg.spoofax.maven.plugin.cache;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Content-addressed cache of build outputs. Entries are archives of build outputs, keyed by a hash of the normalised
+ * inputs of the build step that produced them.
+ */
+public interface IBuildCache {
+    /**
+     * Retrieves the entry with given key.
+     * 
+     * @param key
+     *            Key of the entry.
+     * @param destination
+     *            File to write the entry to.
+     * @return True if the entry was found and written to destination, false if there is no entry with given key.
+     */
+    boolean get(String key, File destination) throws IOException;
+
+    /**
+     * Stores an entry under given key, replacing any existing entry.
+     * 
+     * @param key
+     *            Key of the entry.
+     * @param source
+     *            File holding the entry.
+     */
+    void put(String key, File source) throws IOException;
+}
@@ -0,0 +1,52 @@
+package org.metaborg.spoofax.maven.plugin.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Build cache that stores entries in a local directory, which may be shared by several builds and machines. Entries are
+ * written to a temporary file first, and then moved into place, such that concurrent builds never observe partially
+ * written entries.
+ */
+public class LocalBuildCache implements IBuildCache {
+    private final File directory;
+
+
+    public LocalBuildCache(File directory) {
+        this.directory = directory;
+    }
+
+
+    @Override public boolean get(String key, File destination) throws IOException {
+        final File entry = entry(key);
+        if(!entry.exists()) {
+            return false;
+        }
+        Files.copy(entry.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    @Override public void put(String key, File source) throws IOException {
+        final File entry = entry(key);
+        entry.getParentFile().mkdirs();
+        final File tempFile = File.createTempFile(key, ".tmp", entry.getParentFile());
+        try {
+            Files.copy(source.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+
+    private File entry(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key + ".zip");
+    }
+
+    @Override public String toString() {
+        return directory.toString();
+    }
+}
@@ -0,0 +1,165 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Client of the Spoofax daemon, which sends a request to the daemon and passes the log messages of the daemon to a
+ * log, until the daemon sends the result.
+ */
+public class DaemonClient implements Closeable {
+    private static final int connectTimeoutMillis = 1000;
+
+    private final DaemonInfo info;
+    private final Socket socket;
+
+
+    private DaemonClient(DaemonInfo info, Socket socket) {
+        this.info = info;
+        this.socket = socket;
+    }
+
+
+    /**
+     * Connects to the daemon described in given file.
+     * 
+     * @param file
+     *            File that the daemon wrote its information to.
+     * @param version
+     *            Version of the plugin that the daemon must run.
+     * @param log
+     *            Log to report why no daemon was connected to.
+     * @return Connected client, or null if no daemon of given version is running.
+     */
+    public static @Nullable DaemonClient connect(File file, String version, Log log) {
+        final DaemonInfo info = DaemonInfo.read(file);
+        if(info == null) {
+            log.info("No Spoofax daemon is running, building in this process");
+            return null;
+        }
+        if(!info.version().equals(version)) {
+            log.info("Spoofax daemon runs plugin version " + info.version() + " instead of " + version
+                + ", building in this process");
+            return null;
+        }
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), info.port()), connectTimeoutMillis);
+        } catch(IOException e) {
+            log.info("Cannot connect to the Spoofax daemon at " + info + ", building in this process");
+            log.debug(e);
+            try {
+                socket.close();
+            } catch(IOException closeException) {
+                // Ignore
+            }
+            return null;
+        }
+        return new DaemonClient(info, socket);
+    }
+
+
+    /**
+     * @return Information of the daemon this client is connected to. Its token is different for each daemon, such
+     *         that clients can recognise a daemon that was started again.
+     */
+    public DaemonInfo info() {
+        return info;
+    }
+
+    /**
+     * Sends a request to the daemon, and waits for its result.
+     * 
+     * @param request
+     *            Request to send.
+     * @param log
+     *            Log to pass the log messages of the daemon to.
+     * @return Result of the request.
+     * @throws MojoFailureException
+     *             When the daemon failed to handle the request because of the project.
+     * @throws MojoExecutionException
+     *             When the daemon failed to handle the request unexpectedly, or the connection to it was lost.
+     */
+    public Properties execute(Properties request, Log log) throws MojoExecutionException, MojoFailureException {
+        final Properties result;
+        try {
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final Properties message = new Properties();
+            message.putAll(request);
+            message.setProperty(DaemonProtocol.tokenKey, info.token());
+            message.setProperty(DaemonProtocol.debugKey, Boolean.toString(log.isDebugEnabled()));
+            DaemonProtocol.write(output, DaemonProtocol.request, message);
+            result = receive(input, log);
+        } catch(IOException e) {
+            throw new MojoExecutionException("Lost connection to the Spoofax daemon at " + info, e);
+        }
+
+        final String status = result.getProperty(DaemonProtocol.statusKey);
+        final String failureMessage = result.getProperty(DaemonProtocol.messageKey);
+        if(DaemonProtocol.failure.equals(status)) {
+            throw new MojoFailureException(failureMessage);
+        }
+        if(!DaemonProtocol.success.equals(status)) {
+            throw new MojoExecutionException("Spoofax daemon failed: " + failureMessage);
+        }
+        return result;
+    }
+
+    @Override public void close() {
+        try {
+            socket.close();
+        } catch(IOException e) {
+            // Ignore
+        }
+    }
+
+
+    private static Properties receive(DataInputStream input, Log log) throws IOException {
+        while(true) {
+            final DaemonProtocol.Message message = DaemonProtocol.read(input);
+            switch(message.type) {
+                case DaemonProtocol.log:
+                    log(message, log);
+                    break;
+                case DaemonProtocol.result:
+                    return message.properties();
+                default:
+                    throw new IOException("Unexpected message of type " + (char) message.type);
+            }
+        }
+    }
+
+    private static void log(DaemonProtocol.Message message, Log log) {
+        final String text = message.text();
+        switch(message.level()) {
+            case DaemonProtocol.debug:
+                log.debug(text);
+                break;
+            case DaemonProtocol.warn:
+                log.warn(text);
+                break;
+            case DaemonProtocol.error:
+                log.error(text);
+                break;
+            default:
+                log.info(text);
+                break;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+
+/**
+ * Information that clients need to connect to a running Spoofax daemon: the local port it listens on, the token that
+ * requests must present, and the version of the plugin it runs. Written to a file that only the user that started the
+ * daemon can read, such that other users on the same machine cannot send requests to it.
+ */
+public class DaemonInfo {
+    private static final String portKey = "port";
+    private static final String tokenKey = "token";
+    private static final String versionKey = "version";
+
+    private final int port;
+    private final String token;
+    private final String version;
+
+
+    public DaemonInfo(int port, String token, String version) {
+        this.port = port;
+        this.token = token;
+        this.version = version;
+    }
+
+
+    public int port() {
+        return port;
+    }
+
+    public String token() {
+        return token;
+    }
+
+    public String version() {
+        return version;
+    }
+
+
+    /**
+     * Gets the file that daemon information is written to.
+     * 
+     * @param file
+     *            Configured file, or null to use the default file.
+     * @param localRepository
+     *            Local repository, the default file is next to it, such that builds that share the local repository
+     *            share the daemon.
+     * @return File of the daemon information.
+     */
+    public static File file(@Nullable File file, ArtifactRepository localRepository) {
+        if(file != null) {
+            return file;
+        }
+        return new File(new File(localRepository.getBasedir()).getParentFile(), "spoofax/daemon.properties");
+    }
+
+    /**
+     * Reads daemon information from given file.
+     * 
+     * @param file
+     *            File to read from.
+     * @return Daemon information, or null if the file does not exist or cannot be read, in which case no daemon is
+     *         running.
+     */
+    public static @Nullable DaemonInfo read(File file) {
+        if(!file.isFile()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try(final InputStream stream = new FileInputStream(file)) {
+            properties.load(stream);
+            final String token = properties.getProperty(tokenKey);
+            final String version = properties.getProperty(versionKey);
+            if(token == null || version == null) {
+                return null;
+            }
+            return new DaemonInfo(Integer.parseInt(properties.getProperty(portKey)), token, version);
+        } catch(IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes this daemon information to given file, readable and writable by the current user only.
+     * 
+     * @param file
+     *            File to write to.
+     */
+    public void write(File file) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(portKey, Integer.toString(port));
+        properties.setProperty(tokenKey, token);
+        properties.setProperty(versionKey, version);
+        final File tempFile = new File(file.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            tempFile.createNewFile();
+            tempFile.setReadable(false, false);
+            tempFile.setWritable(false, false);
+            tempFile.setReadable(true, true);
+            tempFile.setWritable(true, true);
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                properties.store(stream, "Spoofax daemon");
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Deletes given file if it still holds this daemon information, such that a daemon that was started later is not
+     * hidden from clients.
+     * 
+     * @param file
+     *            File to delete.
+     */
+    public void delete(File file) {
+        final DaemonInfo info = read(file);
+        if(info != null && info.token.equals(token)) {
+            file.delete();
+        }
+    }
+
+
+    @Override public String toString() {
+        return "port " + port + ", version " + version;
+    }
+}
@@ -0,0 +1,109 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * Messages exchanged between the Spoofax daemon and its clients. A client sends a request, after which the daemon
+ * sends any number of log messages, followed by a result. Requests and results are properties, log messages are a
+ * level followed by the UTF-8 encoded message. Each message is its type, followed by the size and the bytes of its
+ * payload.
+ */
+final class DaemonProtocol {
+    public static final byte request = 'Q';
+    public static final byte log = 'L';
+    public static final byte result = 'R';
+
+    public static final byte debug = 'D';
+    public static final byte info = 'I';
+    public static final byte warn = 'W';
+    public static final byte error = 'E';
+
+    /** Key of the token of the daemon in requests. */
+    public static final String tokenKey = "daemon.token";
+    /** Key of the flag in requests that is true if the client logs debug messages. */
+    public static final String debugKey = "daemon.debug";
+    /** Key of the status in results, one of {@link #success}, {@link #failure}, or {@link #errorStatus}. */
+    public static final String statusKey = "daemon.status";
+    /** Key of the message of a failure or error in results. */
+    public static final String messageKey = "daemon.message";
+
+    public static final String success = "success";
+    /** Status of executions that failed because of the project, such as compile errors or failing tests. */
+    public static final String failure = "failure";
+    /** Status of executions that failed unexpectedly. */
+    public static final String errorStatus = "error";
+
+    /** Maximum size of a payload, such that a stream of another protocol does not cause large allocations. */
+    private static final int maxSize = 64 * 1024 * 1024;
+
+
+    public static class Message {
+        public final byte type;
+        public final byte[] payload;
+
+
+        public Message(byte type, byte[] payload) {
+            this.type = type;
+            this.payload = payload;
+        }
+
+
+        public Properties properties() throws IOException {
+            final Properties properties = new Properties();
+            properties.load(new ByteArrayInputStream(payload));
+            return properties;
+        }
+
+        public byte level() {
+            return payload.length > 0 ? payload[0] : info;
+        }
+
+        public String text() {
+            return payload.length > 0 ? new String(payload, 1, payload.length - 1, StandardCharsets.UTF_8) : "";
+        }
+    }
+
+
+    private DaemonProtocol() {
+    }
+
+
+    public static void write(DataOutputStream stream, byte type, Properties properties) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        properties.store(bytes, null);
+        write(stream, type, bytes.toByteArray());
+    }
+
+    public static void write(DataOutputStream stream, byte level, String text) throws IOException {
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        final byte[] payload = new byte[bytes.length + 1];
+        payload[0] = level;
+        System.arraycopy(bytes, 0, payload, 1, bytes.length);
+        write(stream, log, payload);
+    }
+
+    public static Message read(DataInputStream stream) throws IOException {
+        final byte type = stream.readByte();
+        final int size = stream.readInt();
+        if(size < 0 || size > maxSize) {
+            throw new IOException("Invalid size " + size + " of daemon message");
+        }
+        final byte[] payload = new byte[size];
+        stream.readFully(payload);
+        return new Message(type, payload);
+    }
+
+
+    private static void write(DataOutputStream stream, byte type, byte[] payload) throws IOException {
+        stream.writeByte(type);
+        stream.writeInt(payload.length);
+        stream.write(payload);
+        stream.flush();
+    }
+}
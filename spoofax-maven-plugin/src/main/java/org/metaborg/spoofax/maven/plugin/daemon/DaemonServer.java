@@ -0,0 +1,246 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Server of the Spoofax daemon, which accepts requests from clients on a local port and passes them to a handler. Each
+ * connection carries a single request, connections are handled concurrently. Only requests that present the token of
+ * the server are handled.
+ */
+public class DaemonServer implements Closeable {
+    private static final ILogger logger = LoggerUtils.logger(DaemonServer.class);
+
+    /** Log that sends messages to the client of a request. */
+    private static class ClientLog implements Log {
+        private final DataOutputStream stream;
+        private final boolean debugEnabled;
+        private boolean disconnected = false;
+
+
+        public ClientLog(DataOutputStream stream, boolean debugEnabled) {
+            this.stream = stream;
+            this.debugEnabled = debugEnabled;
+        }
+
+
+        @Override public boolean isDebugEnabled() {
+            return debugEnabled;
+        }
+
+        @Override public void debug(CharSequence content) {
+            if(debugEnabled) {
+                send(DaemonProtocol.debug, content, null);
+            }
+        }
+
+        @Override public void debug(CharSequence content, Throwable error) {
+            if(debugEnabled) {
+                send(DaemonProtocol.debug, content, error);
+            }
+        }
+
+        @Override public void debug(Throwable error) {
+            if(debugEnabled) {
+                send(DaemonProtocol.debug, null, error);
+            }
+        }
+
+        @Override public boolean isInfoEnabled() {
+            return true;
+        }
+
+        @Override public void info(CharSequence content) {
+            send(DaemonProtocol.info, content, null);
+        }
+
+        @Override public void info(CharSequence content, Throwable error) {
+            send(DaemonProtocol.info, content, error);
+        }
+
+        @Override public void info(Throwable error) {
+            send(DaemonProtocol.info, null, error);
+        }
+
+        @Override public boolean isWarnEnabled() {
+            return true;
+        }
+
+        @Override public void warn(CharSequence content) {
+            send(DaemonProtocol.warn, content, null);
+        }
+
+        @Override public void warn(CharSequence content, Throwable error) {
+            send(DaemonProtocol.warn, content, error);
+        }
+
+        @Override public void warn(Throwable error) {
+            send(DaemonProtocol.warn, null, error);
+        }
+
+        @Override public boolean isErrorEnabled() {
+            return true;
+        }
+
+        @Override public void error(CharSequence content) {
+            send(DaemonProtocol.error, content, null);
+        }
+
+        @Override public void error(CharSequence content, Throwable error) {
+            send(DaemonProtocol.error, content, error);
+        }
+
+        @Override public void error(Throwable error) {
+            send(DaemonProtocol.error, null, error);
+        }
+
+
+        /**
+         * Sends a log message to the client. Messages of a client that disconnected are dropped, the request is still
+         * handled, like a build continues when its output cannot be shown.
+         */
+        private synchronized void send(byte level, CharSequence content, Throwable error) {
+            if(disconnected) {
+                return;
+            }
+            final StringBuilder text = new StringBuilder();
+            if(content != null) {
+                text.append(content);
+            }
+            if(error != null) {
+                text.append(text.length() > 0 ? "\n" : "").append(Throwables.getStackTraceAsString(error));
+            }
+            try {
+                DaemonProtocol.write(stream, level, text.toString());
+            } catch(IOException e) {
+                logger.warn("Client of the Spoofax daemon disconnected, dropping its log messages", e);
+                disconnected = true;
+            }
+        }
+
+        private synchronized void result(Properties result) throws IOException {
+            DaemonProtocol.write(stream, DaemonProtocol.result, result);
+        }
+    }
+
+
+    private final IDaemonHandler handler;
+    private final ServerSocket serverSocket;
+    private final String token = UUID.randomUUID().toString();
+    private final ExecutorService executor;
+
+
+    /**
+     * Creates a server listening on given port of the loopback address.
+     * 
+     * @param handler
+     *            Handler of the requests.
+     * @param port
+     *            Port to listen on, or 0 for any free port.
+     */
+    public DaemonServer(IDaemonHandler handler, int port) throws IOException {
+        this.handler = handler;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.executor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("spoofax-daemon-%d").setDaemon(true).build());
+    }
+
+
+    /**
+     * @param version
+     *            Version of the plugin that handles requests.
+     * @return Information that clients need to connect to this server.
+     */
+    public DaemonInfo info(String version) {
+        return new DaemonInfo(serverSocket.getLocalPort(), token, version);
+    }
+
+    /**
+     * Accepts connections and handles their requests, until this server is closed.
+     */
+    public void run() {
+        while(!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch(IOException e) {
+                if(!serverSocket.isClosed()) {
+                    logger.warn("Cannot accept connection to the Spoofax daemon", e);
+                }
+                continue;
+            }
+            executor.execute(new Runnable() {
+                @Override public void run() {
+                    handle(socket);
+                }
+            });
+        }
+    }
+
+    @Override public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+
+
+    private void handle(Socket socket) {
+        try(final Socket closedSocket = socket) {
+            final DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            final DaemonProtocol.Message message = DaemonProtocol.read(input);
+            if(message.type != DaemonProtocol.request) {
+                throw new IOException("Expected a request, got a message of type " + (char) message.type);
+            }
+            final Properties request = message.properties();
+            final boolean debugEnabled = Boolean.parseBoolean(request.getProperty(DaemonProtocol.debugKey));
+            final ClientLog log = new ClientLog(output, debugEnabled);
+            log.result(handle(request, log));
+        } catch(IOException e) {
+            logger.warn("Cannot handle request of a client of the Spoofax daemon", e);
+        }
+    }
+
+    private Properties handle(Properties request, Log log) {
+        if(!token.equals(request.getProperty(DaemonProtocol.tokenKey))) {
+            return result(DaemonProtocol.errorStatus, "Request does not have the token of the Spoofax daemon");
+        }
+        try {
+            final Properties result = handler.handle(request, log);
+            result.setProperty(DaemonProtocol.statusKey, DaemonProtocol.success);
+            return result;
+        } catch(MojoFailureException e) {
+            log.debug(e);
+            return result(DaemonProtocol.failure, e.getMessage());
+        } catch(MojoExecutionException | RuntimeException e) {
+            log.error("Unexpected error in the Spoofax daemon", e);
+            return result(DaemonProtocol.errorStatus, e.getMessage());
+        }
+    }
+
+    private static Properties result(String status, String message) {
+        final Properties result = new Properties();
+        result.setProperty(DaemonProtocol.statusKey, status);
+        result.setProperty(DaemonProtocol.messageKey, message != null ? message : "");
+        return result;
+    }
+}
@@ -0,0 +1,28 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.util.Properties;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Handles the requests that clients send to the Spoofax daemon. Requests of different clients are handled
+ * concurrently.
+ */
+public interface IDaemonHandler {
+    /**
+     * Handles a request.
+     * 
+     * @param request
+     *            Request of the client.
+     * @param log
+     *            Log that sends messages to the client.
+     * @return Result properties, sent to the client.
+     * @throws MojoFailureException
+     *             When the request fails because of the project of the client.
+     * @throws MojoExecutionException
+     *             When the request fails unexpectedly.
+     */
+    Properties handle(Properties request, Log log) throws MojoExecutionException, MojoFailureException;
+}
@@ -0,0 +1,82 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.aether.DefaultSessionData;
+import org.metaborg.spoofax.maven.plugin.AbstractSpoofaxMojo;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Handles requests to execute a Spoofax mojo for a project of the build of a client. The mojo is executed with the
+ * Spoofax core of the daemon, on a project that has the coordinates and build directories of the project of the
+ * client, and with the language dependencies that the client resolved.
+ */
+public class MojoHandler implements IDaemonHandler {
+    /** Project that records the boolean context values that the mojo sets, to send them back to the client. */
+    private static class DaemonProject extends MavenProject {
+        public final Map<String, Boolean> context = Maps.newHashMap();
+
+
+        @Override public void setContextValue(String key, Object value) {
+            super.setContextValue(key, value);
+            if(value instanceof Boolean) {
+                context.put(key, (Boolean) value);
+            }
+        }
+    }
+
+
+    private final MavenSession session;
+    private final ArtifactRepository localRepository;
+
+
+    /**
+     * @param session
+     *            Session of the daemon.
+     * @param localRepository
+     *            Local repository of the daemon.
+     */
+    public MojoHandler(MavenSession session, ArtifactRepository localRepository) {
+        this.session = session;
+        this.localRepository = localRepository;
+    }
+
+
+    @Override public Properties handle(Properties request, Log log)
+        throws MojoExecutionException, MojoFailureException {
+        final AbstractSpoofaxMojo mojo = MojoRequests.readMojo(request, AbstractSpoofaxMojo.class);
+        final DaemonProject project = new DaemonProject();
+        MojoRequests.readProject(request, project);
+        mojo.setLog(log);
+        mojo.prepareDaemonExecution(project, requestSession(), localRepository, MojoRequests.readArtifacts(request),
+            MojoRequests.readContext(request));
+        log.info("Executing " + mojo.getClass().getSimpleName() + " for " + project.getId() + " in the Spoofax daemon");
+        mojo.execute();
+
+        final Properties result = new Properties();
+        MojoRequests.writeContext(project.context, result);
+        MojoRequests.writeProjectArtifactFile(project, result);
+        return result;
+    }
+
+
+    /**
+     * Creates a session for a request, with its own session data, such that the metrics and caches of a request are
+     * not kept for the lifetime of the daemon.
+     */
+    private MavenSession requestSession() {
+        final DefaultRepositorySystemSession repositorySession =
+            new DefaultRepositorySystemSession(session.getRepositorySession());
+        repositorySession.setData(new DefaultSessionData());
+        return new MavenSession(session.getContainer(), repositorySession, session.getRequest(), session.getResult());
+    }
+}
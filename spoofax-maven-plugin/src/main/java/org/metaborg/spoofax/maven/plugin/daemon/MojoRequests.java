@@ -0,0 +1,250 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Converts mojo executions to and from the properties of requests to the Spoofax daemon. A request holds the class of
+ * the mojo, the values of its parameters, the project it is executed for, the resolved language dependencies of that
+ * project, and the context values that earlier executions in the daemon set on the project.
+ */
+public class MojoRequests {
+    private static final String mojoKey = "mojo";
+    private static final String fieldPrefix = "field.";
+    private static final String projectPrefix = "project.";
+    private static final String artifactPrefix = "artifact.";
+    private static final String contextPrefix = "context.";
+    private static final String projectArtifactFileKey = "project.artifact.file";
+
+
+    /**
+     * Adds the class and the parameters of given mojo. Parameters are all non-transient fields of the mojo classes, of
+     * type boolean, int, long, String, or File. Fields of other types, such as components and the project, are not
+     * sent.
+     */
+    public static void writeMojo(AbstractMojo mojo, Properties properties) throws MojoExecutionException {
+        properties.setProperty(mojoKey, mojo.getClass().getName());
+        try {
+            for(Field field : fields(mojo.getClass())) {
+                final Object value = field.get(mojo);
+                if(value != null) {
+                    properties.setProperty(fieldKey(field), value instanceof File ? ((File) value).getPath()
+                        : value.toString());
+                }
+            }
+        } catch(IllegalAccessException e) {
+            throw new MojoExecutionException("Cannot read parameters of " + mojo.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Creates the mojo of given request, and sets its parameters.
+     * 
+     * @param properties
+     *            Properties of the request.
+     * @param type
+     *            Type that the mojo must be an instance of.
+     * @return Created mojo.
+     */
+    public static <T extends AbstractMojo> T readMojo(Properties properties, Class<T> type)
+        throws MojoExecutionException {
+        final String className = properties.getProperty(mojoKey);
+        final T mojo;
+        try {
+            final Class<?> mojoClass = Class.forName(className, true, type.getClassLoader());
+            if(!type.isAssignableFrom(mojoClass)) {
+                throw new MojoExecutionException(className + " is not a " + type.getName());
+            }
+            mojo = type.cast(mojoClass.getDeclaredConstructor().newInstance());
+            for(Field field : fields(mojoClass)) {
+                final String value = properties.getProperty(fieldKey(field));
+                if(value != null) {
+                    field.set(mojo, parse(field.getType(), value));
+                }
+            }
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            throw new MojoExecutionException("Cannot create mojo " + className, e);
+        }
+        return mojo;
+    }
+
+
+    /**
+     * Adds the coordinates, the file, and the build directories of given project.
+     */
+    public static void writeProject(MavenProject project, Properties properties) {
+        properties.setProperty(projectPrefix + "groupId", project.getGroupId());
+        properties.setProperty(projectPrefix + "artifactId", project.getArtifactId());
+        properties.setProperty(projectPrefix + "version", project.getVersion());
+        properties.setProperty(projectPrefix + "packaging", project.getPackaging());
+        properties.setProperty(projectPrefix + "file", project.getFile() != null ? project.getFile().getPath()
+            : new File(project.getBasedir(), "pom.xml").getPath());
+        properties.setProperty(projectPrefix + "build.directory", project.getBuild().getDirectory());
+        properties.setProperty(projectPrefix + "build.outputDirectory", project.getBuild().getOutputDirectory());
+        if(project.getBuild().getFinalName() != null) {
+            properties.setProperty(projectPrefix + "build.finalName", project.getBuild().getFinalName());
+        }
+    }
+
+    /**
+     * Sets the coordinates, the file, and the build directories of given project, and creates its artifact.
+     */
+    public static void readProject(Properties properties, MavenProject project) {
+        project.setGroupId(properties.getProperty(projectPrefix + "groupId"));
+        project.setArtifactId(properties.getProperty(projectPrefix + "artifactId"));
+        project.setVersion(properties.getProperty(projectPrefix + "version"));
+        project.setPackaging(properties.getProperty(projectPrefix + "packaging"));
+        project.setFile(new File(properties.getProperty(projectPrefix + "file")));
+        project.getBuild().setDirectory(properties.getProperty(projectPrefix + "build.directory"));
+        project.getBuild().setOutputDirectory(properties.getProperty(projectPrefix + "build.outputDirectory"));
+        project.getBuild().setFinalName(properties.getProperty(projectPrefix + "build.finalName"));
+        project.setArtifact(new DefaultArtifact(project.getGroupId(), project.getArtifactId(), project.getVersion(),
+            null, project.getPackaging(), null, new DefaultArtifactHandler(project.getPackaging())));
+    }
+
+    /**
+     * Adds the file of the artifact of given project, if it was set.
+     */
+    public static void writeProjectArtifactFile(MavenProject project, Properties properties) {
+        final File file = project.getArtifact() != null ? project.getArtifact().getFile() : null;
+        if(file != null) {
+            properties.setProperty(projectArtifactFileKey, file.getPath());
+        }
+    }
+
+    /**
+     * @return File of the artifact of the project, or null if it was not set.
+     */
+    public static @Nullable File readProjectArtifactFile(Properties properties) {
+        final String path = properties.getProperty(projectArtifactFileKey);
+        return path != null ? new File(path) : null;
+    }
+
+
+    /**
+     * Adds the coordinates and files of given resolved artifacts.
+     */
+    public static void writeArtifacts(List<Artifact> artifacts, Properties properties) {
+        for(int i = 0; i < artifacts.size(); ++i) {
+            final Artifact artifact = artifacts.get(i);
+            final String prefix = artifactPrefix + i + ".";
+            properties.setProperty(prefix + "groupId", artifact.getGroupId());
+            properties.setProperty(prefix + "artifactId", artifact.getArtifactId());
+            properties.setProperty(prefix + "version", artifact.getVersion());
+            properties.setProperty(prefix + "type", artifact.getType());
+            if(artifact.getScope() != null) {
+                properties.setProperty(prefix + "scope", artifact.getScope());
+            }
+            if(artifact.getClassifier() != null) {
+                properties.setProperty(prefix + "classifier", artifact.getClassifier());
+            }
+            if(artifact.getFile() != null) {
+                properties.setProperty(prefix + "file", artifact.getFile().getPath());
+            }
+        }
+    }
+
+    /**
+     * @return Resolved artifacts, in the order they were added.
+     */
+    public static List<Artifact> readArtifacts(Properties properties) {
+        final List<Artifact> artifacts = Lists.newArrayList();
+        for(int i = 0;; ++i) {
+            final String prefix = artifactPrefix + i + ".";
+            final String groupId = properties.getProperty(prefix + "groupId");
+            if(groupId == null) {
+                return artifacts;
+            }
+            final String type = properties.getProperty(prefix + "type");
+            final Artifact artifact = new DefaultArtifact(groupId, properties.getProperty(prefix + "artifactId"),
+                properties.getProperty(prefix + "version"), properties.getProperty(prefix + "scope"), type,
+                properties.getProperty(prefix + "classifier"), new DefaultArtifactHandler(type));
+            final String file = properties.getProperty(prefix + "file");
+            if(file != null) {
+                artifact.setFile(new File(file));
+                artifact.setResolved(true);
+            }
+            artifacts.add(artifact);
+        }
+    }
+
+
+    /**
+     * Adds given boolean context values of a project.
+     */
+    public static void writeContext(Map<String, Boolean> context, Properties properties) {
+        for(Map.Entry<String, Boolean> entry : context.entrySet()) {
+            properties.setProperty(contextPrefix + entry.getKey(), entry.getValue().toString());
+        }
+    }
+
+    /**
+     * @return Boolean context values of a project.
+     */
+    public static Map<String, Boolean> readContext(Properties properties) {
+        final Map<String, Boolean> context = Maps.newHashMap();
+        for(String name : properties.stringPropertyNames()) {
+            if(name.startsWith(contextPrefix)) {
+                context.put(name.substring(contextPrefix.length()),
+                    Boolean.parseBoolean(properties.getProperty(name)));
+            }
+        }
+        return context;
+    }
+
+
+    private static List<Field> fields(Class<?> mojoClass) {
+        final List<Field> fields = Lists.newArrayList();
+        for(Class<?> c = mojoClass; c != null && c != AbstractMojo.class; c = c.getSuperclass()) {
+            for(Field field : c.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()
+                    || !parameterType(field.getType())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static boolean parameterType(Class<?> type) {
+        return type == boolean.class || type == int.class || type == long.class || type == String.class
+            || type == File.class;
+    }
+
+    private static String fieldKey(Field field) {
+        // Fields of different classes may have the same name.
+        return fieldPrefix + field.getDeclaringClass().getName() + "#" + field.getName();
+    }
+
+    private static Object parse(Class<?> type, String value) {
+        if(type == boolean.class) {
+            return Boolean.parseBoolean(value);
+        } else if(type == int.class) {
+            return Integer.parseInt(value);
+        } else if(type == long.class) {
+            return Long.parseLong(value);
+        } else if(type == File.class) {
+            return new File(value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,146 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.SessionData;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Cache of language dependencies, shared by all projects in a Maven session. Caches the language artifacts that were
+ * collected from the dependency tree of a project, and the files that omitted language artifacts were resolved to,
+ * such that projects in a reactor that depend on the same languages do not resolve them again.
+ * 
+ * Dependency closures are keyed by the dependencies that determine them, not by the project they were collected for,
+ * such that projects with the same dependencies share their closure. Artifacts are copied when they are cached and when
+ * they are retrieved, since artifacts are mutated when they are resolved, and projects are built concurrently in
+ * parallel reactor builds.
+ */
+public class DependencyCache {
+    private static final String key = DependencyCache.class.getName();
+
+    private final ConcurrentMap<String, Collection<Artifact>> dependencies = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, File> resolvedFiles = Maps.newConcurrentMap();
+
+
+    /**
+     * Gets the dependency cache of given session, creating it if it does not exist yet.
+     * 
+     * @param session
+     *            Maven session to get the cache for.
+     * @return Dependency cache of the session.
+     */
+    public static DependencyCache get(MavenSession session) {
+        final SessionData data = session.getRepositorySession().getData();
+        while(true) {
+            final DependencyCache cache = (DependencyCache) data.get(key);
+            if(cache != null) {
+                return cache;
+            }
+            if(data.set(key, null, new DependencyCache())) {
+                return (DependencyCache) data.get(key);
+            }
+        }
+    }
+
+
+    /**
+     * Gets the key of the language dependency closure of a project: its direct and managed dependencies in sorted
+     * order, and the requested dependency scopes.
+     * 
+     * @param project
+     *            Project to get the key for.
+     * @param scopes
+     *            Requested dependency scopes, or an empty set for all scopes.
+     * @return Key of the dependency closure.
+     */
+    public static String closureKey(MavenProject project, Set<String> scopes) {
+        final DependencyManagement management = project.getDependencyManagement();
+        final List<Dependency> managedDependencies =
+            management != null ? management.getDependencies() : Lists.<Dependency>newArrayList();
+        return coordinates(project.getDependencies()) + "|" + coordinates(managedDependencies) + "|"
+            + Joiner.on(',').join(Sets.newTreeSet(scopes));
+    }
+
+    /**
+     * Gets the cached language dependencies of a dependency closure.
+     * 
+     * @param closureKey
+     *            Key of the dependency closure, see {@link #closureKey(MavenProject, Set)}.
+     * @return Copies of the language dependencies, or null if they have not been cached.
+     */
+    public @Nullable Collection<Artifact> dependencies(String closureKey) {
+        final Collection<Artifact> artifacts = dependencies.get(closureKey);
+        if(artifacts == null) {
+            return null;
+        }
+        return ArtifactUtils.copyArtifacts(artifacts, Lists.<Artifact>newArrayListWithCapacity(artifacts.size()));
+    }
+
+    /**
+     * Caches the language dependencies of a dependency closure.
+     * 
+     * @param closureKey
+     *            Key of the dependency closure, see {@link #closureKey(MavenProject, Set)}.
+     * @param artifacts
+     *            Language dependencies of the closure, which are copied.
+     */
+    public void putDependencies(String closureKey, Collection<Artifact> artifacts) {
+        dependencies.put(closureKey,
+            ArtifactUtils.copyArtifacts(artifacts, Lists.<Artifact>newArrayListWithCapacity(artifacts.size())));
+    }
+
+
+    /**
+     * Gets the cached file that given artifact was resolved to.
+     * 
+     * @param artifact
+     *            Artifact to get the file for.
+     * @return Resolved file, or null if the artifact has not been resolved before.
+     */
+    public @Nullable File resolvedFile(Artifact artifact) {
+        return resolvedFiles.get(artifact.getId());
+    }
+
+    /**
+     * Caches the file that given artifact was resolved to.
+     * 
+     * @param artifact
+     *            Resolved artifact.
+     * @param file
+     *            File the artifact was resolved to.
+     */
+    public void putResolvedFile(Artifact artifact, File file) {
+        resolvedFiles.put(artifact.getId(), file);
+    }
+
+
+    private static String coordinates(List<Dependency> dependencies) {
+        final Set<String> coordinates = Sets.newTreeSet();
+        for(Dependency dependency : dependencies) {
+            final Set<String> exclusions = Sets.newTreeSet();
+            for(Exclusion exclusion : dependency.getExclusions()) {
+                exclusions.add(exclusion.getGroupId() + ":" + exclusion.getArtifactId());
+            }
+            coordinates.add(dependency.getManagementKey() + ":" + dependency.getVersion() + ":" + dependency.getScope()
+                + ":" + dependency.isOptional() + ":" + Joiner.on('/').join(exclusions));
+        }
+        return Joiner.on(',').join(coordinates);
+    }
+}
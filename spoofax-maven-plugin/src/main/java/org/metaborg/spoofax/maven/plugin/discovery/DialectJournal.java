@@ -0,0 +1,274 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.NameScope;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.resource.ResourceChangeKind;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Journal of the files that dialects were last loaded from, per project location. The journal of a project is
+ * persisted in its build directory, such that later builds only pass the files that were created, modified, or
+ * deleted since the previous build to the dialect processor. Directories whose modification time did not change are
+ * not listed again, only the files in them are checked for modifications.
+ * 
+ * Dialects are registered in the Spoofax core of this JVM. The first update of a project in this JVM therefore also
+ * passes the unchanged parse tables, which dialects are loaded from, such that their dialects are registered again.
+ * When the JVM outlives a single build, for example in a Maven daemon, later updates of the same project only pass
+ * the changed files.
+ */
+public class DialectJournal {
+    private static final ILogger logger = LoggerUtils.logger(DialectJournal.class);
+    /** Extension of the parse tables that the dialect processor loads dialects from. */
+    private static final String dialectExtension = "tbl";
+    /** Modification time of directories that must be listed again, because they were modified during a scan. */
+    private static final long untrusted = -1;
+    /** Granularity of modification times of directories in some file systems. */
+    private static final long granularityMillis = 2000;
+    private static final String directoryPrefix = "d:";
+    private static final String filePrefix = "f:";
+
+    private static class State {
+        /** Modification times of traversed directories, by path relative to the project location. */
+        public final Map<String, Long> directories = Maps.newHashMap();
+        /** Modification times of selected files, by path relative to the project location. */
+        public final Map<String, Long> files = Maps.newHashMap();
+
+
+        /**
+         * @return Paths of the traversed directories and selected files in each directory, by directory path.
+         */
+        public ListMultimap<String, String> children() {
+            final ListMultimap<String, String> children = ArrayListMultimap.create();
+            for(String path : directories.keySet()) {
+                if(!path.isEmpty()) {
+                    children.put(parent(path), path);
+                }
+            }
+            for(String path : files.keySet()) {
+                children.put(parent(path), path);
+            }
+            return children;
+        }
+    }
+
+
+    private final FileSelector selector;
+    private final ConcurrentMap<String, State> projects = Maps.newConcurrentMap();
+
+
+    /**
+     * @param selector
+     *            Selector of the files in a project that dialects can be loaded from, and the directories to traverse.
+     */
+    public DialectJournal(FileSelector selector) {
+        this.selector = selector;
+    }
+
+
+    /**
+     * Finds the resources in the project at given location, computes the changes to them since the last update of the
+     * project, and records the current state of the resources as the new state of the project.
+     * 
+     * @param location
+     *            Location of the project.
+     * @param file
+     *            File the journal of the project is persisted in.
+     * @return Changes since the last update. Creation changes for all resources if the project was not updated
+     *         before.
+     */
+    public List<ResourceChange> update(FileObject location, File file) throws FileSystemException {
+        final String key = location.getName().getURI();
+        State previous = projects.get(key);
+        final boolean loaded = previous != null;
+        if(previous == null) {
+            previous = load(file);
+        }
+
+        final State current = new State();
+        final long trustedBefore = System.currentTimeMillis() - granularityMillis;
+        scan(location, location, "", 0, previous, previous != null ? previous.children() : null, current,
+            trustedBefore);
+        projects.put(key, current);
+        save(file, current);
+
+        final List<ResourceChange> changes = Lists.newArrayList();
+        for(Map.Entry<String, Long> entry : current.files.entrySet()) {
+            final String path = entry.getKey();
+            final Long previousModified = previous != null ? previous.files.get(path) : null;
+            if(previousModified == null) {
+                changes.add(new ResourceChange(resolve(location, path), ResourceChangeKind.Create));
+            } else if(!previousModified.equals(entry.getValue())) {
+                changes.add(new ResourceChange(resolve(location, path), ResourceChangeKind.Modify));
+            } else if(!loaded && path.endsWith("." + dialectExtension)) {
+                // Unchanged, but not registered in the Spoofax core of this JVM yet.
+                changes.add(new ResourceChange(resolve(location, path), ResourceChangeKind.Create));
+            }
+        }
+        if(previous != null) {
+            for(String path : previous.files.keySet()) {
+                if(!current.files.containsKey(path)) {
+                    changes.add(new ResourceChange(resolve(location, path), ResourceChangeKind.Delete));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Forgets the state of the project at given location, such that the next update processes all resources again.
+     * Must be called when processing the changes returned by {@link #update} failed.
+     * 
+     * @param location
+     *            Location of the project.
+     * @param file
+     *            File the journal of the project is persisted in.
+     */
+    public void invalidate(FileObject location, File file) {
+        projects.remove(location.getName().getURI());
+        file.delete();
+    }
+
+
+    private void scan(FileObject location, final FileObject directory, String path, final int depth,
+        @Nullable State previous, @Nullable ListMultimap<String, String> previousChildren, State current,
+        long trustedBefore) throws FileSystemException {
+        directory.refresh();
+        final long modified = directory.getContent().getLastModifiedTime();
+        current.directories.put(path, modified < trustedBefore ? modified : untrusted);
+
+        final Long previousModified = previous != null ? previous.directories.get(path) : null;
+        if(previousModified != null && previousModified == modified) {
+            // No files were added to or removed from the directory, only check the files and directories in it.
+            for(String childPath : previousChildren.get(path)) {
+                final FileObject child = resolve(location, childPath);
+                child.refresh();
+                if(previous.directories.containsKey(childPath)) {
+                    if(child.getType() == FileType.FOLDER) {
+                        scan(location, child, childPath, depth + 1, previous, previousChildren, current,
+                            trustedBefore);
+                    }
+                } else if(child.getType() == FileType.FILE) {
+                    current.files.put(childPath, child.getContent().getLastModifiedTime());
+                }
+            }
+            return;
+        }
+
+        final FileObject[] children = directory.getChildren();
+        for(final FileObject child : children) {
+            final String childPath = path.isEmpty() ? child.getName().getBaseName()
+                : path + "/" + child.getName().getBaseName();
+            final FileSelectInfo info = new FileSelectInfo() {
+                @Override public FileObject getBaseFolder() {
+                    return directory;
+                }
+
+                @Override public FileObject getFile() {
+                    return child;
+                }
+
+                @Override public int getDepth() {
+                    return depth + 1;
+                }
+            };
+            try {
+                final FileType type = child.getType();
+                if(type == FileType.FOLDER && selector.traverseDescendents(info)) {
+                    scan(location, child, childPath, depth + 1, previous, previousChildren, current, trustedBefore);
+                } else if(type == FileType.FILE && selector.includeFile(info)) {
+                    current.files.put(childPath, child.getContent().getLastModifiedTime());
+                }
+            } catch(FileSystemException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new FileSystemException(e);
+            }
+        }
+    }
+
+    private static FileObject resolve(FileObject location, String path) throws FileSystemException {
+        return location.resolveFile(path, NameScope.DESCENDENT);
+    }
+
+    private static String parent(String path) {
+        final int index = path.lastIndexOf('/');
+        return index < 0 ? "" : path.substring(0, index);
+    }
+
+    private static @Nullable State load(File file) {
+        if(!file.exists()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try(final InputStream stream = new FileInputStream(file)) {
+            properties.load(stream);
+        } catch(IOException e) {
+            logger.warn("Cannot read dialect journal {}, ignoring it", e, file);
+            return null;
+        }
+        final State state = new State();
+        try {
+            for(String name : properties.stringPropertyNames()) {
+                final long modified = Long.parseLong(properties.getProperty(name));
+                if(name.startsWith(directoryPrefix)) {
+                    state.directories.put(name.substring(directoryPrefix.length()), modified);
+                } else if(name.startsWith(filePrefix)) {
+                    state.files.put(name.substring(filePrefix.length()), modified);
+                }
+            }
+        } catch(NumberFormatException e) {
+            logger.warn("Cannot read dialect journal {}, ignoring it", e, file);
+            return null;
+        }
+        return state;
+    }
+
+    private static void save(File file, State state) {
+        final Properties properties = new Properties();
+        for(Map.Entry<String, Long> entry : state.directories.entrySet()) {
+            properties.setProperty(directoryPrefix + entry.getKey(), Long.toString(entry.getValue()));
+        }
+        for(Map.Entry<String, Long> entry : state.files.entrySet()) {
+            properties.setProperty(filePrefix + entry.getKey(), Long.toString(entry.getValue()));
+        }
+        final File tempFile = new File(file.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                properties.store(stream, "Spoofax dialect journal");
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            logger.warn("Cannot write dialect journal {}", e, file);
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentMap;
+
+import org.metaborg.core.language.LanguageIdentifier;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps track of the artifact files that language components were loaded from in this JVM. When the JVM outlives a
+ * single build, for example when running in a persistent Maven daemon, components stay loaded between builds. This
+ * registry is used to detect that the artifact file of a loaded component was changed by a later build, such that the
+ * component is loaded again instead of reusing a stale one.
+ */
+public class DiscoveredArtifacts {
+    private final ConcurrentMap<LanguageIdentifier, String> stamps = Maps.newConcurrentMap();
+    private final ConcurrentMap<LanguageIdentifier, Object> locks = Maps.newConcurrentMap();
+
+
+    /**
+     * Checks if the component with given identifier was loaded from given file in its current state.
+     * 
+     * @param identifier
+     *            Identifier of the loaded component.
+     * @param file
+     *            Artifact file the component is expected to be loaded from.
+     * @return True if the component was loaded from given file and the file has not changed since, or if the component
+     *         was not loaded from an artifact file at all. False otherwise.
+     */
+    public boolean upToDate(LanguageIdentifier identifier, File file) {
+        final String stamp = stamps.get(identifier);
+        if(stamp == null) {
+            // Loaded from elsewhere, for example from a language specification built in the reactor.
+            return true;
+        }
+        return stamp.equals(stamp(file));
+    }
+
+    /**
+     * Records that the component with given identifier was loaded from given file.
+     * 
+     * @param identifier
+     *            Identifier of the loaded component.
+     * @param file
+     *            Artifact file the component was loaded from.
+     */
+    public void add(LanguageIdentifier identifier, File file) {
+        stamps.put(identifier, stamp(file));
+    }
+
+    /**
+     * Gets the lock that must be held while checking for and loading the component with given identifier. Prevents
+     * concurrently building projects from loading the same component twice.
+     * 
+     * @param identifier
+     *            Identifier of the component.
+     * @return Lock object for given identifier.
+     */
+    public Object lock(LanguageIdentifier identifier) {
+        final Object lock = new Object();
+        final Object existingLock = locks.putIfAbsent(identifier, lock);
+        return existingLock != null ? existingLock : lock;
+    }
+
+
+    private static String stamp(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+}
@@ -0,0 +1,147 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+
+/**
+ * Persistent index of the locations at which language components were discovered inside artifact files. Allows
+ * subsequent builds to request discovery directly at those locations, instead of searching the entire artifact. Only
+ * the search is skipped: the index holds locations, not component configurations, since the discovery service of the
+ * Spoofax core cannot be given configurations that were parsed earlier. The configuration at each location is still
+ * parsed by the discovery service in every build. Entries are keyed by the absolute path of the artifact file, and are
+ * invalidated when the size or modification time of that file changes. For snapshot artifacts, which may be
+ * overwritten in place, the SHA-1 hash of the file is compared as well.
+ */
+public class DiscoveryIndex {
+    private static final ILogger logger = LoggerUtils.logger(DiscoveryIndex.class);
+    private static final String separator = "\t";
+    private static final String noHash = "-";
+
+    private final File file;
+    private final Properties entries = new Properties();
+    private volatile boolean changed = false;
+
+
+    public DiscoveryIndex(File file) {
+        this.file = file;
+    }
+
+
+    /**
+     * Loads the index from disk. An index that does not exist or cannot be read is treated as empty.
+     */
+    public void load() {
+        entries.clear();
+        changed = false;
+        if(!file.exists()) {
+            return;
+        }
+        try(final InputStream stream = new FileInputStream(file)) {
+            entries.load(stream);
+        } catch(IOException e) {
+            logger.warn("Cannot read language discovery index {}, ignoring it", e, file);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Saves the index to disk, if it was changed since it was loaded.
+     */
+    public void save() {
+        if(!changed) {
+            return;
+        }
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                entries.store(stream, "Spoofax language discovery index");
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            changed = false;
+        } catch(IOException e) {
+            logger.warn("Cannot write language discovery index {}", e, file);
+        }
+    }
+
+
+    /**
+     * Gets the locations at which language components were discovered in given artifact file.
+     * 
+     * @param artifactFile
+     *            Artifact file to get locations for.
+     * @param verifyHash
+     *            If the hash of the artifact file must be verified, in addition to its size and modification time.
+     * @return URIs of component locations, or null if there is no valid entry for given artifact file.
+     */
+    public @Nullable List<String> get(File artifactFile, boolean verifyHash) throws IOException {
+        final String key = artifactFile.getAbsolutePath();
+        final String value = entries.getProperty(key);
+        if(value == null) {
+            return null;
+        }
+
+        final List<String> parts = Splitter.on(separator).splitToList(value);
+        if(parts.size() < 4 || !parts.get(0).equals(Long.toString(artifactFile.length()))
+            || !parts.get(1).equals(Long.toString(artifactFile.lastModified()))) {
+            invalidate(key);
+            return null;
+        }
+        if(verifyHash && !parts.get(2).equals(hash(artifactFile))) {
+            invalidate(key);
+            return null;
+        }
+
+        return parts.subList(3, parts.size());
+    }
+
+    /**
+     * Records the locations at which language components were discovered in given artifact file.
+     * 
+     * @param artifactFile
+     *            Artifact file to record locations for.
+     * @param storeHash
+     *            If the hash of the artifact file must be stored, such that it can be verified later.
+     * @param locations
+     *            URIs of component locations.
+     */
+    public void put(File artifactFile, boolean storeHash, Iterable<String> locations) throws IOException {
+        final String hash = storeHash ? hash(artifactFile) : noHash;
+        final List<String> parts = Lists.newArrayList(
+            Arrays.asList(Long.toString(artifactFile.length()), Long.toString(artifactFile.lastModified()), hash));
+        Iterables.addAll(parts, locations);
+        entries.setProperty(artifactFile.getAbsolutePath(), Joiner.on(separator).join(parts));
+        changed = true;
+    }
+
+
+    private void invalidate(String key) {
+        if(entries.remove(key) != null) {
+            changed = true;
+        }
+    }
+
+    private static String hash(File file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha1()).toString();
+    }
+}
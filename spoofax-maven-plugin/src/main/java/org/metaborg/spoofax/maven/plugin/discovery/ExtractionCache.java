@@ -0,0 +1,332 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Content-addressed cache of extracted language archives, shared by all builds that use the same cache directory.
+ * Each archive is extracted once into a directory named after the SHA-1 hash of the archive, such that discovery and
+ * the language runtime can read its files directly from disk, instead of through a {@code zip} file system that
+ * copies files to temporary locations when they are needed as local files.
+ * 
+ * Archives are extracted into a temporary directory first, which is then atomically renamed to the entry directory.
+ * Concurrent builds that extract the same archive race on the rename; the loser deletes its copy and uses the winner's,
+ * such that an entry directory is never observed partially extracted. The modification time of an entry directory is
+ * updated whenever the entry is used. When the total size of the cache exceeds its limit after extracting an archive,
+ * least recently used entries are removed until it fits, except for entries that were used recently, since builds
+ * may still be reading those. Builds that keep using loaded languages must therefore extract their archives again on
+ * every build, which only touches the entries.
+ * 
+ * Hashes of archives are memoized by path, size, and modification time in the {@code hashes} file of the cache, such
+ * that unchanged archives are not hashed again by later builds. Builds append the hashes they compute to the file, and
+ * hashes of archives that changed or no longer exist are removed from it when the cache is trimmed.
+ */
+public class ExtractionCache {
+    private static final ILogger logger = LoggerUtils.logger(ExtractionCache.class);
+    private static final long minimumAgeMillis = TimeUnit.HOURS.toMillis(1);
+    private static final String sizeExtension = ".size";
+    private static final String hashesName = "hashes";
+    private static final Pattern hashPattern = Pattern.compile("[0-9a-f]{40}");
+
+    private final File directory;
+    private final long maxSize;
+
+    /** Hashes of archives by path, size, and modification time, loaded from the hashes file on first use. */
+    private @Nullable ConcurrentMap<String, String> hashes;
+
+
+    /**
+     * @param directory
+     *            Directory of the cache.
+     * @param maxSize
+     *            Maximum total size in bytes of the extracted archives in the cache.
+     */
+    public ExtractionCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * Gets the directory that given archive is extracted to, extracting the archive if it is not in the cache yet.
+     * 
+     * @param archive
+     *            Archive to extract.
+     * @return Directory with the contents of the archive.
+     * @throws IOException
+     *             When the archive cannot be hashed or extracted.
+     */
+    public File extract(File archive) throws IOException {
+        final String hash = hash(archive);
+        final File entry = entry(hash);
+        if(entry.isDirectory()) {
+            // A concurrent trim may remove the entry after it was checked, in which case touching it fails or it is
+            // gone afterwards. Trims skip recently used entries, so an entry that still exists after touching it is
+            // kept.
+            if(entry.setLastModified(System.currentTimeMillis()) && entry.isDirectory()) {
+                return entry;
+            }
+            logger.debug("Extracted archive {} was concurrently removed, extracting it again", entry);
+        }
+
+        entry.getParentFile().mkdirs();
+        final File tempDirectory = new File(entry.getParentFile(), hash + "." + UUID.randomUUID() + ".tmp");
+        try {
+            final long size = unzip(archive, tempDirectory);
+            // Entries are only used once their directory exists, write the size of the entry before that.
+            Files.write(sizeFile(entry).toPath(), Long.toString(size).getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(tempDirectory.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch(IOException e) {
+                // Renaming onto an existing directory fails with different exceptions on different platforms.
+                if(!entry.isDirectory()) {
+                    throw e;
+                }
+                logger.debug("Archive {} was concurrently extracted to {}", archive, entry);
+                return entry;
+            }
+            logger.debug("Extracted archive {} to {}", archive, entry);
+        } finally {
+            FileUtils.deleteQuietly(tempDirectory);
+        }
+
+        trim(entry);
+        return entry;
+    }
+
+
+    private String hash(File archive) throws IOException {
+        final String key = archive.getAbsolutePath() + ":" + archive.length() + ":" + archive.lastModified();
+        final ConcurrentMap<String, String> hashes = hashes();
+        final String existing = hashes.get(key);
+        if(existing != null) {
+            return existing;
+        }
+        final String hash = com.google.common.io.Files.asByteSource(archive).hash(Hashing.sha1()).toString();
+        if(hashes.putIfAbsent(key, hash) == null) {
+            appendHash(key, hash);
+        }
+        return hash;
+    }
+
+    private synchronized ConcurrentMap<String, String> hashes() {
+        if(hashes == null) {
+            hashes = Maps.newConcurrentMap();
+            final File file = hashesFile();
+            if(file.isFile()) {
+                try {
+                    for(String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                        // Lines that were partially written by an interrupted build are ignored.
+                        final int separator = line.lastIndexOf('\t');
+                        if(separator > 0 && hashPattern.matcher(line.substring(separator + 1)).matches()) {
+                            hashes.put(line.substring(0, separator), line.substring(separator + 1));
+                        }
+                    }
+                } catch(IOException e) {
+                    logger.debug("Cannot read hashes of archives from {}, hashing archives again", e, file);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private synchronized void appendHash(String key, String hash) {
+        final File file = hashesFile();
+        try {
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), (key + "\t" + hash + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch(IOException e) {
+            logger.debug("Cannot write hash of archive to {}", e, file);
+        }
+    }
+
+    /**
+     * Rewrites the hashes file with only the hashes of archives that did not change, removing duplicates and hashes of
+     * archives that changed or no longer exist.
+     */
+    private synchronized void compactHashes() {
+        final File file = hashesFile();
+        final StringBuilder contents = new StringBuilder();
+        for(Map.Entry<String, String> entry : hashes().entrySet()) {
+            final String key = entry.getKey();
+            final int mtimeSeparator = key.lastIndexOf(':');
+            final int sizeSeparator = key.lastIndexOf(':', mtimeSeparator - 1);
+            if(sizeSeparator < 0) {
+                continue;
+            }
+            final File archive = new File(key.substring(0, sizeSeparator));
+            if(key.equals(archive.getPath() + ":" + archive.length() + ":" + archive.lastModified())) {
+                contents.append(key).append('\t').append(entry.getValue()).append('\n');
+            }
+        }
+        final File tempFile = new File(file.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(tempFile.toPath(), contents.toString().getBytes(StandardCharsets.UTF_8));
+            // Hashes that other builds append while compacting are lost, those archives are hashed again.
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            logger.debug("Cannot compact hashes of archives in {}", e, file);
+            tempFile.delete();
+        }
+    }
+
+    private File hashesFile() {
+        return new File(directory, hashesName);
+    }
+
+    private File entry(String hash) {
+        return new File(new File(directory, hash.substring(0, 2)), hash);
+    }
+
+    private static File sizeFile(File entry) {
+        return new File(entry.getPath() + sizeExtension);
+    }
+
+    /**
+     * @return Size of the files in given entry, or -1 if the size of the entry is unknown.
+     */
+    private static long size(File entry) {
+        final File sizeFile = sizeFile(entry);
+        if(!sizeFile.isFile()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(sizeFile.toPath()), StandardCharsets.UTF_8).trim());
+        } catch(IOException | NumberFormatException e) {
+            logger.debug("Cannot read size of extracted archive {}, ignoring it", e, entry);
+            return -1;
+        }
+    }
+
+    private static long unzip(File archive, File destination) throws IOException {
+        final String root = destination.getCanonicalPath() + File.separator;
+        long size = 0;
+        try(final ZipFile zipFile = new ZipFile(archive)) {
+            for(Enumeration<? extends ZipEntry> entries = zipFile.entries(); entries.hasMoreElements();) {
+                final ZipEntry zipEntry = entries.nextElement();
+                final File file = new File(destination, zipEntry.getName());
+                if(!file.getCanonicalPath().startsWith(root)) {
+                    throw new IOException("Entry " + zipEntry.getName() + " of " + archive + " points outside of it");
+                }
+                if(zipEntry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+                try(final InputStream input = zipFile.getInputStream(zipEntry);
+                    final OutputStream output = new FileOutputStream(file)) {
+                    size += ByteStreams.copy(input, output);
+                }
+            }
+        }
+        destination.mkdirs();
+        return size;
+    }
+
+    /**
+     * Removes least recently used entries until the cache fits its maximum size, keeping given entry and recently used
+     * entries.
+     */
+    private synchronized void trim(File keep) {
+        compactHashes();
+        final List<File> entries = Lists.newArrayList();
+        long totalSize = 0;
+        final File[] prefixes = directory.listFiles();
+        if(prefixes == null) {
+            return;
+        }
+        for(File prefix : prefixes) {
+            if(!prefix.isDirectory()) {
+                continue;
+            }
+            final File[] files = prefix.listFiles();
+            if(files == null) {
+                continue;
+            }
+            for(File file : files) {
+                final String name = file.getName();
+                if(name.endsWith(".deleted")
+                    || name.endsWith(".tmp") && System.currentTimeMillis() - file.lastModified() > minimumAgeMillis) {
+                    // Left behind by a build that was interrupted while extracting or removing an entry.
+                    FileUtils.deleteQuietly(file);
+                    continue;
+                }
+                final long size = file.isDirectory() ? size(file) : -1;
+                if(size >= 0) {
+                    totalSize += size;
+                    entries.add(file);
+                }
+            }
+        }
+        if(totalSize <= maxSize) {
+            return;
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            @Override public int compare(File f1, File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for(File entry : entries) {
+            if(totalSize <= maxSize) {
+                break;
+            }
+            // Checked right before removing the entry, such that entries touched by other builds meanwhile are kept.
+            if(entry.equals(keep) || System.currentTimeMillis() - entry.lastModified() < minimumAgeMillis) {
+                continue;
+            }
+            final long size = size(entry);
+            if(size < 0) {
+                continue;
+            }
+            // Rename before deleting, such that other builds never use a partially deleted entry.
+            final File deleted = new File(entry.getPath() + "." + UUID.randomUUID() + ".deleted");
+            if(!entry.renameTo(deleted)) {
+                continue;
+            }
+            sizeFile(entry).delete();
+            FileUtils.deleteQuietly(deleted);
+            totalSize -= size;
+            logger.debug("Removed least recently used extracted archive {}", entry);
+        }
+        if(totalSize > maxSize) {
+            logger.warn("Extracted archive cache {} is larger than {} bytes, but its entries are still in use",
+                directory, maxSize);
+        }
+    }
+
+    @Override public String toString() {
+        return directory.toString();
+    }
+}
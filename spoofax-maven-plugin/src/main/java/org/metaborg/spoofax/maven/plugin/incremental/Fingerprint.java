@@ -0,0 +1,86 @@
+package org.metaborg.spoofax.maven.plugin.incremental;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Fingerprint of the inputs of a build step. Consists of named sections, such as configuration, sources, and
+ * languages, that each hold a hash of their inputs. Comparing sections reveals which inputs changed since a previous
+ * fingerprint.
+ */
+public class Fingerprint {
+    private final SortedMap<String, String> sections;
+
+
+    public Fingerprint(Map<String, String> sections) {
+        this.sections = Collections.unmodifiableSortedMap(new TreeMap<>(sections));
+    }
+
+
+    /**
+     * @return Hashes of each section, by section name.
+     */
+    public Map<String, String> sections() {
+        return sections;
+    }
+
+    /**
+     * @return Hash of all sections combined.
+     */
+    public String hash() {
+        final Hasher hasher = Hashing.sha1().newHasher();
+        for(Entry<String, String> entry : sections.entrySet()) {
+            hasher.putString(entry.getKey(), StandardCharsets.UTF_8).putByte((byte) 0);
+            hasher.putString(entry.getValue(), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Gets the names of sections that differ between this and given fingerprint.
+     * 
+     * @param previous
+     *            Fingerprint to compare against.
+     * @return Names of sections that differ, or that exist in only one of the fingerprints, in sorted order.
+     */
+    public List<String> changedSections(Fingerprint previous) {
+        final List<String> changed = Lists.newArrayList();
+        for(String name : Sets.newTreeSet(Sets.union(sections.keySet(), previous.sections.keySet()))) {
+            final String hash = sections.get(name);
+            if(hash == null || !hash.equals(previous.sections.get(name))) {
+                changed.add(name);
+            }
+        }
+        return changed;
+    }
+
+
+    @Override public int hashCode() {
+        return sections.hashCode();
+    }
+
+    @Override public boolean equals(Object obj) {
+        if(this == obj) {
+            return true;
+        }
+        if(obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final Fingerprint other = (Fingerprint) obj;
+        return sections.equals(other.sections);
+    }
+
+    @Override public String toString() {
+        return sections.toString();
+    }
+}
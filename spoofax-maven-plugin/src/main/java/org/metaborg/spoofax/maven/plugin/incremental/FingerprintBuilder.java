@@ -0,0 +1,154 @@
+package org.metaborg.spoofax.maven.plugin.incremental;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.commons.vfs2.FileContent;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.Selectors;
+
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+/**
+ * Builder for {@link Fingerprint}s. Files are identified by a name relative to a base location, and either by their
+ * size and modification time, which is cheap to compute, or by the hash of their contents, which is independent of the
+ * machine and checkout the files reside in.
+ */
+public class FingerprintBuilder {
+    private final boolean hashContents;
+    private final Map<String, Hasher> sections = Maps.newTreeMap();
+
+
+    /**
+     * @param hashContents
+     *            If file contents must be hashed, instead of using file size and modification time.
+     */
+    public FingerprintBuilder(boolean hashContents) {
+        this.hashContents = hashContents;
+    }
+
+
+    /**
+     * Adds a string to given section.
+     */
+    public FingerprintBuilder addString(String section, String value) {
+        hasher(section).putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds a local file or directory to given section, identified by given name. The files in a directory are added
+     * recursively, identified by their name relative to given name, in a stable order.
+     */
+    public FingerprintBuilder addFile(String section, String name, File file) throws IOException {
+        addString(section, name);
+        if(!file.exists()) {
+            return addString(section, "missing");
+        }
+        if(file.isDirectory()) {
+            addString(section, "directory");
+            final String[] names = file.list();
+            if(names == null) {
+                throw new IOException("Cannot list files in directory " + file);
+            }
+            Arrays.sort(names);
+            for(String childName : names) {
+                addFile(section, name + "/" + childName, new File(file, childName));
+            }
+            return this;
+        }
+        if(hashContents) {
+            return addString(section, Files.asByteSource(file).hash(Hashing.sha1()).toString());
+        }
+        return addString(section, file.length() + ":" + file.lastModified());
+    }
+
+    /**
+     * Adds a resource to given section, identified by its name relative to given base location. The files in a
+     * directory are added recursively.
+     */
+    public FingerprintBuilder addResource(String section, FileObject base, FileObject resource) throws IOException {
+        addString(section, base.getName().getRelativeName(resource.getName()));
+        if(!resource.exists()) {
+            return addString(section, "missing");
+        }
+        if(resource.getType() == FileType.FOLDER) {
+            addString(section, "directory");
+            return addTree(section, base, resource, Selectors.SELECT_FILES);
+        }
+        final FileContent content = resource.getContent();
+        if(hashContents) {
+            final Hasher contentHasher = Hashing.sha1().newHasher();
+            try(final InputStream stream = content.getInputStream()) {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while((read = stream.read(buffer)) != -1) {
+                    contentHasher.putBytes(buffer, 0, read);
+                }
+            }
+            return addString(section, contentHasher.hash().toString());
+        }
+        return addString(section, content.getSize() + ":" + content.getLastModifiedTime());
+    }
+
+    /**
+     * Adds all files in given directory that match given selector to given section, identified by their name relative
+     * to the directory, in a stable order.
+     */
+    public FingerprintBuilder addTree(String section, FileObject directory, FileSelector selector) throws IOException {
+        if(!directory.exists()) {
+            return addString(section, "missing");
+        }
+        return addTree(section, directory, directory, selector);
+    }
+
+
+    public Fingerprint build() {
+        final Map<String, String> hashes = Maps.newTreeMap();
+        for(Entry<String, Hasher> entry : sections.entrySet()) {
+            hashes.put(entry.getKey(), entry.getValue().hash().toString());
+        }
+        return new Fingerprint(hashes);
+    }
+
+
+    private FingerprintBuilder addTree(String section, FileObject base, FileObject directory, FileSelector selector)
+        throws IOException {
+        final FileObject[] resources = directory.findFiles(selector);
+        if(resources == null) {
+            return this;
+        }
+        Arrays.sort(resources, new Comparator<FileObject>() {
+            @Override public int compare(FileObject r1, FileObject r2) {
+                return r1.getName().getPath().compareTo(r2.getName().getPath());
+            }
+        });
+        for(FileObject resource : resources) {
+            if(resource.getType() == FileType.FILE) {
+                addResource(section, base, resource);
+            }
+        }
+        return this;
+    }
+
+
+    private Hasher hasher(String section) {
+        Hasher hasher = sections.get(section);
+        if(hasher == null) {
+            hasher = Hashing.sha1().newHasher();
+            sections.put(section, hasher);
+        }
+        return hasher;
+    }
+}
@@ -0,0 +1,104 @@
+package org.metaborg.spoofax.maven.plugin.incremental;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Stores the fingerprints of the last successful execution of build steps, one file per build step.
+ */
+public class FingerprintStore {
+    private static final ILogger logger = LoggerUtils.logger(FingerprintStore.class);
+
+    private final File directory;
+
+
+    public FingerprintStore(File directory) {
+        this.directory = directory;
+    }
+
+
+    /**
+     * Loads the fingerprint of given build step.
+     * 
+     * @param name
+     *            Name of the build step.
+     * @return Fingerprint, or null if there is no (readable) fingerprint for given build step.
+     */
+    public @Nullable Fingerprint load(String name) {
+        final File file = file(name);
+        if(!file.exists()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try(final InputStream stream = new FileInputStream(file)) {
+            properties.load(stream);
+        } catch(IOException e) {
+            logger.warn("Cannot read fingerprint {}, ignoring it", e, file);
+            return null;
+        }
+        final Map<String, String> sections = Maps.newHashMap();
+        for(String section : properties.stringPropertyNames()) {
+            sections.put(section, properties.getProperty(section));
+        }
+        return new Fingerprint(sections);
+    }
+
+    /**
+     * Saves the fingerprint of given build step.
+     * 
+     * @param name
+     *            Name of the build step.
+     * @param fingerprint
+     *            Fingerprint to save.
+     */
+    public void save(String name, Fingerprint fingerprint) {
+        final File file = file(name);
+        final Properties properties = new Properties();
+        properties.putAll(fingerprint.sections());
+        // Write to a temporary file and move it in place, such that an interrupted build, or a concurrent build of the
+        // same project, never leaves a partially written fingerprint that would be read as valid.
+        final File tempFile = new File(file.getPath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                properties.store(stream, "Fingerprint of " + name);
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            logger.warn("Cannot write fingerprint {}", e, file);
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Removes the fingerprint of given build step, such that it is executed the next time.
+     * 
+     * @param name
+     *            Name of the build step.
+     */
+    public void remove(String name) {
+        file(name).delete();
+    }
+
+
+    private File file(String name) {
+        return new File(directory, name + ".fingerprint");
+    }
+}
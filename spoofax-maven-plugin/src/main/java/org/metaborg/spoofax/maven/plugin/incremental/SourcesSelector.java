@@ -0,0 +1,48 @@
+package org.metaborg.spoofax.maven.plugin.incremental;
+
+import java.util.Collection;
+
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileType;
+import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+/**
+ * Selects the source files of a project: all files selected by {@link SpoofaxIgnoresSelector}, except for files in
+ * top-level directories that hold build outputs. Outputs must be excluded from input fingerprints, otherwise each
+ * build would invalidate the fingerprint of the next one. Fingerprints are computed before a build step is executed,
+ * so any output directory that is not excluded causes the step to be executed again in the next build.
+ */
+public class SourcesSelector implements FileSelector {
+    private static final Collection<String> defaultOutputDirectories = ImmutableSet.of("target", "src-gen", "bin");
+
+    private final FileSelector ignoresSelector = new SpoofaxIgnoresSelector();
+    private final Collection<String> outputDirectories;
+
+
+    /**
+     * @param outputDirectories
+     *            Names of additional top-level output directories, such as a build directory that is not named target.
+     */
+    public SourcesSelector(String... outputDirectories) {
+        this.outputDirectories = Sets.newHashSet(defaultOutputDirectories);
+        for(String outputDirectory : outputDirectories) {
+            this.outputDirectories.add(outputDirectory);
+        }
+    }
+
+
+    @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+        return fileInfo.getFile().getType() == FileType.FILE && ignoresSelector.includeFile(fileInfo);
+    }
+
+    @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+        if(fileInfo.getDepth() == 1 && outputDirectories.contains(fileInfo.getFile().getName().getBaseName())) {
+            return false;
+        }
+        return ignoresSelector.traverseDescendents(fileInfo);
+    }
+}
@@ -0,0 +1,138 @@
+package org.metaborg.spoofax.maven.plugin.incremental;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Manifest of the inputs of the last successful transformation: the hash of the contents of each transformed file,
+ * keyed by its URI, and a fingerprint of the configuration of the transformation, such as the language implementation
+ * and goal. Files whose hash did not change do not need to be transformed again, as long as the configuration did not
+ * change either. Only URIs and hashes are kept in memory, such that input files can be checked while they are
+ * enumerated.
+ */
+public class TransformManifest {
+    private static final ILogger logger = LoggerUtils.logger(TransformManifest.class);
+    private static final String configKey = "config";
+
+    private final File file;
+    private final String config;
+    private final Properties previous = new Properties();
+    private final Properties current = new Properties();
+
+
+    /**
+     * @param file
+     *            File to store the manifest in.
+     * @param config
+     *            Fingerprint of the configuration of the transformation.
+     */
+    public TransformManifest(File file, String config) {
+        this.file = file;
+        this.config = config;
+    }
+
+
+    /**
+     * Loads the manifest of the last transformation from disk. A manifest that does not exist, cannot be read, or was
+     * written for a different configuration is treated as empty, such that all files are transformed.
+     * 
+     * @return True if a manifest for the same configuration was loaded, false otherwise.
+     */
+    public boolean load() {
+        previous.clear();
+        current.clear();
+        if(!file.exists()) {
+            return false;
+        }
+        try(final InputStream stream = new FileInputStream(file)) {
+            previous.load(stream);
+        } catch(IOException e) {
+            logger.warn("Cannot read transformation manifest {}, ignoring it", e, file);
+            previous.clear();
+            return false;
+        }
+        if(!config.equals(previous.getProperty(configKey))) {
+            previous.clear();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Saves the files passed to {@link #changed(FileObject)} as the manifest of the last transformation.
+     */
+    public void save() {
+        current.setProperty(configKey, config);
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                current.store(stream, "Spoofax transformation manifest");
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            logger.warn("Cannot write transformation manifest {}", e, file);
+        }
+    }
+
+
+    /**
+     * Records the hash of the contents of given input file, and checks if it was added or changed since the last
+     * transformation.
+     * 
+     * @param file
+     *            Input file.
+     * @return True if the file was added or changed, false otherwise.
+     */
+    public boolean changed(FileObject file) throws IOException {
+        final String uri = file.getName().getURI();
+        final String hash = hash(file);
+        current.setProperty(uri, hash);
+        return !hash.equals(previous.getProperty(uri));
+    }
+
+    /**
+     * Gets the URIs of files that were transformed last time, but were not passed to {@link #changed(FileObject)}
+     * this time. Must be called after all input files were passed to {@link #changed(FileObject)}.
+     * 
+     * @return URIs of removed files.
+     */
+    public List<String> removed() {
+        final List<String> removed = Lists.newArrayList();
+        for(String uri : previous.stringPropertyNames()) {
+            if(!uri.equals(configKey) && !current.containsKey(uri)) {
+                removed.add(uri);
+            }
+        }
+        return removed;
+    }
+
+
+    private static String hash(FileObject file) throws IOException {
+        final Hasher hasher = Hashing.sha1().newHasher();
+        try(final InputStream stream = file.getContent().getInputStream()) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while((read = stream.read(buffer)) != -1) {
+                hasher.putBytes(buffer, 0, read);
+            }
+        }
+        return hasher.hash().toString();
+    }
+}
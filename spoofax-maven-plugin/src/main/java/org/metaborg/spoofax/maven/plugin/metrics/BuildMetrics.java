@@ -0,0 +1,206 @@
+package org.metaborg.spoofax.maven.plugin.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Timing and resource metrics of the phases of a Maven session, shared by all projects in the session. Phases record
+ * their wall-clock time, and the CPU time and allocated bytes of the thread they ran on. At the end of the session, a
+ * summary can be printed and all records can be exported as a Chrome trace, which can be loaded into chrome://tracing
+ * or other trace viewers.
+ */
+public class BuildMetrics {
+    private static final String key = BuildMetrics.class.getName();
+
+    private final Queue<PhaseRecord> records = new ConcurrentLinkedQueue<>();
+
+
+    /**
+     * Gets the metrics of given session, creating them if they do not exist yet.
+     * 
+     * @param session
+     *            Maven session to get the metrics for.
+     * @return Metrics of the session.
+     */
+    public static BuildMetrics get(MavenSession session) {
+        final SessionData data = session.getRepositorySession().getData();
+        while(true) {
+            final BuildMetrics metrics = (BuildMetrics) data.get(key);
+            if(metrics != null) {
+                return metrics;
+            }
+            if(data.set(key, null, new BuildMetrics())) {
+                return (BuildMetrics) data.get(key);
+            }
+        }
+    }
+
+
+    /**
+     * Starts measuring a phase. The returned phase must be closed on the same thread, preferably with a
+     * try-with-resources statement.
+     * 
+     * @param phase
+     *            Name of the phase.
+     * @param project
+     *            Identifier of the project the phase runs for, or null if it does not belong to a project.
+     * @param detail
+     *            Detail that distinguishes executions of the same phase, such as an artifact, or null if none.
+     * @return Running phase.
+     */
+    public Phase start(String phase, @Nullable String project, @Nullable String detail) {
+        return new Phase(this, phase, project, detail);
+    }
+
+    void record(PhaseRecord record) {
+        records.add(record);
+    }
+
+    /**
+     * @return All records, in order of their start time.
+     */
+    public List<PhaseRecord> records() {
+        final List<PhaseRecord> sorted = Lists.newArrayList(records);
+        Collections.sort(sorted, new Comparator<PhaseRecord>() {
+            @Override public int compare(PhaseRecord r1, PhaseRecord r2) {
+                return Long.compare(r1.startMicros, r2.startMicros);
+            }
+        });
+        return sorted;
+    }
+
+
+    /**
+     * Formats a summary of the records: the totals per phase, followed by the slowest executions of phases.
+     * 
+     * @param slowest
+     *            Number of slowest executions to include.
+     * @return Lines of the summary table.
+     */
+    public List<String> summary(int slowest) {
+        final List<PhaseRecord> all = records();
+        final Map<String, long[]> totals = Maps.newLinkedHashMap();
+        for(PhaseRecord record : all) {
+            long[] total = totals.get(record.phase);
+            if(total == null) {
+                total = new long[4];
+                totals.put(record.phase, total);
+            }
+            total[0] += 1;
+            total[1] += record.wallNanos;
+            total[2] += Math.max(0, record.cpuNanos);
+            total[3] += Math.max(0, record.allocatedBytes);
+        }
+
+        final List<String> lines = Lists.newArrayList();
+        final String format = "%-28s %6s %12s %12s %12s";
+        lines.add(String.format(format, "Phase", "Count", "Wall (ms)", "CPU (ms)", "Alloc (MB)"));
+        for(Map.Entry<String, long[]> entry : totals.entrySet()) {
+            final long[] total = entry.getValue();
+            lines.add(String.format(format, entry.getKey(), total[0], millis(total[1]), millis(total[2]),
+                megabytes(total[3])));
+        }
+
+        final List<PhaseRecord> bySlowest = Lists.newArrayList(all);
+        Collections.sort(bySlowest, new Comparator<PhaseRecord>() {
+            @Override public int compare(PhaseRecord r1, PhaseRecord r2) {
+                return Long.compare(r2.wallNanos, r1.wallNanos);
+            }
+        });
+        if(slowest > 0 && !bySlowest.isEmpty()) {
+            lines.add("");
+            lines.add(String.format("%12s  %s", "Wall (ms)", "Slowest phases"));
+            for(PhaseRecord record : bySlowest.subList(0, Math.min(slowest, bySlowest.size()))) {
+                lines.add(String.format("%12s  %s", millis(record.wallNanos), record));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes all records to given file in the Chrome trace event format, as complete events. CPU time and allocated
+     * bytes are written as arguments of the events.
+     * 
+     * @param file
+     *            File to write to.
+     */
+    public void writeTrace(File file) throws IOException {
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null) {
+            parent.mkdirs();
+        }
+        try(final Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            boolean first = true;
+            for(PhaseRecord record : records()) {
+                writer.write(first ? "\n" : ",\n");
+                first = false;
+                writer.write("{\"name\":" + string(record.detail != null ? record.detail : record.phase));
+                writer.write(",\"cat\":" + string(record.phase));
+                writer.write(",\"ph\":\"X\",\"pid\":1,\"tid\":" + record.threadId);
+                writer.write(",\"ts\":" + record.startMicros);
+                writer.write(",\"dur\":" + TimeUnit.NANOSECONDS.toMicros(record.wallNanos));
+                writer.write(",\"args\":{\"thread\":" + string(record.thread));
+                if(record.project != null) {
+                    writer.write(",\"project\":" + string(record.project));
+                }
+                if(record.items >= 0) {
+                    writer.write(",\"items\":" + record.items);
+                }
+                writer.write(",\"cpuMicros\":" + (record.cpuNanos >= 0 ? record.cpuNanos / 1000 : -1));
+                writer.write(",\"allocatedBytes\":" + record.allocatedBytes + "}}");
+            }
+            writer.write("\n]}\n");
+        }
+    }
+
+
+    private static String millis(long nanos) {
+        return Long.toString(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f", bytes / (1024.0 * 1024.0));
+    }
+
+    private static String string(String value) {
+        final StringBuilder builder = new StringBuilder(value.length() + 2);
+        builder.append('"');
+        for(int i = 0; i < value.length(); ++i) {
+            final char c = value.charAt(i);
+            switch(c) {
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
@@ -0,0 +1,161 @@
+package org.metaborg.spoofax.maven.plugin.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Emits {@link Phase}s as Java Flight Recorder events, such that recordings can be sliced by build phase. The plugin
+ * targets Java 8, where the JFR API is not available at compile time, so the event type is created at runtime through
+ * {@code jdk.jfr.EventFactory} and accessed reflectively. When the JFR API is not available, or no recording is
+ * enabled for the event, no event objects are kept and the overhead is a single check per phase.
+ */
+final class JfrPhaseEvents {
+    private static final ILogger logger = LoggerUtils.logger(JfrPhaseEvents.class);
+    private static final String eventName = "org.metaborg.spoofax.maven.Phase";
+
+    private static final @Nullable JfrPhaseEvents instance = create();
+
+    private final Object factory;
+    private final MethodHandle newEvent;
+    private final MethodHandle isEnabled;
+    private final MethodHandle begin;
+    private final MethodHandle end;
+    private final MethodHandle shouldCommit;
+    private final MethodHandle commit;
+    private final MethodHandle set;
+
+
+    private JfrPhaseEvents(Object factory, MethodHandle newEvent, MethodHandle isEnabled, MethodHandle begin,
+        MethodHandle end, MethodHandle shouldCommit, MethodHandle commit, MethodHandle set) {
+        this.factory = factory;
+        this.newEvent = newEvent;
+        this.isEnabled = isEnabled;
+        this.begin = begin;
+        this.end = end;
+        this.shouldCommit = shouldCommit;
+        this.commit = commit;
+        this.set = set;
+    }
+
+
+    /**
+     * Begins an event for a phase.
+     * 
+     * @return Event, or null if events are not supported or not enabled.
+     */
+    static @Nullable Object begin() {
+        if(instance == null) {
+            return null;
+        }
+        try {
+            final Object event = instance.newEvent.invoke(instance.factory);
+            if(!(boolean) instance.isEnabled.invoke(event)) {
+                return null;
+            }
+            instance.begin.invoke(event);
+            return event;
+        } catch(Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * Ends and commits an event for a phase.
+     * 
+     * @param event
+     *            Event returned by {@link #begin()}, or null.
+     */
+    static void commit(@Nullable Object event, String phase, @Nullable String project, @Nullable String detail,
+        long items) {
+        if(event == null || instance == null) {
+            return;
+        }
+        try {
+            instance.end.invoke(event);
+            if(!(boolean) instance.shouldCommit.invoke(event)) {
+                return;
+            }
+            instance.set.invoke(event, 0, phase);
+            instance.set.invoke(event, 1, project);
+            instance.set.invoke(event, 2, detail);
+            instance.set.invoke(event, 3, items);
+            instance.commit.invoke(event);
+        } catch(Throwable e) {
+            logger.trace("Cannot commit JFR event for phase {}", e, phase);
+        }
+    }
+
+
+    private static @Nullable JfrPhaseEvents create() {
+        try {
+            final ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+            final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement", true, classLoader);
+            final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor", true, classLoader);
+            final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory", true, classLoader);
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event", true, classLoader);
+            final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            final MethodHandle newAnnotation = lookup.findConstructor(annotationElementClass,
+                MethodType.methodType(void.class, Class.class, Object.class));
+            final MethodHandle newValue = lookup.findConstructor(valueDescriptorClass,
+                MethodType.methodType(void.class, Class.class, String.class, List.class));
+
+            // @formatter:off
+            final List<Object> eventAnnotations = Arrays.asList(
+                newAnnotation.invoke(annotation("jdk.jfr.Name", classLoader), eventName),
+                newAnnotation.invoke(annotation("jdk.jfr.Label", classLoader), "Spoofax Build Phase"),
+                newAnnotation.invoke(annotation("jdk.jfr.Category", classLoader), new String[] { "Spoofax", "Build" }),
+                newAnnotation.invoke(annotation("jdk.jfr.Description", classLoader),
+                    "Phase of a Spoofax Maven build, such as loading a language or transforming a batch of files")
+            );
+            final List<Object> fields = Arrays.asList(
+                newValue.invoke(String.class, "phase", label(newAnnotation, classLoader, "Phase")),
+                newValue.invoke(String.class, "project", label(newAnnotation, classLoader, "Project")),
+                newValue.invoke(String.class, "detail", label(newAnnotation, classLoader, "Detail")),
+                newValue.invoke(long.class, "items", label(newAnnotation, classLoader, "Items"))
+            );
+            // @formatter:on
+
+            final Object factory = lookup
+                .findStatic(eventFactoryClass, "create",
+                    MethodType.methodType(eventFactoryClass, List.class, List.class))
+                .invoke(eventAnnotations, fields);
+            // @formatter:off
+            return new JfrPhaseEvents(factory,
+                lookup.findVirtual(eventFactoryClass, "newEvent", MethodType.methodType(eventClass)),
+                lookup.findVirtual(eventClass, "isEnabled", MethodType.methodType(boolean.class)),
+                lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class)),
+                lookup.findVirtual(eventClass, "end", MethodType.methodType(void.class)),
+                lookup.findVirtual(eventClass, "shouldCommit", MethodType.methodType(boolean.class)),
+                lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class)),
+                lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class))
+            );
+            // @formatter:on
+        } catch(ClassNotFoundException e) {
+            logger.debug("Java Flight Recorder API is not available, not emitting JFR events");
+            return null;
+        } catch(Throwable e) {
+            logger.debug("Cannot create JFR event type, not emitting JFR events", e);
+            return null;
+        }
+    }
+
+    private static List<Object> label(MethodHandle newAnnotation, ClassLoader classLoader, String label)
+        throws Throwable {
+        return Arrays.asList(newAnnotation.invoke(annotation("jdk.jfr.Label", classLoader), label));
+    }
+
+    @SuppressWarnings("unchecked") private static Class<? extends Annotation> annotation(String name,
+        ClassLoader classLoader) throws ClassNotFoundException {
+        return (Class<? extends Annotation>) Class.forName(name, true, classLoader);
+    }
+}
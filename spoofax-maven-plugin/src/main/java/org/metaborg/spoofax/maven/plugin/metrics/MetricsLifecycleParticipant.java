@@ -0,0 +1,55 @@
+package org.metaborg.spoofax.maven.plugin.metrics;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.execution.MavenSession;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Reports the {@link BuildMetrics} of a session when the session ends. Prints a summary when the
+ * {@code spoofax.metrics} property is true, and writes a Chrome trace to the file in the {@code spoofax.metrics.file}
+ * property, relative to the directory Maven was executed in. Requires the plugin to be loaded as a build extension,
+ * which is the case for projects with Spoofax packaging.
+ */
+public class MetricsLifecycleParticipant extends AbstractMavenLifecycleParticipant {
+    private static final ILogger logger = LoggerUtils.logger(MetricsLifecycleParticipant.class);
+    private static final int slowest = 10;
+
+
+    @Override public void afterSessionEnd(MavenSession session) {
+        final boolean printSummary = Boolean.parseBoolean(property(session, "spoofax.metrics"));
+        final String traceFile = property(session, "spoofax.metrics.file");
+        if(!printSummary && traceFile == null) {
+            return;
+        }
+
+        final BuildMetrics metrics = BuildMetrics.get(session);
+        if(printSummary) {
+            logger.info("Spoofax build metrics");
+            for(String line : metrics.summary(slowest)) {
+                logger.info(line);
+            }
+        }
+        if(traceFile != null) {
+            File file = new File(traceFile);
+            if(!file.isAbsolute()) {
+                file = new File(session.getExecutionRootDirectory(), traceFile);
+            }
+            try {
+                metrics.writeTrace(file);
+                logger.info("Wrote Spoofax build trace to {}", file);
+            } catch(IOException e) {
+                logger.warn("Cannot write Spoofax build trace to {}", e, file);
+            }
+        }
+    }
+
+
+    private static String property(MavenSession session, String name) {
+        final String value = session.getUserProperties().getProperty(name);
+        return value != null ? value : session.getSystemProperties().getProperty(name);
+    }
+}
@@ -0,0 +1,104 @@
+package org.metaborg.spoofax.maven.plugin.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Running measurement of a build phase, which is recorded in {@link BuildMetrics} when it is closed. Must be closed on
+ * the thread that started it, since CPU time and allocation are measured for the current thread. Phases are also
+ * emitted as Java Flight Recorder events when a recording is enabled for them.
+ */
+public class Phase implements AutoCloseable {
+    private static final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    private static final boolean cpuTimeSupported = cpuTimeSupported();
+    private static final @Nullable com.sun.management.ThreadMXBean allocationBean = allocationBean();
+
+    private final BuildMetrics metrics;
+    private final String phase;
+    private final @Nullable String project;
+    private final @Nullable String detail;
+    private final long startMicros;
+    private final long startNanos;
+    private final long startCpuNanos;
+    private final long startAllocatedBytes;
+    private final @Nullable Object event;
+    private long items = -1;
+    private boolean closed = false;
+
+
+    Phase(BuildMetrics metrics, String phase, @Nullable String project, @Nullable String detail) {
+        this.metrics = metrics;
+        this.phase = phase;
+        this.project = project;
+        this.detail = detail;
+        this.startMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.startNanos = System.nanoTime();
+        this.startCpuNanos = cpuTimeSupported ? threadBean.getCurrentThreadCpuTime() : -1;
+        this.startAllocatedBytes = allocatedBytes();
+        this.event = JfrPhaseEvents.begin();
+    }
+
+
+    /**
+     * Sets the number of items, such as files or components, that are processed in this phase.
+     * 
+     * @param items
+     *            Number of items.
+     * @return This phase.
+     */
+    public Phase items(long items) {
+        this.items = items;
+        return this;
+    }
+
+
+    /**
+     * Stops the measurement and records it. Closing a phase more than once has no effect.
+     */
+    @Override public void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        final long wallNanos = System.nanoTime() - startNanos;
+        final long cpuNanos = startCpuNanos >= 0 ? threadBean.getCurrentThreadCpuTime() - startCpuNanos : -1;
+        final long allocatedBytes = startAllocatedBytes >= 0 ? allocatedBytes() - startAllocatedBytes : -1;
+        JfrPhaseEvents.commit(event, phase, project, detail, items);
+        final Thread thread = Thread.currentThread();
+        metrics.record(new PhaseRecord(phase, project, detail, items, thread.getName(), thread.getId(), startMicros,
+            wallNanos, cpuNanos, allocatedBytes));
+    }
+
+
+    private static long allocatedBytes() {
+        if(allocationBean == null) {
+            return -1;
+        }
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static boolean cpuTimeSupported() {
+        try {
+            return threadBean.isCurrentThreadCpuTimeSupported() && threadBean.isThreadCpuTimeEnabled();
+        } catch(UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static @Nullable com.sun.management.ThreadMXBean allocationBean() {
+        try {
+            if(threadBean instanceof com.sun.management.ThreadMXBean) {
+                final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+                if(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch(LinkageError | UnsupportedOperationException e) {
+            // Not a HotSpot-based JVM, allocation cannot be measured.
+        }
+        return null;
+    }
+}
@@ -0,0 +1,44 @@
+package org.metaborg.spoofax.maven.plugin.metrics;
+
+import javax.annotation.Nullable;
+
+/**
+ * Measurements of a single execution of a build phase.
+ */
+public class PhaseRecord {
+    public final String phase;
+    public final @Nullable String project;
+    public final @Nullable String detail;
+    /** Number of items processed, such as files or components, or -1 if unknown. */
+    public final long items;
+    public final String thread;
+    public final long threadId;
+    /** Start time, in microseconds since the epoch. */
+    public final long startMicros;
+    /** Wall-clock duration, in nanoseconds. */
+    public final long wallNanos;
+    /** CPU time of the executing thread, in nanoseconds, or -1 if not supported by the JVM. */
+    public final long cpuNanos;
+    /** Bytes allocated by the executing thread, or -1 if not supported by the JVM. */
+    public final long allocatedBytes;
+
+
+    public PhaseRecord(String phase, @Nullable String project, @Nullable String detail, long items, String thread,
+        long threadId, long startMicros, long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.phase = phase;
+        this.project = project;
+        this.detail = detail;
+        this.items = items;
+        this.thread = thread;
+        this.threadId = threadId;
+        this.startMicros = startMicros;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+
+    @Override public String toString() {
+        return phase + (project != null ? " " + project : "") + (detail != null ? " " + detail : "");
+    }
+}
@@ -1,20 +1,30 @@
 package org.metaborg.spoofax.maven.plugin.misc;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.vfs2.FileSelectInfo;
 import org.apache.commons.vfs2.FileSelector;
 import org.apache.commons.vfs2.FileType;
-import org.apache.maven.shared.utils.io.SelectorUtils;
 
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+
+/**
+ * Selects files that match the include and exclude patterns of a Maven file set. Patterns are compiled once, and
+ * directories are not traversed when no file below them can be selected.
+ */
 public class FileSetSelector implements FileSelector {
-    private final Collection<String> includes;
-    private final Collection<String> excludes;
+    private static final Splitter splitter = Splitter.on('/').omitEmptyStrings();
+
+    private final List<PathPattern> includes;
+    private final List<PathPattern> excludes;
 
 
     public FileSetSelector(Collection<String> includes, Collection<String> excludes) {
-        this.includes = includes;
-        this.excludes = excludes;
+        this.includes = compile(includes);
+        this.excludes = compile(excludes);
     }
 
 
@@ -22,17 +32,18 @@ public class FileSetSelector implements FileSelector {
         if(FileType.FOLDER.equals(fileInfo.getFile().getType())) {
             return false;
         }
-        String relativeName = fileInfo.getBaseFolder().getName().getRelativeName(fileInfo.getFile().getName());
-        for(String exclude : excludes) {
-            if(SelectorUtils.matchPath(exclude, relativeName)) {
+        final String relativeName = relativeName(fileInfo);
+        final List<String> segments = splitter.splitToList(relativeName);
+        for(PathPattern exclude : excludes) {
+            if(exclude.matches(relativeName, segments)) {
                 return false;
             }
         }
         if(includes.isEmpty()) {
             return true;
         }
-        for(String include : includes) {
-            if(SelectorUtils.matchPath(include, relativeName)) {
+        for(PathPattern include : includes) {
+            if(include.matches(relativeName, segments)) {
                 return true;
             }
         }
@@ -40,6 +51,39 @@ public class FileSetSelector implements FileSelector {
     }
 
     @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
-        return true;
+        if(fileInfo.getDepth() == 0) {
+            return true;
+        }
+        final List<String> segments = splitter.splitToList(relativeName(fileInfo));
+        for(PathPattern exclude : excludes) {
+            if(exclude.matchesAllBelow(segments)) {
+                return false;
+            }
+        }
+        if(includes.isEmpty()) {
+            return true;
+        }
+        for(PathPattern include : includes) {
+            if(include.mayMatchBelow(segments)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static String relativeName(FileSelectInfo fileInfo) throws Exception {
+        return fileInfo.getBaseFolder().getName().getRelativeName(fileInfo.getFile().getName());
+    }
+
+    private static List<PathPattern> compile(Collection<String> patterns) {
+        if(patterns == null) {
+            return Collections.emptyList();
+        }
+        final List<PathPattern> compiled = Lists.newArrayListWithCapacity(patterns.size());
+        for(String pattern : patterns) {
+            compiled.add(PathPattern.compile(pattern));
+        }
+        return compiled;
     }
 }
@@ -0,0 +1,154 @@
+package org.metaborg.spoofax.maven.plugin.misc;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+
+/**
+ * Lazy walk over the files below a directory that are selected by a {@link FileSelector}. Unlike
+ * {@link FileObject#findFiles(FileSelector)}, files are produced while walking, and only the directories that still
+ * need to be walked are kept in memory. The files of a directory are produced before the files in its subdirectories,
+ * in order of their names. Iterators throw {@link UncheckedIOException} when walking fails.
+ */
+public class FileWalk implements Iterable<FileObject> {
+    private static final Comparator<FileObject> byName = new Comparator<FileObject>() {
+        @Override public int compare(FileObject o1, FileObject o2) {
+            return o1.getName().compareTo(o2.getName());
+        }
+    };
+
+    private final FileObject root;
+    private final FileSelector selector;
+
+
+    public FileWalk(FileObject root, FileSelector selector) {
+        this.root = root;
+        this.selector = selector;
+    }
+
+
+    @Override public Iterator<FileObject> iterator() {
+        return new WalkIterator();
+    }
+
+
+    private class WalkIterator implements Iterator<FileObject> {
+        private final Deque<SelectInfo> directories = new ArrayDeque<>();
+        private final Deque<FileObject> files = new ArrayDeque<>();
+
+
+        public WalkIterator() {
+            try {
+                final SelectInfo rootInfo = new SelectInfo(root, root, 0);
+                if(root.getType() == FileType.FOLDER && traverse(rootInfo)) {
+                    directories.push(rootInfo);
+                }
+            } catch(FileSystemException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+
+        @Override public boolean hasNext() {
+            try {
+                while(files.isEmpty() && !directories.isEmpty()) {
+                    expand(directories.pop());
+                }
+            } catch(FileSystemException e) {
+                throw new UncheckedIOException(e);
+            }
+            return !files.isEmpty();
+        }
+
+        @Override public FileObject next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return files.poll();
+        }
+
+        @Override public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+
+        private void expand(SelectInfo directory) throws FileSystemException {
+            final FileObject[] children = directory.getFile().getChildren();
+            Arrays.sort(children, byName);
+            // Push subdirectories in reverse, such that they are walked in order of their names.
+            for(int i = children.length - 1; i >= 0; --i) {
+                final FileObject child = children[i];
+                final SelectInfo info = new SelectInfo(root, child, directory.getDepth() + 1);
+                final FileType type = child.getType();
+                if(type == FileType.FOLDER) {
+                    if(traverse(info)) {
+                        directories.push(info);
+                    }
+                } else if(type == FileType.FILE && include(info)) {
+                    files.addFirst(child);
+                }
+            }
+        }
+
+        private boolean traverse(FileSelectInfo info) throws FileSystemException {
+            try {
+                return selector.traverseDescendents(info);
+            } catch(FileSystemException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new FileSystemException(e);
+            }
+        }
+
+        private boolean include(FileSelectInfo info) throws FileSystemException {
+            try {
+                return selector.includeFile(info);
+            } catch(FileSystemException e) {
+                throw e;
+            } catch(Exception e) {
+                throw new FileSystemException(e);
+            }
+        }
+    }
+
+
+    private static class SelectInfo implements FileSelectInfo {
+        private final FileObject baseFolder;
+        private final FileObject file;
+        private final int depth;
+
+
+        public SelectInfo(FileObject baseFolder, FileObject file, int depth) {
+            this.baseFolder = baseFolder;
+            this.file = file;
+            this.depth = depth;
+        }
+
+
+        @Override public FileObject getBaseFolder() {
+            return baseFolder;
+        }
+
+        @Override public FileObject getFile() {
+            return file;
+        }
+
+        @Override public int getDepth() {
+            return depth;
+        }
+
+        @Override public String toString() {
+            return file.getName().getURI();
+        }
+    }
+}
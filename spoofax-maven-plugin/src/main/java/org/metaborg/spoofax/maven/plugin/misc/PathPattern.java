@@ -0,0 +1,224 @@
+package org.metaborg.spoofax.maven.plugin.misc;
+
+import java.util.BitSet;
+import java.util.List;
+
+import org.apache.maven.shared.utils.io.SelectorUtils;
+
+import com.google.common.base.Splitter;
+
+/**
+ * Ant-style path pattern, as used in Maven file sets, compiled for matching many paths. Matches the same paths as
+ * {@link SelectorUtils#matchPath(String, String)} for relative paths separated by '/'. Common pattern shapes are
+ * matched without splitting the path: literal paths, '**&#47;*.ext', and 'prefix/**'. Patterns are also matched
+ * against directories, to determine if a pattern can match any file below a directory.
+ */
+public class PathPattern {
+    private static final Splitter splitter = Splitter.on('/').omitEmptyStrings();
+    private static final String anyPath = "**";
+
+    private enum Kind {
+        /** Pattern without wildcards; matches the path equal to it. */
+        LITERAL,
+        /** Pattern of the form '**&#47;*suffix' without wildcards in the suffix; matches paths ending with suffix. */
+        SUFFIX,
+        /** Pattern of the form 'prefix/**' without wildcards in the prefix; matches the prefix and paths below it. */
+        PREFIX,
+        /** Any other Ant-style pattern, matched segment by segment. */
+        SEGMENTS,
+        /** Pattern prefixed with '%regex[' or '%ant[', matched by {@link SelectorUtils}. */
+        DELEGATE,
+        /** Absolute pattern, which never matches a relative path. */
+        NONE
+    }
+
+    private final String pattern;
+    private final Kind kind;
+    private final String literal;
+    private final String[] segments;
+
+
+    private PathPattern(String pattern, Kind kind, String literal, String[] segments) {
+        this.pattern = pattern;
+        this.kind = kind;
+        this.literal = literal;
+        this.segments = segments;
+    }
+
+
+    /**
+     * Compiles given Ant-style pattern.
+     */
+    public static PathPattern compile(String pattern) {
+        if(pattern.startsWith(SelectorUtils.REGEX_HANDLER_PREFIX)
+            || pattern.startsWith(SelectorUtils.ANT_HANDLER_PREFIX)) {
+            return new PathPattern(pattern, Kind.DELEGATE, null, null);
+        }
+        final String normalized = pattern.replace('\\', '/');
+        if(normalized.startsWith("/")) {
+            return new PathPattern(pattern, Kind.NONE, null, null);
+        }
+
+        final List<String> segmentList = splitter.splitToList(normalized);
+        final String[] segments = segmentList.toArray(new String[segmentList.size()]);
+        final String joined = String.join("/", segmentList);
+        if(!hasWildcards(joined)) {
+            return new PathPattern(pattern, Kind.LITERAL, joined, segments);
+        }
+        if(segments.length == 2 && segments[0].equals(anyPath) && segments[1].startsWith("*")
+            && !hasWildcards(segments[1].substring(1))) {
+            return new PathPattern(pattern, Kind.SUFFIX, segments[1].substring(1), segments);
+        }
+        if(segments.length >= 2 && segments[segments.length - 1].equals(anyPath)) {
+            final String prefix = joined.substring(0, joined.length() - anyPath.length() - 1);
+            if(!hasWildcards(prefix)) {
+                return new PathPattern(pattern, Kind.PREFIX, prefix, segments);
+            }
+        }
+        return new PathPattern(pattern, Kind.SEGMENTS, null, segments);
+    }
+
+
+    /**
+     * Checks if this pattern matches given path.
+     * 
+     * @param path
+     *            Relative path, separated by '/', without leading or trailing separators.
+     * @param pathSegments
+     *            Segments of the path.
+     * @return True if this pattern matches the path.
+     */
+    public boolean matches(String path, List<String> pathSegments) {
+        switch(kind) {
+            case LITERAL:
+                return path.equals(literal);
+            case SUFFIX:
+                return path.endsWith(literal);
+            case PREFIX:
+                return path.startsWith(literal)
+                    && (path.length() == literal.length() || path.charAt(literal.length()) == '/');
+            case SEGMENTS:
+                return advance(pathSegments).get(segments.length);
+            case DELEGATE:
+                return SelectorUtils.matchPath(pattern, path);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Checks if this pattern may match a path below given directory. May return true for directories below which no
+     * path matches, but never returns false for a directory below which a path matches.
+     * 
+     * @param directorySegments
+     *            Segments of the relative path of the directory.
+     */
+    public boolean mayMatchBelow(List<String> directorySegments) {
+        switch(kind) {
+            case DELEGATE:
+                return true;
+            case NONE:
+                return false;
+            default:
+                // A path below the directory matches if the pattern has segments left after matching the directory.
+                final BitSet states = advance(directorySegments);
+                return states.previousSetBit(segments.length - 1) >= 0;
+        }
+    }
+
+    /**
+     * Checks if this pattern matches all paths below given directory.
+     * 
+     * @param directorySegments
+     *            Segments of the relative path of the directory.
+     */
+    public boolean matchesAllBelow(List<String> directorySegments) {
+        switch(kind) {
+            case DELEGATE:
+            case NONE:
+                return false;
+            default:
+                // All paths below the directory match if the remainder of the pattern is '**'.
+                final int last = segments.length - 1;
+                return last >= 0 && segments[last].equals(anyPath) && advance(directorySegments).get(last);
+        }
+    }
+
+    @Override public String toString() {
+        return pattern;
+    }
+
+
+    /**
+     * Matches given path segments against the pattern segments, simulating the pattern as a non-deterministic
+     * automaton whose states are positions in the pattern.
+     * 
+     * @return Pattern positions reachable after matching all path segments.
+     */
+    private BitSet advance(List<String> pathSegments) {
+        BitSet states = new BitSet(segments.length + 1);
+        states.set(0);
+        closure(states);
+        for(String pathSegment : pathSegments) {
+            final BitSet next = new BitSet(segments.length + 1);
+            for(int i = states.nextSetBit(0); i >= 0 && i < segments.length; i = states.nextSetBit(i + 1)) {
+                final String segment = segments[i];
+                if(segment.equals(anyPath)) {
+                    next.set(i);
+                } else if(matchSegment(segment, pathSegment)) {
+                    next.set(i + 1);
+                }
+            }
+            if(next.isEmpty()) {
+                return next;
+            }
+            closure(next);
+            states = next;
+        }
+        return states;
+    }
+
+    /**
+     * Adds positions reachable by letting '**' match no segments.
+     */
+    private void closure(BitSet states) {
+        for(int i = states.nextSetBit(0); i >= 0 && i < segments.length; i = states.nextSetBit(i + 1)) {
+            if(segments[i].equals(anyPath)) {
+                states.set(i + 1);
+            }
+        }
+    }
+
+    /**
+     * Matches a single path segment against a pattern segment, where '*' matches any number of characters and '?'
+     * matches a single character.
+     */
+    private static boolean matchSegment(String pattern, String str) {
+        int p = 0;
+        int s = 0;
+        int star = -1;
+        int starMatch = 0;
+        while(s < str.length()) {
+            if(p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == str.charAt(s))) {
+                ++p;
+                ++s;
+            } else if(p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starMatch = s;
+            } else if(star >= 0) {
+                p = star + 1;
+                s = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while(p < pattern.length() && pattern.charAt(p) == '*') {
+            ++p;
+        }
+        return p == pattern.length();
+    }
+
+    private static boolean hasWildcards(String pattern) {
+        return pattern.indexOf('*') >= 0 || pattern.indexOf('?') >= 0;
+    }
+}
@@ -0,0 +1,64 @@
+package org.metaborg.spoofax.maven.plugin.mojo.daemon;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.daemon.DaemonInfo;
+import org.metaborg.spoofax.maven.plugin.daemon.DaemonServer;
+import org.metaborg.spoofax.maven.plugin.daemon.MojoHandler;
+
+/**
+ * Runs the Spoofax daemon until the process is stopped. The daemon keeps the Spoofax core, the loaded languages, and
+ * the warmed up Stratego runtimes of this JVM between builds. Builds with {@code -Dspoofax.daemon} send their Spoofax
+ * mojo executions to the daemon, and execute them in process when no daemon is running.
+ */
+@Mojo(name = "daemon", requiresDirectInvocation = true, requiresProject = false)
+public class DaemonMojo extends AbstractMojo {
+    @Parameter(defaultValue = "${session}", readonly = true) private MavenSession session;
+    @Parameter(defaultValue = "${localRepository}", readonly = true) private ArtifactRepository localRepository;
+    @Parameter(defaultValue = "${plugin.version}", readonly = true) private String pluginVersion;
+
+    @Parameter(property = "spoofax.daemon.file") private File daemonFile;
+    @Parameter(property = "spoofax.daemon.port", defaultValue = "0") private int port;
+
+
+    @Override public void execute() throws MojoExecutionException, MojoFailureException {
+        if(SpoofaxInit.shouldInit()) {
+            getLog().info("Initialising Spoofax core");
+            try {
+                SpoofaxInit.init();
+            } catch(MetaborgException e) {
+                throw new MojoExecutionException("Cannot instantiate Spoofax", e);
+            }
+        }
+
+        final File file = DaemonInfo.file(daemonFile, localRepository);
+        final DaemonServer server;
+        final DaemonInfo info;
+        try {
+            server = new DaemonServer(new MojoHandler(session, localRepository), port);
+            info = server.info(pluginVersion);
+            info.write(file);
+        } catch(IOException e) {
+            throw new MojoExecutionException("Cannot start Spoofax daemon", e);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override public void run() {
+                info.delete(file);
+            }
+        });
+
+        getLog().info("Spoofax daemon listening on " + info + ", written to " + file);
+        getLog().info("Build with -Dspoofax.daemon to use the daemon, stop the daemon with Ctrl+C");
+        server.run();
+    }
+}
@@ -1,16 +1,36 @@
 package org.metaborg.spoofax.maven.plugin.mojo.language;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
 import org.metaborg.core.config.ConfigException;
 import org.metaborg.spoofax.maven.plugin.AbstractSpoofaxMojo;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.cache.BuildOutputs;
+import org.metaborg.spoofax.maven.plugin.cache.IBuildCache;
+import org.metaborg.spoofax.maven.plugin.cache.LocalBuildCache;
+import org.metaborg.spoofax.maven.plugin.incremental.Fingerprint;
+import org.metaborg.spoofax.maven.plugin.incremental.FingerprintBuilder;
+import org.metaborg.spoofax.maven.plugin.incremental.FingerprintStore;
+import org.metaborg.spoofax.maven.plugin.incremental.SourcesSelector;
 import org.metaborg.spoofax.meta.core.build.LanguageSpecBuildInput;
 import org.metaborg.spoofax.meta.core.project.ISpoofaxLanguageSpec;
 
+import com.google.common.base.Joiner;
+
 public abstract class AbstractSpoofaxLanguageMojo extends AbstractSpoofaxMojo {
+    private static final String EXECUTED_ID = "spoofax-maven-plugin.executed.";
+
+    @Parameter(property = "spoofax.incremental", defaultValue = "false") protected boolean incremental;
+    @Parameter(property = "spoofax.cache.directory") private File cacheDirectory;
+
     @Nullable private ISpoofaxLanguageSpec languageSpec;
 
 
@@ -36,4 +56,215 @@ public abstract class AbstractSpoofaxLanguageMojo extends AbstractSpoofaxMojo {
     public LanguageSpecBuildInput buildInput() {
         return new LanguageSpecBuildInput(languageSpec);
     }
+
+
+    /**
+     * Computes the fingerprint of the inputs of a language specification build step: the project configuration, the
+     * sources of the language specification, the language artifacts it depends on, and the plugin version and given
+     * options.
+     * 
+     * @param hashContents
+     *            If file contents must be hashed, instead of using file size and modification time.
+     * @param options
+     *            Options of the build step that influence its outputs.
+     * @return Input fingerprint.
+     */
+    public Fingerprint inputFingerprint(boolean hashContents, String... options) throws MojoExecutionException {
+        final MavenProject project = mavenProject();
+        final FingerprintBuilder builder = new FingerprintBuilder(hashContents);
+        try {
+            builder.addResource("config", basedirLocation(), basedirLocation().resolveFile("metaborg.yaml"));
+            if(project != null && project.getFile() != null) {
+                builder.addFile("config", project.getFile().getName(), project.getFile());
+            }
+            // The build directory may be configured to be a directory other than target.
+            final SourcesSelector selector = project != null
+                ? new SourcesSelector(new File(project.getBuild().getDirectory()).getName()) : new SourcesSelector();
+            builder.addTree("sources", basedirLocation(), selector);
+            addLanguageDependencies(builder, "languages");
+        } catch(IOException e) {
+            throw new MojoExecutionException("Cannot compute fingerprint of build inputs", e);
+        }
+        builder.addString("options", pluginVersion() != null ? pluginVersion() : "");
+        for(String option : options) {
+            builder.addString("options", option);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Checks if given build step is up to date with respect to given fingerprint, logging why it is not. A build step
+     * is not up to date if one of its outputs is missing, or if one of the given other steps was executed earlier in
+     * this build. If the step is not up to date, its stored fingerprint is removed, such that it is executed again if
+     * this execution fails.
+     * 
+     * @param name
+     *            Name of the build step.
+     * @param fingerprint
+     *            Fingerprint of the current inputs of the build step.
+     * @param outputs
+     *            Outputs of the build step.
+     * @param dependencies
+     *            Names of build steps whose outputs are inputs to this build step.
+     * @return True if the build step is up to date and can be skipped, false otherwise.
+     */
+    public boolean upToDate(String name, Fingerprint fingerprint, BuildOutputs outputs, String... dependencies) {
+        final FingerprintStore store = fingerprintStore();
+        final Fingerprint previous = store.load(name);
+        if(previous == null) {
+            getLog().info("Executing " + name + ": no previous build");
+            return false;
+        }
+        final List<String> changed = fingerprint.changedSections(previous);
+        if(!changed.isEmpty()) {
+            getLog().info("Executing " + name + ": changed " + Joiner.on(", ").join(changed));
+            store.remove(name);
+            return false;
+        }
+        final List<String> missing = outputs.missing();
+        if(!missing.isEmpty()) {
+            getLog().info("Executing " + name + ": missing " + Joiner.on(", ").join(missing));
+            store.remove(name);
+            return false;
+        }
+        for(String dependency : dependencies) {
+            if(mavenProject().getContextValue(EXECUTED_ID + dependency) != null) {
+                getLog().info("Executing " + name + ": " + dependency + " was executed");
+                store.remove(name);
+                return false;
+            }
+        }
+        getLog().info("Skipping " + name + ": inputs have not changed since the last build");
+        return true;
+    }
+
+    /**
+     * Records that given build step was executed successfully with inputs of given fingerprint.
+     * 
+     * @param name
+     *            Name of the build step.
+     * @param fingerprint
+     *            Fingerprint of the inputs of the build step, computed before it was executed, such that inputs that
+     *            changed during its execution cause it to be executed again.
+     */
+    public void executed(String name, @Nullable Fingerprint fingerprint) {
+        mavenProject().setContextValue(EXECUTED_ID + name, true);
+        if(fingerprint != null) {
+            fingerprintStore().save(name, fingerprint);
+        }
+    }
+
+
+    /**
+     * Computes the key of given build step in the build cache, from the hashed contents of its inputs.
+     * 
+     * @param name
+     *            Name of the build step.
+     * @param options
+     *            Options of the build step that influence its outputs.
+     * @return Cache key, or null if no build cache is configured.
+     */
+    public @Nullable String cacheKey(String name, String... options) throws MojoExecutionException {
+        if(cacheDirectory == null) {
+            return null;
+        }
+        // Language dependencies are part of the key, make sure they are known.
+        discoverLanguages();
+        final String[] keyOptions = new String[options.length + 1];
+        keyOptions[0] = name;
+        System.arraycopy(options, 0, keyOptions, 1, options.length);
+        return inputFingerprint(true, keyOptions).hash();
+    }
+
+    /**
+     * @return Outputs of the language specification build steps: generated sources and the files in target/metaborg.
+     */
+    public BuildOutputs outputs() {
+        // @formatter:off
+        return new BuildOutputs()
+            .add("src-gen", srcGenDirectory())
+            .add("metaborg", metaborgDirectory())
+            ;
+        // @formatter:on
+    }
+
+    /**
+     * @return Directory of generated sources, which is excluded from input fingerprints.
+     */
+    public File srcGenDirectory() {
+        return new File(basedir(), "src-gen");
+    }
+
+    /**
+     * @return Directory of compiled language files, which is excluded from input fingerprints.
+     */
+    public File metaborgDirectory() {
+        return new File(mavenProject().getBuild().getDirectory(), "metaborg");
+    }
+
+    /**
+     * Restores given outputs from the build cache entry with given key.
+     * 
+     * @param key
+     *            Cache key, or null if no build cache is configured.
+     * @param outputs
+     *            Outputs to restore.
+     * @return True if the outputs were restored, false if the build step must be executed.
+     */
+    public boolean restoreOutputs(@Nullable String key, BuildOutputs outputs) {
+        if(key == null) {
+            return false;
+        }
+        final IBuildCache cache = new LocalBuildCache(cacheDirectory);
+        File entry = null;
+        try {
+            entry = File.createTempFile("spoofax-cache", ".zip");
+            if(!cache.get(key, entry)) {
+                getLog().info("Build cache miss for " + key);
+                return false;
+            }
+            outputs.unpack(entry);
+            getLog().info("Restored outputs from build cache entry " + key);
+            return true;
+        } catch(IOException e) {
+            getLog().warn("Cannot restore outputs from build cache " + cache + ", executing build step", e);
+            return false;
+        } finally {
+            if(entry != null) {
+                entry.delete();
+            }
+        }
+    }
+
+    /**
+     * Stores given outputs in the build cache under given key.
+     * 
+     * @param key
+     *            Cache key, or null if no build cache is configured.
+     * @param outputs
+     *            Outputs to store.
+     */
+    public void storeOutputs(@Nullable String key, BuildOutputs outputs) {
+        if(key == null) {
+            return;
+        }
+        final IBuildCache cache = new LocalBuildCache(cacheDirectory);
+        File entry = null;
+        try {
+            entry = File.createTempFile("spoofax-cache", ".zip");
+            outputs.pack(entry);
+            cache.put(key, entry);
+        } catch(IOException e) {
+            getLog().warn("Cannot store outputs in build cache " + cache, e);
+        } finally {
+            if(entry != null) {
+                entry.delete();
+            }
+        }
+    }
+
+
+    private FingerprintStore fingerprintStore() {
+        return new FingerprintStore(new File(mavenProject().getBuild().getDirectory(), "spoofax/fingerprints"));
+    }
 }
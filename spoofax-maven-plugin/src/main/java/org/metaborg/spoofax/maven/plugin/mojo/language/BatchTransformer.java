@@ -0,0 +1,180 @@
+package org.metaborg.spoofax.maven.plugin.mojo.language;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.maven.plugin.MojoFailureException;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Transforms sources in batches, running a bounded number of batches concurrently. Sources are enumerated while
+ * batches are transformed, and enumeration waits when enough batches are waiting to be transformed, such that the
+ * number of files in memory is bounded. Each batch is a separate build, results of batches are logged as they
+ * complete. Removed files are passed to the last batch.
+ */
+class BatchTransformer {
+    private static final ILogger logger = LoggerUtils.logger(BatchTransformer.class);
+
+    /**
+     * Build of a single batch.
+     */
+    interface IBatchBuild {
+        /**
+         * Builds given batch.
+         * 
+         * @param index
+         *            Index of the batch, starting at 1.
+         * @param sources
+         *            Sources to transform.
+         * @param removed
+         *            Changes for removed files, only non-empty for the last batch.
+         */
+        void build(int index, List<FileObject> sources, List<ResourceChange> removed) throws Exception;
+    }
+
+
+    private final int threads;
+    private final int batchSize;
+
+
+    /**
+     * @param threads
+     *            Maximum number of batches to transform concurrently.
+     * @param batchSize
+     *            Maximum number of sources in a batch.
+     */
+    public BatchTransformer(int threads, int batchSize) {
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+
+    /**
+     * Transforms given sources in batches.
+     * 
+     * @param sources
+     *            Sources to transform, enumerated while transforming.
+     * @param removed
+     *            Supplier of changes for removed files, called after all sources were enumerated.
+     * @param build
+     *            Build of a single batch.
+     * @return Number of batches that were transformed.
+     * @throws MojoFailureException
+     *             When one or more batches failed, after all batches completed.
+     */
+    public int transform(Iterable<FileObject> sources, Supplier<List<ResourceChange>> removed, IBatchBuild build)
+        throws MojoFailureException {
+        logger.info("Transforming files in batches of {} files using {} threads", batchSize, threads);
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new ThreadFactoryBuilder().setNameFormat("spoofax-transform-%d").setDaemon(true).build());
+        final CompletionService<Integer> completionService = new ExecutorCompletionService<>(executor);
+        // Bounds the number of enumerated batches that have not been transformed yet.
+        final Semaphore pending = new Semaphore(threads * 2);
+        final List<Throwable> failures = Lists.newArrayList();
+        int batches = 0;
+        int completed = 0;
+        int files = 0;
+        try {
+            List<FileObject> batch = Lists.newArrayListWithCapacity(batchSize);
+            for(FileObject source : sources) {
+                batch.add(source);
+                if(batch.size() == batchSize) {
+                    pending.acquire();
+                    completionService.submit(new Batch(build, ++batches, batch,
+                        Collections.<ResourceChange>emptyList(), pending));
+                    batch = Lists.newArrayListWithCapacity(batchSize);
+                }
+                Future<Integer> result;
+                while((result = completionService.poll()) != null) {
+                    files += collect(result, failures);
+                    ++completed;
+                }
+            }
+            final List<ResourceChange> removedChanges = removed.get();
+            if(!batch.isEmpty() || !removedChanges.isEmpty()) {
+                pending.acquire();
+                completionService.submit(new Batch(build, ++batches, batch, removedChanges, pending));
+            }
+            for(; completed < batches; ++completed) {
+                files += collect(completionService.take(), failures);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoFailureException("Interrupted while transforming", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if(batches == 0) {
+            return 0;
+        }
+        logger.info("Transformed {} files in {} batches in {} ms, {} batches failed", files, batches,
+            stopwatch.elapsed(TimeUnit.MILLISECONDS), failures.size());
+        if(!failures.isEmpty()) {
+            throw new MojoFailureException(failures.size() + " of " + batches + " batches failed", failures.get(0));
+        }
+        return batches;
+    }
+
+
+    private static int collect(Future<Integer> result, List<Throwable> failures) throws InterruptedException {
+        try {
+            return result.get();
+        } catch(ExecutionException e) {
+            logger.error("{}", e.getCause(), e.getCause().getMessage());
+            failures.add(e.getCause());
+            return 0;
+        }
+    }
+
+
+    private static class Batch implements Callable<Integer> {
+        private final IBatchBuild build;
+        private final int index;
+        private final List<FileObject> sources;
+        private final List<ResourceChange> removed;
+        private final Semaphore pending;
+
+
+        public Batch(IBatchBuild build, int index, List<FileObject> sources, List<ResourceChange> removed,
+            Semaphore pending) {
+            this.build = build;
+            this.index = index;
+            this.sources = sources;
+            this.removed = removed;
+            this.pending = pending;
+        }
+
+
+        @Override public Integer call() throws Exception {
+            try {
+                build.build(index, sources, removed);
+                logger.info("Transformed batch {} ({} files)", index, sources.size());
+                return sources.size();
+            } catch(Exception e) {
+                throw new MetaborgException("Error transforming batch " + index, e);
+            } finally {
+                pending.release();
+            }
+        }
+    }
+}
@@ -15,7 +15,7 @@ import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
 @Mojo(name = "clean", defaultPhase = LifecyclePhase.CLEAN, requiresDependencyResolution = ResolutionScope.COMPILE,
-    requiresDependencyCollection = ResolutionScope.COMPILE)
+    requiresDependencyCollection = ResolutionScope.COMPILE, threadSafe = true)
 public class CleanMojo extends AbstractSpoofaxLanguageMojo {
     private static final ILogger logger = LoggerUtils.logger(CleanMojo.class);
 
@@ -26,6 +26,9 @@ public class CleanMojo extends AbstractSpoofaxLanguageMojo {
         if(skip) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
         discoverLanguages();
 
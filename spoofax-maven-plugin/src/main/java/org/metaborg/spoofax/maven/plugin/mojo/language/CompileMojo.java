@@ -8,12 +8,16 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.cache.BuildOutputs;
+import org.metaborg.spoofax.maven.plugin.incremental.Fingerprint;
+import org.metaborg.spoofax.maven.plugin.metrics.Phase;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
-@Mojo(name = "compile", defaultPhase = LifecyclePhase.COMPILE)
+@Mojo(name = "compile", defaultPhase = LifecyclePhase.COMPILE, threadSafe = true)
 public class CompileMojo extends AbstractSpoofaxLanguageMojo {
     private static final ILogger logger = LoggerUtils.logger(CompileMojo.class);
+    static final String stepName = "compile";
 
     @Parameter(property = "spoofax.compile.skip", defaultValue = "false") private boolean skip;
 
@@ -22,6 +26,9 @@ public class CompileMojo extends AbstractSpoofaxLanguageMojo {
         if(skip || skipAll) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
         discoverLanguages();
 
@@ -30,8 +37,24 @@ public class CompileMojo extends AbstractSpoofaxLanguageMojo {
             throw new MojoExecutionException("Maven project is null, cannot build project");
         }
 
+        final Fingerprint fingerprint = incremental ? inputFingerprint(false) : null;
+        final BuildOutputs stepOutputs = new BuildOutputs().add("metaborg", metaborgDirectory());
+        if(fingerprint != null && upToDate(stepName, fingerprint, stepOutputs, GenerateSourcesMojo.stepName)) {
+            return;
+        }
+
+        final String cacheKey = cacheKey(stepName);
+        if(restoreOutputs(cacheKey, outputs())) {
+            executed(stepName, fingerprint);
+            return;
+        }
+
         try {
-            SpoofaxInit.spoofaxMeta().metaBuilder.compile(buildInput());
+            try(final Phase phase = phase("compile", null)) {
+                SpoofaxInit.spoofaxMeta().metaBuilder.compile(buildInput());
+            }
+            executed(stepName, fingerprint);
+            storeOutputs(cacheKey, outputs());
         } catch(MetaborgException e) {
             if(e.getCause() != null) {
                 logger.error("Exception thrown during build", e);
@@ -13,13 +13,18 @@ import org.metaborg.core.build.BuildInputBuilder;
 import org.metaborg.core.messages.StreamMessagePrinter;
 import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.cache.BuildOutputs;
+import org.metaborg.spoofax.maven.plugin.incremental.Fingerprint;
+import org.metaborg.spoofax.maven.plugin.metrics.Phase;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
 @Mojo(name = "generate-sources", defaultPhase = LifecyclePhase.GENERATE_SOURCES,
-    requiresDependencyResolution = ResolutionScope.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE)
+    requiresDependencyResolution = ResolutionScope.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE,
+    threadSafe = true)
 public class GenerateSourcesMojo extends AbstractSpoofaxLanguageMojo {
     private static final ILogger logger = LoggerUtils.logger(GenerateSourcesMojo.class);
+    static final String stepName = "generate-sources";
 
     @Parameter(property = "spoofax.generate-sources.skip", defaultValue = "false") private boolean skip;
 
@@ -27,12 +32,27 @@ public class GenerateSourcesMojo extends AbstractSpoofaxLanguageMojo {
         if(skip || skipAll) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
         discoverLanguages();
 
+        final Fingerprint fingerprint = incremental ? inputFingerprint(false) : null;
+        final BuildOutputs stepOutputs = new BuildOutputs().add("src-gen", srcGenDirectory());
+        if(fingerprint != null && upToDate(stepName, fingerprint, stepOutputs)) {
+            return;
+        }
+
+        final String cacheKey = cacheKey(stepName);
+        if(restoreOutputs(cacheKey, outputs())) {
+            executed(stepName, fingerprint);
+            return;
+        }
+
         getLog().info("Generating Spoofax sources");
 
-        try {
+        try(final Phase phase = phase("generate-sources", null)) {
             SpoofaxInit.spoofaxMeta().metaBuilder.generateSources(buildInput(), null);
         } catch(Exception e) {
             throw new MojoFailureException(e.getMessage(), e);
@@ -53,7 +73,11 @@ public class GenerateSourcesMojo extends AbstractSpoofaxLanguageMojo {
                 ;
             // @formatter:on
 
-            SpoofaxInit.spoofax().processorRunner.build(input, null, null).schedule().block();
+            try(final Phase phase = phase("build", null)) {
+                SpoofaxInit.spoofax().processorRunner.build(input, null, null).schedule().block();
+            }
+            executed(stepName, fingerprint);
+            storeOutputs(cacheKey, outputs());
         } catch(MetaborgException e) {
             if(e.getCause() != null) {
                 logger.error("Exception thrown during generation", e);
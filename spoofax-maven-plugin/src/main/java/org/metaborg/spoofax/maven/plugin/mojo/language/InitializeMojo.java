@@ -10,7 +10,7 @@ import org.metaborg.core.MetaborgException;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
 
 @Mojo(name = "initialize", defaultPhase = LifecyclePhase.INITIALIZE,
-    requiresDependencyResolution = ResolutionScope.COMPILE)
+    requiresDependencyResolution = ResolutionScope.COMPILE, threadSafe = true)
 public class InitializeMojo extends AbstractSpoofaxLanguageMojo {
     @Parameter(property = "spoofax.initialise.skip", defaultValue = "false") boolean skip;
 
@@ -19,6 +19,9 @@ public class InitializeMojo extends AbstractSpoofaxLanguageMojo {
         if(skip || skipAll) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
 
         try {
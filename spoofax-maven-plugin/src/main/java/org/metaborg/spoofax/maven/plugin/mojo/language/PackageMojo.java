@@ -1,6 +1,12 @@
 package org.metaborg.spoofax.maven.plugin.mojo.language;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -12,15 +18,33 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.plexus.archiver.Archiver;
 import org.codehaus.plexus.archiver.zip.ZipArchiver;
 import org.metaborg.core.MetaborgException;
+import org.metaborg.core.config.IExportConfig;
+import org.metaborg.core.config.IExportVisitor;
+import org.metaborg.core.config.LangDirExport;
+import org.metaborg.core.config.LangFileExport;
+import org.metaborg.core.config.ResourceExport;
 import org.metaborg.core.language.ILanguageComponent;
 import org.metaborg.core.language.ILanguageDiscoveryRequest;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.archive.ArchiveManifest;
+import org.metaborg.spoofax.maven.plugin.archive.EntryManifest;
+import org.metaborg.spoofax.maven.plugin.archive.ZipWriter;
+import org.metaborg.spoofax.maven.plugin.cache.BuildOutputs;
+import org.metaborg.spoofax.maven.plugin.metrics.Phase;
+import org.metaborg.spoofax.maven.plugin.misc.FileSetSelector;
+import org.metaborg.spoofax.maven.plugin.misc.FileWalk;
 import org.metaborg.spoofax.meta.core.build.SpoofaxLangSpecCommonPaths;
+import org.metaborg.spoofax.meta.core.project.ISpoofaxLanguageSpec;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
-@Mojo(name = "package", defaultPhase = LifecyclePhase.PACKAGE)
+@Mojo(name = "package", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
 public class PackageMojo extends AbstractSpoofaxLanguageMojo {
+    static final String stepName = "package";
+
     @Component(role = Archiver.class, hint = "zip") private ZipArchiver zipArchiver;
 
     @Parameter(defaultValue = "${project.build.directory}", readonly = true) private File buildDirectory;
@@ -28,9 +52,16 @@ public class PackageMojo extends AbstractSpoofaxLanguageMojo {
 
     @Parameter(defaultValue = "${project.build.finalName}") private String finalName;
     @Parameter(property = "spoofax.package.skip", defaultValue = "false") private boolean skip;
+    @Parameter(property = "spoofax.package.reloadFromOutput", defaultValue = "false") private boolean reloadFromOutput;
+    @Parameter(property = "spoofax.package.parallelArchive", defaultValue = "false") private boolean parallelArchive;
+    @Parameter(property = "spoofax.package.archiveThreads", defaultValue = "0") private int archiveThreads;
 
 
     @Override public void execute() throws MojoFailureException, MojoExecutionException {
+        // Also executed when skipped, since the artifact file must be set. The daemon sends it back.
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
 
         final SpoofaxLangSpecCommonPaths paths = new SpoofaxLangSpecCommonPaths(basedirLocation());
@@ -44,18 +75,36 @@ public class PackageMojo extends AbstractSpoofaxLanguageMojo {
 
         getLog().info("Packaging Spoofax language");
 
-        try {
-            SpoofaxInit.spoofaxMeta().metaBuilder.pkg(buildInput());
-            SpoofaxInit.spoofaxMeta().metaBuilder.archive(buildInput());
-        } catch(Exception e) {
-            throw new MojoFailureException(e.getMessage(), e);
+        // Archives written in parallel are not byte for byte the same as archives written by the meta builder.
+        final String cacheKey = cacheKey(stepName, "parallelArchive=" + parallelArchive);
+        final BuildOutputs outputs = outputs().add("archive", localSpxArchiveFile);
+        if(!restoreOutputs(cacheKey, outputs)) {
+            try {
+                try(final Phase phase = phase("package", null)) {
+                    SpoofaxInit.spoofaxMeta().metaBuilder.pkg(buildInput());
+                }
+                try(final Phase phase = phase("archive", null)) {
+                    if(parallelArchive) {
+                        phase.items(writeArchive(localSpxArchiveFile));
+                    } else {
+                        SpoofaxInit.spoofaxMeta().metaBuilder.archive(buildInput());
+                    }
+                }
+            } catch(Exception e) {
+                throw new MojoFailureException(e.getMessage(), e);
+            }
+            storeOutputs(cacheKey, outputs);
+        }
+
+        if(reloadFromOutput && reloadFromOutput(localSpxArchiveFile)) {
+            return;
         }
 
         // Resolve to contents of the archive (zip) file, such that discovery looks inside the zip file.
         final FileObject zipSpxArchiveFile =
             SpoofaxInit.spoofax().resourceService.resolve("zip:" + spxArchiveFile.getName().getURI() + "!/");
         getLog().info("Reloading language from: " + zipSpxArchiveFile);
-        try {
+        try(final Phase phase = phase("reload", null)) {
             final Iterable<ILanguageDiscoveryRequest> request =
                 SpoofaxInit.spoofax().languageDiscoveryService.request(zipSpxArchiveFile);
             final Iterable<ILanguageComponent> components =
@@ -67,4 +116,174 @@ public class PackageMojo extends AbstractSpoofaxLanguageMojo {
             throw new MojoExecutionException("Failed to reload language", e);
         }
     }
+
+
+    /**
+     * Reloads the language from the build output it was just packaged from, instead of from the archive. The archive
+     * is checked against a manifest of the build output first, by reading its central directory only, such that the
+     * loaded language is the same as the packaged language.
+     * 
+     * @param archive
+     *            Archive that was packaged from the build output.
+     * @return True if the language was reloaded, false if the archive does not match the build output or loading
+     *         failed, in which case the language must be reloaded from the archive.
+     */
+    private boolean reloadFromOutput(File archive) {
+        try(final Phase phase = phase("reload", "build output")) {
+            final ArchiveManifest expected =
+                ArchiveManifest.ofDirectory(new File(buildDirectory, "metaborg"), "target/metaborg/");
+            final List<String> mismatches = ArchiveManifest.ofArchive(archive).mismatches(expected);
+            if(expected.isEmpty() || !mismatches.isEmpty()) {
+                getLog().info("Archive does not match the build output, reloading language from the archive");
+                getLog().debug("Mismatching archive entries: " + Joiner.on(", ").join(mismatches));
+                return false;
+            }
+            getLog().info("Reloading language from build output: " + basedir());
+            phase.items(expected.entries().size());
+            return discoverSelf();
+        } catch(IOException e) {
+            getLog().warn("Cannot check archive " + archive + " against the build output, reloading from the archive",
+                e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the language archive with a {@link ZipWriter}, which compresses entries in parallel and writes a
+     * reproducible archive. The archive contains the entries of {@link #addEntries}. In incremental builds, entries of
+     * which the file did not change since the previous build are copied from the previous archive, and the archive is
+     * not written at all if no entries changed.
+     * 
+     * @param archive
+     *            File to write the archive to.
+     * @return Number of entries in the archive.
+     */
+    private int writeArchive(File archive) throws IOException, MojoExecutionException {
+        final int threads = archiveThreads > 0 ? archiveThreads : Runtime.getRuntime().availableProcessors();
+        final ZipWriter writer = new ZipWriter(threads);
+        addEntries(writer, languageSpec());
+
+        final EntryManifest manifest = new EntryManifest(new File(archive.getPath() + ".entries"));
+        if(!incremental) {
+            manifest.delete();
+            getLog().info("Writing " + writer.entries().size() + " archive entries using " + threads + " threads");
+            writer.write(archive);
+            return writer.entries().size();
+        }
+
+        final boolean loaded = manifest.load(archive);
+        final Set<String> unchanged = Sets.newHashSet();
+        for(Map.Entry<String, File> entry : writer.entries().entrySet()) {
+            if(manifest.unchanged(entry.getKey(), entry.getValue())) {
+                unchanged.add(entry.getKey());
+            }
+        }
+        if(loaded && unchanged.size() == writer.entries().size() && manifest.removed().isEmpty()) {
+            getLog().info("Archive is up to date, " + writer.entries().size() + " entries did not change");
+            manifest.save(archive);
+            return writer.entries().size();
+        }
+
+        int reused = 0;
+        if(loaded && !unchanged.isEmpty()) {
+            try {
+                reused = writer.reuse(archive, unchanged);
+            } catch(IOException e) {
+                getLog().warn("Cannot copy entries from previous archive, writing all entries", e);
+            }
+        }
+        getLog().info("Writing " + (writer.entries().size() - reused) + " changed archive entries using " + threads
+            + " threads, copying " + reused + " unchanged entries");
+        try {
+            writer.write(archive);
+        } catch(IOException e) {
+            if(reused == 0) {
+                throw e;
+            }
+            // The previous archive was changed outside of the build, such that its entries do not match their CRC.
+            getLog().warn("Cannot copy entries from previous archive, writing all entries", e);
+            writer.clearReused();
+            writer.write(archive);
+        }
+        manifest.save(archive);
+        return writer.entries().size();
+    }
+
+    /**
+     * Adds the entries of the archive of the Spoofax meta builder to given writer: the component configuration, the
+     * build output in {@code target/metaborg}, and the exported files of the language specification. Entries are named
+     * by their path relative to the language specification, except for the component configuration, which is at the
+     * root of the archive.
+     * 
+     * @param writer
+     *            Writer to add the entries to.
+     * @param languageSpec
+     *            Language specification to archive.
+     * @throws MojoExecutionException
+     *             When the component configuration was not generated.
+     */
+    static void addEntries(final ZipWriter writer, ISpoofaxLanguageSpec languageSpec)
+        throws IOException, MojoExecutionException {
+        final FileObject root = languageSpec.location();
+        final File basedir = SpoofaxInit.spoofax().resourceService.localFile(root);
+
+        final File componentConfig = new File(basedir, "src-gen/metaborg.component.yaml");
+        if(!componentConfig.isFile()) {
+            throw new MojoExecutionException("Cannot archive language, component configuration " + componentConfig
+                + " does not exist; run the generate-sources goal first");
+        }
+        writer.add("metaborg.component.yaml", componentConfig);
+        addFiles(writer, root, "target/metaborg", Collections.<String>emptyList(), Collections.<String>emptyList());
+        for(IExportConfig export : languageSpec.config().exports()) {
+            final List<IOException> exceptions = Lists.newArrayList();
+            export.accept(new IExportVisitor() {
+                @Override public void visit(LangDirExport export) {
+                    addFiles(export.directory, export.includes, export.excludes);
+                }
+
+                @Override public void visit(LangFileExport export) {
+                    final File file = new File(basedir, export.file);
+                    if(file.isFile()) {
+                        writer.add(export.file, file);
+                    }
+                }
+
+                @Override public void visit(ResourceExport export) {
+                    addFiles(export.directory, export.includes, export.excludes);
+                }
+
+                private void addFiles(String directory, Iterable<String> includes, Iterable<String> excludes) {
+                    try {
+                        PackageMojo.addFiles(writer, root, directory, Lists.newArrayList(includes),
+                            Lists.newArrayList(excludes));
+                    } catch(IOException e) {
+                        exceptions.add(e);
+                    }
+                }
+            });
+            if(!exceptions.isEmpty()) {
+                throw exceptions.get(0);
+            }
+        }
+    }
+
+    /**
+     * Adds the files in a directory of the project that match given patterns to the archive, under their path relative
+     * to the project.
+     */
+    private static void addFiles(ZipWriter writer, FileObject root, String directory, List<String> includes,
+        List<String> excludes) throws IOException {
+        final FileObject location = root.resolveFile(directory);
+        if(!location.exists()) {
+            return;
+        }
+        try {
+            for(FileObject file : new FileWalk(location, new FileSetSelector(includes, excludes))) {
+                final String name = root.getName().getRelativeName(file.getName());
+                writer.add(name, SpoofaxInit.spoofax().resourceService.localFile(file));
+            }
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 }
@@ -1,17 +1,25 @@
 package org.metaborg.spoofax.maven.plugin.mojo.language;
 
 import java.io.File;
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileType;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.FileSet;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.metaborg.core.MetaborgException;
 import org.metaborg.core.action.CompileGoal;
 import org.metaborg.core.action.EndNamedGoal;
 import org.metaborg.core.action.ITransformGoal;
@@ -21,16 +29,26 @@ import org.metaborg.core.language.ILanguage;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.messages.StreamMessagePrinter;
 import org.metaborg.core.project.IProject;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.resource.ResourceChangeKind;
 import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
 import org.metaborg.spoofax.maven.plugin.AbstractSpoofaxMojo;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.incremental.FingerprintBuilder;
+import org.metaborg.spoofax.maven.plugin.incremental.TransformManifest;
+import org.metaborg.spoofax.maven.plugin.metrics.Phase;
 import org.metaborg.spoofax.maven.plugin.misc.FileSetSelector;
+import org.metaborg.spoofax.maven.plugin.misc.FileWalk;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
-@Mojo(name = "transform")
+@Mojo(name = "transform", threadSafe = true)
 public class TransformMojo extends AbstractSpoofaxMojo {
     private static final ILogger logger = LoggerUtils.logger(TransformMojo.class);
 
@@ -41,6 +59,14 @@ public class TransformMojo extends AbstractSpoofaxMojo {
     @Parameter(defaultValue = "true") boolean includeDependencies;
     @Parameter private List<FileSet> fileSets;
     @Parameter private List<FileSet> auxFileSets;
+    /**
+     * Number of batches of files to transform concurrently. Only set this above 1 for languages whose contexts lock,
+     * since batches share the contexts of the project.
+     */
+    @Parameter(property = "spoofax.transform.threads", defaultValue = "1") int threads;
+    @Parameter(property = "spoofax.transform.batchSize", defaultValue = "100") int batchSize;
+    @Parameter(property = "spoofax.incremental", defaultValue = "false") boolean incremental;
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true) private MojoExecution mojoExecution;
 
 
     @Override public void execute() throws MojoFailureException, MojoExecutionException {
@@ -69,48 +95,192 @@ public class TransformMojo extends AbstractSpoofaxMojo {
                 SpoofaxInit.spoofax().languagePathService.includePaths(project, language));
             final ITransformGoal goal = this.goal == null ? new CompileGoal() : new EndNamedGoal(this.goal);
 
-            final BuildInputBuilder inputBuilder = new BuildInputBuilder(project);
-            // @formatter:off
-            final BuildInput input = inputBuilder
-                .addLanguage(languageImpl)
-                .withDefaultIncludePaths(false)
-                .withSources(sources)
-                .withSelector(new SpoofaxIgnoresSelector())
-                .withMessagePrinter(new StreamMessagePrinter(SpoofaxInit.spoofax().sourceTextService, true, true, logger))
-                // GTODO: are the includes here paths or files? if files, this will not work because the builder needs paths.
-                .addIncludePaths(languageImpl, includes)
-                .withThrowOnErrors(true)
-                .addTransformGoal(goal)
-                .build(SpoofaxInit.spoofax().dependencyService, SpoofaxInit.spoofax().languagePathService)
-                ;
-            // @formatter:on
-
-            try {
-                SpoofaxInit.spoofax().processorRunner.build(input, null, null).schedule().block();
-            } catch(Exception e) {
-                throw new MojoFailureException("Error generating sources", e);
+            final TransformManifest manifest;
+            final Iterable<FileObject> selected;
+            if(incremental) {
+                manifest = new TransformManifest(manifestFile(), config(languageImpl, includes));
+                if(!manifest.load()) {
+                    logger.info("Transforming all files: no previous transformation with the same language, goal, "
+                        + "and included files");
+                }
+                selected = changed(expand(sources), manifest);
+            } else {
+                manifest = null;
+                selected = sources;
+            }
+
+            if(threads <= 1) {
+                // A single build requires all files up front.
+                final List<FileObject> files = Lists.newArrayList(selected);
+                final List<ResourceChange> removed = removed(manifest);
+                if(manifest != null) {
+                    if(files.isEmpty() && removed.isEmpty()) {
+                        logger.info("Skipping transformation: no files changed since the last transformation");
+                        return;
+                    }
+                    logger.info("Transforming {} changed files, {} files were removed", files.size(),
+                        removed.size());
+                }
+                final BuildInput input = buildInput(project, languageImpl, files, removed, includes, goal);
+                try(final Phase phase = phase("transform", languageImpl.id().toString()).items(files.size())) {
+                    SpoofaxInit.spoofax().processorRunner.build(input, null, null).schedule().block();
+                } catch(Exception e) {
+                    throw new MojoFailureException("Error generating sources", e);
+                }
+            } else {
+                transformConcurrently(project, languageImpl, selected, manifest, includes, goal);
+            }
+
+            if(manifest != null) {
+                manifest.save();
             }
         } catch(Exception e) {
             throw new MojoExecutionException(e.getMessage(), e);
         }
     }
 
+    private BuildInput buildInput(IProject project, ILanguageImpl languageImpl, Iterable<FileObject> sources,
+        Iterable<ResourceChange> removed, Iterable<FileObject> includes, ITransformGoal goal) throws MetaborgException {
+        final BuildInputBuilder inputBuilder = new BuildInputBuilder(project);
+        // @formatter:off
+        return inputBuilder
+            .addLanguage(languageImpl)
+            .withDefaultIncludePaths(false)
+            .withSources(sources)
+            .withSourceChanges(removed)
+            .withSelector(new SpoofaxIgnoresSelector())
+            .withMessagePrinter(new StreamMessagePrinter(SpoofaxInit.spoofax().sourceTextService, true, true, logger))
+            // GTODO: are the includes here paths or files? if files, this will not work because the builder needs paths.
+            .addIncludePaths(languageImpl, includes)
+            .withThrowOnErrors(true)
+            .addTransformGoal(goal)
+            .build(SpoofaxInit.spoofax().dependencyService, SpoofaxInit.spoofax().languagePathService)
+            ;
+        // @formatter:on
+    }
+
+    /**
+     * Transforms sources in batches of {@link #batchSize} files, running up to {@link #threads} batches concurrently.
+     * Batches share the contexts of the project, so this is only safe for languages whose contexts lock, such that
+     * batches that use the same context are serialized, and only languages whose contexts are not shared between files
+     * benefit from running batches concurrently.
+     */
+    private void transformConcurrently(final IProject project, final ILanguageImpl languageImpl,
+        Iterable<FileObject> sources, final @Nullable TransformManifest manifest, final Iterable<FileObject> includes,
+        final ITransformGoal goal) throws MojoFailureException {
+        final int batches = new BatchTransformer(threads, batchSize).transform(sources,
+            new Supplier<List<ResourceChange>>() {
+                @Override public List<ResourceChange> get() {
+                    return removed(manifest);
+                }
+            }, new BatchTransformer.IBatchBuild() {
+                @Override public void build(int index, List<FileObject> batch, List<ResourceChange> removed)
+                    throws Exception {
+                    try(final Phase phase =
+                        phase("transform", languageImpl.id() + " batch " + index).items(batch.size())) {
+                        final BuildInput input = buildInput(project, languageImpl, batch, removed, includes, goal);
+                        SpoofaxInit.spoofax().processorRunner.build(input, null, null).schedule().block();
+                    }
+                }
+            });
+        if(batches == 0) {
+            logger.info("Skipping transformation: no files changed since the last transformation");
+        }
+    }
+
+    /**
+     * Expands directories in given resources into the files inside them that are not ignored, while iterating.
+     */
+    private static Iterable<FileObject> expand(Iterable<FileObject> resources) {
+        return Iterables.concat(Iterables.transform(resources, new Function<FileObject, Iterable<FileObject>>() {
+            @Override public Iterable<FileObject> apply(FileObject resource) {
+                try {
+                    if(resource.getType() == FileType.FOLDER) {
+                        return new FileWalk(resource, new SpoofaxIgnoresSelector());
+                    }
+                    return resource.getType() == FileType.FILE ? Collections.singletonList(resource)
+                        : Collections.<FileObject>emptyList();
+                } catch(FileSystemException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Filters given files to files that were added or changed since the last transformation, while iterating.
+     */
+    private static Iterable<FileObject> changed(Iterable<FileObject> files, final TransformManifest manifest) {
+        return Iterables.filter(files, new Predicate<FileObject>() {
+            @Override public boolean apply(FileObject file) {
+                try {
+                    return manifest.changed(file);
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets changes for files that were removed since the last transformation. Must be called after all files were
+     * enumerated.
+     */
+    private static List<ResourceChange> removed(@Nullable TransformManifest manifest) {
+        if(manifest == null) {
+            return Collections.emptyList();
+        }
+        final List<ResourceChange> removed = Lists.newArrayList();
+        for(String uri : manifest.removed()) {
+            final FileObject resource = SpoofaxInit.spoofax().resourceService.resolve(uri);
+            removed.add(new ResourceChange(resource, ResourceChangeKind.Delete));
+        }
+        return removed;
+    }
+
+    /**
+     * Computes the fingerprint of the configuration of the transformation: the language implementation and the
+     * artifacts it was loaded from, the goal, and the included files.
+     */
+    private String config(ILanguageImpl languageImpl, Iterable<FileObject> includes) throws IOException {
+        final FingerprintBuilder builder = new FingerprintBuilder(false);
+        builder.addString("language", languageImpl.id().toString());
+        for(Artifact artifact : languageDependencies()) {
+            builder.addString("language", artifact.getId());
+            if(artifact.getFile() != null) {
+                builder.addFile("language", artifact.getFile().getName(), artifact.getFile());
+            }
+        }
+        builder.addString("goal", goal != null ? goal : "compile");
+        for(FileObject include : expand(includes)) {
+            builder.addString("includes", include.getName().getURI());
+            builder.addResource("includes", include.getParent(), include);
+        }
+        return builder.build().hash();
+    }
+
+    private File manifestFile() {
+        final String name = mojoExecution != null ? mojoExecution.getExecutionId() : "default";
+        return new File(mavenProject().getBuild().getDirectory(), "spoofax/transform/" + name + ".manifest");
+    }
+
+    /**
+     * Gets the files selected by given file sets, followed by given default files if requested. Files in file sets are
+     * enumerated lazily, while iterating.
+     */
     private Iterable<FileObject> filesFromFileSets(Collection<FileSet> fileSets, boolean useDefault,
-        Iterable<FileObject> defaultFiles) throws FileSystemException, MojoFailureException {
-        List<FileObject> files = Lists.newArrayList();
+        Iterable<FileObject> defaultFiles) {
+        final List<Iterable<FileObject>> files = Lists.newArrayList();
         if(fileSets != null && !fileSets.isEmpty()) {
             for(FileSet fileSet : fileSets) {
-                FileObject directory = SpoofaxInit.spoofax().resourceService
+                final FileObject directory = SpoofaxInit.spoofax().resourceService
                     .resolve(fileSet.getDirectory() != null ? absoluteFile(fileSet.getDirectory()) : basedir());
-                if(directory.exists()) {
-                    files.addAll(Arrays.asList(
-                        directory.findFiles(new FileSetSelector(fileSet.getIncludes(), fileSet.getExcludes()))));
-                }
+                files.add(new FileWalk(directory, new FileSetSelector(fileSet.getIncludes(), fileSet.getExcludes())));
             }
         }
         if(useDefault) {
-            files.addAll(Lists.newArrayList(defaultFiles));
+            files.add(defaultFiles);
         }
-        return files;
+        return Iterables.concat(files);
     }
 }
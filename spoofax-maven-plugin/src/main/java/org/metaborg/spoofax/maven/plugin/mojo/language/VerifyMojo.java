@@ -1,5 +1,7 @@
 package org.metaborg.spoofax.maven.plugin.mojo.language;
 
+import java.util.List;
+
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -11,36 +13,43 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.metaborg.core.MetaborgException;
 import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
-import org.metaborg.spt.core.SPTRunner;
+import org.metaborg.spoofax.maven.plugin.spt.SptTestExecutor;
+import org.metaborg.spoofax.maven.plugin.spt.TestDiscovery;
+import org.metaborg.spoofax.maven.plugin.spt.TestJournal;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
-import org.metaborg.util.resource.FileSelectorUtils;
 
 import com.google.common.collect.Iterables;
 
 @Mojo(name = "verify", defaultPhase = LifecyclePhase.VERIFY, requiresDependencyCollection = ResolutionScope.TEST,
-    requiresDependencyResolution = ResolutionScope.TEST)
+    requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true)
 public class VerifyMojo extends AbstractSpoofaxLanguageMojo {
     private static final ILogger logger = LoggerUtils.logger(VerifyMojo.class);
 
     @Parameter(property = "spoofax.test.skip", defaultValue = "false") boolean skip;
+    @Parameter(property = "spoofax.test.threads", defaultValue = "1") int testThreads;
 
 
     @Override public void execute() throws MojoFailureException, MojoExecutionException {
         if(skip || skipAll) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
 
+        final List<FileObject> sptFiles;
         try {
-            final FileObject[] sptFiles = basedirLocation().findFiles(FileSelectorUtils.extension("spt"));
-            if(sptFiles == null || sptFiles.length == 0) {
-                // Skip silently
-                return;
-            }
+            // All test suites are found once, and passed to the testers of the project or of its shards.
+            sptFiles = new TestDiscovery().find(basedirLocation(), Integer.MAX_VALUE);
         } catch(FileSystemException e) {
             throw new MojoExecutionException("Error determining files to test", e);
         }
+        if(sptFiles.isEmpty()) {
+            // Skip silently
+            return;
+        }
 
         final Iterable<? extends ILanguageImpl> sptLangs =
             SpoofaxInit.spoofax().languageService.getAllImpls("org.metaborg", "org.metaborg.meta.lang.spt");
@@ -64,7 +73,10 @@ public class VerifyMojo extends AbstractSpoofaxLanguageMojo {
 
         try {
             logger.info("Running SPT tests");
-            SpoofaxInit.sptInjector().getInstance(SPTRunner.class).test(languageSpec(), sptLang, testLang);
+            final TestJournal journal = incremental ? testJournal(sptLang, testLang, true) : null;
+            final SptTestExecutor executor =
+                new SptTestExecutor(SpoofaxInit.sptInjector(), metrics(), mavenProject().getArtifactId());
+            executor.test(languageSpec(), sptFiles, sptLang, testLang, testThreads, journal);
         } catch(MetaborgException e) {
             throw new MojoFailureException("Error testing", e);
         }
@@ -14,7 +14,8 @@ import org.metaborg.spoofax.maven.plugin.AbstractSpoofaxMojo;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
 
 @Mojo(name = "project-clean", defaultPhase = LifecyclePhase.CLEAN,
-    requiresDependencyResolution = ResolutionScope.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE)
+    requiresDependencyResolution = ResolutionScope.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE,
+    threadSafe = true)
 public class ProjectCleanMojo extends AbstractSpoofaxMojo {
     @Parameter(property = "clean.skip", defaultValue = "false") private boolean skip;
 
@@ -23,6 +24,9 @@ public class ProjectCleanMojo extends AbstractSpoofaxMojo {
         if(skip) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
         discoverLanguages();
 
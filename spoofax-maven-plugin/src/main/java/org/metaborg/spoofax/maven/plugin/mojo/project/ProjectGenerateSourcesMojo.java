@@ -19,7 +19,8 @@ import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
 
 @Mojo(name = "project-generate-sources", defaultPhase = LifecyclePhase.GENERATE_SOURCES,
-    requiresDependencyResolution = ResolutionScope.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE)
+    requiresDependencyResolution = ResolutionScope.COMPILE, requiresDependencyCollection = ResolutionScope.COMPILE,
+    threadSafe = true)
 public class ProjectGenerateSourcesMojo extends AbstractSpoofaxMojo {
     private static final ILogger logger = LoggerUtils.logger(ProjectGenerateSourcesMojo.class);
 
@@ -29,6 +30,9 @@ public class ProjectGenerateSourcesMojo extends AbstractSpoofaxMojo {
         if(skip || skipAll) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
         discoverLanguages();
 
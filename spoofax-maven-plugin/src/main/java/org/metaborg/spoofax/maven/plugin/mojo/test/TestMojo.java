@@ -1,5 +1,7 @@
 package org.metaborg.spoofax.maven.plugin.mojo.test;
 
+import java.util.List;
+
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -13,19 +15,22 @@ import org.metaborg.core.language.ILanguageImpl;
 import org.metaborg.core.language.LanguageIdentifier;
 import org.metaborg.spoofax.maven.plugin.AbstractSpoofaxMojo;
 import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
-import org.metaborg.spt.core.SPTRunner;
+import org.metaborg.spoofax.maven.plugin.spt.SptTestExecutor;
+import org.metaborg.spoofax.maven.plugin.spt.TestDiscovery;
+import org.metaborg.spoofax.maven.plugin.spt.TestJournal;
 import org.metaborg.util.log.ILogger;
 import org.metaborg.util.log.LoggerUtils;
-import org.metaborg.util.resource.FileSelectorUtils;
 
 import com.google.common.collect.Iterables;
 
 @Mojo(name = "test", defaultPhase = LifecyclePhase.VERIFY, requiresDependencyCollection = ResolutionScope.TEST,
-    requiresDependencyResolution = ResolutionScope.TEST)
+    requiresDependencyResolution = ResolutionScope.TEST, threadSafe = true)
 public class TestMojo extends AbstractSpoofaxMojo {
     private static final ILogger logger = LoggerUtils.logger(TestMojo.class);
 
     @Parameter(property = "spoofax.test.skip", defaultValue = "false") boolean skip;
+    @Parameter(property = "spoofax.test.threads", defaultValue = "1") int testThreads;
+    @Parameter(property = "spoofax.incremental", defaultValue = "false") boolean incremental;
     @Parameter(defaultValue = "${maven.test.skip}", readonly = true) private boolean mvnTestSkip;
     @Parameter(defaultValue = "${skipTests}", readonly = true) private boolean mvnSkipTests;
     
@@ -35,20 +40,25 @@ public class TestMojo extends AbstractSpoofaxMojo {
         if(skip || mvnTestSkip || mvnSkipTests || skipAll) {
             return;
         }
+        if(executeInDaemon()) {
+            return;
+        }
         super.execute();
 
+        final List<FileObject> sptFiles;
         try {
-            final FileObject[] sptFiles = basedirLocation().findFiles(FileSelectorUtils.extension("spt"));
-            if(sptFiles == null || sptFiles.length == 0) {
-                // Skip silently
-                return;
-            }
+            // All test suites are found once, and passed to the testers of the project or of its shards.
+            sptFiles = new TestDiscovery().find(basedirLocation(), Integer.MAX_VALUE);
         } catch(FileSystemException e) {
             throw new MojoExecutionException("Error determining files to test", e);
         }
+        if(sptFiles.isEmpty()) {
+            // Skip silently
+            return;
+        }
 
         discoverLanguages();
-        discoverSelf();
+        final boolean discoveredSelf = discoverSelf();
 
         final Iterable<? extends ILanguageImpl> sptLangs =
             SpoofaxInit.spoofax().languageService.getAllImpls("org.metaborg", "org.metaborg.meta.lang.spt");
@@ -72,7 +82,10 @@ public class TestMojo extends AbstractSpoofaxMojo {
 
         try {
             logger.info("Running SPT tests");
-            SpoofaxInit.sptInjector().getInstance(SPTRunner.class).test(project(), sptLang, testLang);
+            final TestJournal journal = incremental ? testJournal(sptLang, testLang, discoveredSelf) : null;
+            final SptTestExecutor executor =
+                new SptTestExecutor(SpoofaxInit.sptInjector(), metrics(), mavenProject().getArtifactId());
+            executor.test(project(), sptFiles, sptLang, testLang, testThreads, journal);
         } catch(MetaborgException e) {
             throw new MojoFailureException("Error testing", e);
         }
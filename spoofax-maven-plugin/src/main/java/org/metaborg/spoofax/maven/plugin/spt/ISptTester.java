@@ -0,0 +1,30 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+
+/**
+ * Tests SPT test suites of a project, or of a shard of a project, and reports how many tests failed.
+ */
+public interface ISptTester {
+    /**
+     * Tests given SPT test suites of given project.
+     * 
+     * @param project
+     *            Project or shard to test.
+     * @param testSuites
+     *            Test suites to test, which are in the location of the project.
+     * @param sptLang
+     *            SPT language implementation.
+     * @param testLang
+     *            Language implementation under test.
+     * @return Number of tests that failed, and of test suites whose tests could not be extracted. Zero if and only if
+     *         all tests passed.
+     * @throws MetaborgException
+     *             When testing could not be executed.
+     */
+    int test(IProject project, Iterable<FileObject> testSuites, ILanguageImpl sptLang, ILanguageImpl testLang)
+        throws MetaborgException;
+}
@@ -0,0 +1,273 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.maven.plugin.incremental.FingerprintBuilder;
+import org.metaborg.spoofax.maven.plugin.metrics.BuildMetrics;
+import org.metaborg.spoofax.maven.plugin.metrics.Phase;
+import org.metaborg.spt.core.SPTRunner;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Injector;
+import com.google.inject.Provider;
+
+/**
+ * Executes SPT test suites of a project, either serially or in parallel. In parallel mode, test suites are split into
+ * shards by directory, and each shard is tested by its own {@link ISptTester} on a bounded pool of worker threads. In
+ * incremental mode, shards that passed against the same language under test are skipped. A shard only passes when
+ * its tester reports that no tests failed. In serial mode without a journal, failed tests are only logged, like the
+ * {@link SPTRunner} does.
+ */
+public class SptTestExecutor {
+    private static final ILogger logger = LoggerUtils.logger(SptTestExecutor.class);
+
+    private final Provider<? extends ISptTester> testers;
+    private final BuildMetrics metrics;
+    private final @Nullable String projectName;
+
+
+    /**
+     * @param sptInjector
+     *            Injector to create SPT testers with.
+     * @param metrics
+     *            Metrics to record the duration of testing in.
+     * @param projectName
+     *            Name of the project to record metrics for, or null if none.
+     */
+    public SptTestExecutor(Injector sptInjector, BuildMetrics metrics, @Nullable String projectName) {
+        this(sptInjector.getProvider(SptTester.class), metrics, projectName);
+    }
+
+    /**
+     * @param testers
+     *            Provider of the testers that test shards, where each shard gets its own tester.
+     * @param metrics
+     *            Metrics to record the duration of testing in.
+     * @param projectName
+     *            Name of the project to record metrics for, or null if none.
+     */
+    public SptTestExecutor(Provider<? extends ISptTester> testers, BuildMetrics metrics, @Nullable String projectName) {
+        this.testers = testers;
+        this.metrics = metrics;
+        this.projectName = projectName;
+    }
+
+
+    /**
+     * Tests the SPT test suites of given project.
+     * 
+     * @param project
+     *            Project to test.
+     * @param testSuites
+     *            All SPT test suites in the project, which are tested, and used to split the project into shards.
+     * @param sptLang
+     *            SPT language implementation.
+     * @param testLang
+     *            Language implementation under test.
+     * @param threads
+     *            Maximum number of shards to test concurrently. Tests serially if 1.
+     * @param journal
+     *            Journal of shards that passed, or null to test all shards. Shards that are up to date in the journal
+     *            are skipped, and the results of tested shards are recorded in the journal.
+     * @throws MetaborgException
+     *             When tests fail in one or more shards, or testing them fails.
+     */
+    public void test(IProject project, Iterable<FileObject> testSuites, ILanguageImpl sptLang, ILanguageImpl testLang,
+        int threads, @Nullable TestJournal journal) throws MetaborgException {
+        if(threads <= 1 && journal == null) {
+            testSerially(project, testSuites, sptLang, testLang);
+            return;
+        }
+
+        final FileObject root = project.location();
+        final Map<FileObject, String> shards = Maps.newLinkedHashMap();
+        try {
+            for(FileObject shard : shards(root, testSuites)) {
+                final String fingerprint = journal != null ? testsFingerprint(shard, testSuites) : null;
+                if(journal != null && journal.upToDate(shardName(root, shard), fingerprint)) {
+                    logger.info("Skipping SPT tests in {}: tests and language under test have not changed",
+                        shardName(root, shard));
+                    continue;
+                }
+                shards.put(shard, fingerprint);
+            }
+        } catch(IOException e) {
+            throw new MetaborgException("Cannot determine test shards", e);
+        }
+
+        if(shards.isEmpty()) {
+            logger.info("Skipping SPT tests: all tests passed in a previous build");
+            return;
+        }
+        if(journal == null && shards.size() == 1) {
+            testSerially(project, testSuites, sptLang, testLang);
+            return;
+        }
+
+        final int poolSize = Math.max(1, Math.min(threads, shards.size()));
+        logger.info("Running SPT tests in {} shards using {} threads", shards.size(), poolSize);
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final ExecutorService executor = Executors.newFixedThreadPool(poolSize,
+            new ThreadFactoryBuilder().setNameFormat("spoofax-spt-%d").setDaemon(true).build());
+        try {
+            final Map<FileObject, Future<Integer>> futures = Maps.newLinkedHashMap();
+            for(final FileObject shard : shards.keySet()) {
+                final IProject shardProject = new TestShardProject(shard, project.config());
+                final String shardName = shardName(root, shard);
+                final List<FileObject> shardSuites = testSuitesIn(shard, testSuites);
+                futures.put(shard, executor.submit(new Callable<Integer>() {
+                    @Override public Integer call() throws Exception {
+                        try(final Phase phase =
+                            metrics.start("test", projectName, shardName).items(shardSuites.size())) {
+                            return testers.get().test(shardProject, shardSuites, sptLang, testLang);
+                        }
+                    }
+                }));
+            }
+
+            final List<String> failedShards = Lists.newArrayList();
+            Throwable firstFailure = null;
+            for(Map.Entry<FileObject, Future<Integer>> entry : futures.entrySet()) {
+                final String shardName = shardName(root, entry.getKey());
+                try {
+                    final int failures = entry.getValue().get();
+                    if(failures == 0) {
+                        if(journal != null) {
+                            journal.passed(shardName, shards.get(entry.getKey()));
+                        }
+                    } else {
+                        logger.error("{} tests failed in shard {}", failures, shardName);
+                        failedShards.add(shardName);
+                        if(journal != null) {
+                            journal.failed(shardName);
+                        }
+                    }
+                } catch(ExecutionException e) {
+                    logger.error("Testing shard {} failed", e.getCause(), shardName);
+                    failedShards.add(shardName);
+                    if(journal != null) {
+                        journal.failed(shardName);
+                    }
+                    if(firstFailure == null) {
+                        firstFailure = e.getCause();
+                    }
+                }
+            }
+
+            logger.info("Ran SPT tests in {} shards in {} ms, {} failed", shards.size(),
+                stopwatch.elapsed(TimeUnit.MILLISECONDS), failedShards.size());
+            if(!failedShards.isEmpty()) {
+                throw new MetaborgException("Testing failed in shards " + Joiner.on(", ").join(failedShards),
+                    firstFailure);
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MetaborgException("Interrupted while running SPT tests", e);
+        } finally {
+            executor.shutdownNow();
+            if(journal != null) {
+                journal.save();
+            }
+        }
+    }
+
+
+    private void testSerially(IProject project, Iterable<FileObject> testSuites, ILanguageImpl sptLang,
+        ILanguageImpl testLang) throws MetaborgException {
+        final int failures;
+        try(final Phase phase = metrics.start("test", projectName, null)) {
+            failures = testers.get().test(project, testSuites, sptLang, testLang);
+        }
+        if(failures > 0) {
+            logger.error("{} tests failed", failures);
+        }
+    }
+
+    private static String testsFingerprint(FileObject shard, Iterable<FileObject> testSuites) throws IOException {
+        final FingerprintBuilder builder = new FingerprintBuilder(true);
+        for(FileObject testSuite : testSuites) {
+            if(shard.getName().isDescendent(testSuite.getName())) {
+                builder.addResource("tests", shard, testSuite);
+            }
+        }
+        return builder.build().hash();
+    }
+
+    private static List<FileObject> testSuitesIn(FileObject shard, Iterable<FileObject> testSuites) {
+        final List<FileObject> shardSuites = Lists.newArrayList();
+        for(FileObject testSuite : testSuites) {
+            if(shard.getName().isDescendent(testSuite.getName())) {
+                shardSuites.add(testSuite);
+            }
+        }
+        return shardSuites;
+    }
+
+    private static String shardName(FileObject root, FileObject shard) {
+        try {
+            return root.getName().getRelativeName(shard.getName());
+        } catch(FileSystemException e) {
+            return shard.getName().getURI();
+        }
+    }
+
+    /**
+     * Splits test suites into shards. A directory that directly contains a test suite is a shard, since the SPT runner
+     * tests all suites below the location it is given. Directories without test suites of their own are split further
+     * into their subdirectories.
+     * 
+     * @param root
+     *            Root directory to shard.
+     * @param testSuites
+     *            All test suites below the root directory.
+     * @return Shard directories, sorted by name.
+     */
+    static Collection<FileObject> shards(FileObject root, Iterable<FileObject> testSuites)
+        throws FileSystemException {
+        final Map<FileName, FileObject> suiteDirectories = Maps.newHashMap();
+        for(FileObject testSuite : testSuites) {
+            final FileObject parent = testSuite.getParent();
+            suiteDirectories.put(parent.getName(), parent);
+        }
+
+        final Map<FileName, FileObject> shards = Maps.newTreeMap();
+        for(FileObject directory : suiteDirectories.values()) {
+            // Select the outermost ancestor that directly contains a test suite.
+            FileObject shard = directory;
+            for(FileObject ancestor = directory; ancestor != null; ancestor = ancestor.getParent()) {
+                if(suiteDirectories.containsKey(ancestor.getName())) {
+                    shard = ancestor;
+                }
+                if(ancestor.getName().equals(root.getName())) {
+                    break;
+                }
+            }
+            shards.put(shard.getName(), shard);
+        }
+        return Sets.newLinkedHashSet(shards.values());
+    }
+}
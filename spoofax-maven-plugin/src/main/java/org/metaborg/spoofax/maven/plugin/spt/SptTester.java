@@ -0,0 +1,85 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import java.io.IOException;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.messages.IMessage;
+import org.metaborg.core.project.IProject;
+import org.metaborg.core.source.ISourceTextService;
+import org.metaborg.spoofax.core.unit.ISpoofaxInputUnit;
+import org.metaborg.spoofax.core.unit.ISpoofaxUnitService;
+import org.metaborg.spt.core.SPTRunner;
+import org.metaborg.spt.core.extract.ISpoofaxTestCase;
+import org.metaborg.spt.core.extract.ISpoofaxTestCaseExtractionResult;
+import org.metaborg.spt.core.extract.ISpoofaxTestCaseExtractor;
+import org.metaborg.spt.core.run.ISpoofaxTestCaseRunner;
+import org.metaborg.spt.core.run.ISpoofaxTestResult;
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+import com.google.inject.Inject;
+
+/**
+ * Tests SPT test suites like {@link SPTRunner}, but counts the tests that failed instead of only logging them, such
+ * that callers can tell whether all tests passed. Test suites are given instead of searched for in the project, such
+ * that the project is only walked once, by {@link TestDiscovery}.
+ */
+public class SptTester implements ISptTester {
+    private static final ILogger logger = LoggerUtils.logger(SptTester.class);
+
+    private final ISourceTextService sourceTextService;
+    private final ISpoofaxUnitService unitService;
+    private final ISpoofaxTestCaseExtractor extractor;
+    private final ISpoofaxTestCaseRunner runner;
+
+
+    @Inject public SptTester(ISourceTextService sourceTextService, ISpoofaxUnitService unitService,
+        ISpoofaxTestCaseExtractor extractor, ISpoofaxTestCaseRunner runner) {
+        this.sourceTextService = sourceTextService;
+        this.unitService = unitService;
+        this.extractor = extractor;
+        this.runner = runner;
+    }
+
+
+    @Override public int test(IProject project, Iterable<FileObject> testSuites, ILanguageImpl sptLang,
+        ILanguageImpl testLang) throws MetaborgException {
+        int failures = 0;
+        for(FileObject testSuite : testSuites) {
+            final String text;
+            try {
+                text = sourceTextService.text(testSuite);
+            } catch(IOException e) {
+                throw new MetaborgException("Cannot read test suite " + testSuite, e);
+            }
+            final ISpoofaxInputUnit input = unitService.inputUnit(testSuite, text, sptLang, null);
+            final ISpoofaxTestCaseExtractionResult extraction = extractor.extract(input, project);
+            if(!extraction.isSuccessful()) {
+                logger.error("Cannot extract tests from {}", testSuite);
+                logMessages(extraction.getAllMessages());
+                ++failures;
+                continue;
+            }
+            for(ISpoofaxTestCase test : extraction.getTests()) {
+                final ISpoofaxTestResult result = runner.run(project, test, testLang, null, null);
+                if(result.isSuccessful()) {
+                    logger.debug("Test passed: {}", test.getDescription());
+                } else {
+                    logger.error("Test failed: {} in {}", test.getDescription(), testSuite);
+                    logMessages(result.getAllMessages());
+                    ++failures;
+                }
+            }
+        }
+        return failures;
+    }
+
+
+    private static void logMessages(Iterable<IMessage> messages) {
+        for(IMessage message : messages) {
+            logger.error("  {}", message.message());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.metaborg.spoofax.core.resource.SpoofaxIgnoresSelector;
+import org.metaborg.spoofax.maven.plugin.misc.FileWalk;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Discovers SPT test suites in a single walk over a directory tree. Directories ignored by
+ * {@link SpoofaxIgnoresSelector}, such as build outputs, are not walked into. The walk stops as soon as the requested
+ * number of test suites has been found, which makes checking whether any test suites exist cheap.
+ */
+public class TestDiscovery {
+    private static final String extension = "spt";
+
+    private final FileSelector selector = new FileSelector() {
+        private final FileSelector ignoresSelector = new SpoofaxIgnoresSelector();
+
+        @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+            return extension.equals(fileInfo.getFile().getName().getExtension())
+                && ignoresSelector.includeFile(fileInfo);
+        }
+
+        @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+            return ignoresSelector.traverseDescendents(fileInfo);
+        }
+    };
+
+
+    /**
+     * Finds SPT test suites below given directory.
+     * 
+     * @param root
+     *            Directory to search.
+     * @param limit
+     *            Maximum number of test suites to find, or {@link Integer#MAX_VALUE} to find all test suites.
+     * @return Test suites in walk order, at most {@code limit}.
+     * @throws FileSystemException
+     *             When walking the directory fails.
+     */
+    public List<FileObject> find(FileObject root, int limit) throws FileSystemException {
+        final List<FileObject> testSuites = Lists.newArrayList();
+        if(limit <= 0) {
+            return testSuites;
+        }
+        try {
+            // Files in a directory are walked before its subdirectories, to find a test suite with the least I/O.
+            for(FileObject testSuite : new FileWalk(root, selector)) {
+                testSuites.add(testSuite);
+                if(testSuites.size() >= limit) {
+                    break;
+                }
+            }
+        } catch(UncheckedIOException e) {
+            throw (FileSystemException) e.getCause();
+        }
+        return testSuites;
+    }
+}
@@ -0,0 +1,101 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.metaborg.util.log.ILogger;
+import org.metaborg.util.log.LoggerUtils;
+
+/**
+ * Persistent journal of test shards that passed, keyed by the name of the shard. For each shard, the journal records
+ * the fingerprint of its test suites together with the fingerprint of the language under test it passed against. A
+ * shard can be skipped when neither has changed since it last passed. Shards that fail or were never run are not in
+ * the journal, and are always tested.
+ */
+public class TestJournal {
+    private static final ILogger logger = LoggerUtils.logger(TestJournal.class);
+    private static final String separator = "\t";
+
+    private final File file;
+    private final String languageFingerprint;
+    private final Properties entries = new Properties();
+
+
+    /**
+     * @param file
+     *            File to store the journal in.
+     * @param languageFingerprint
+     *            Fingerprint of the language under test, and of any other inputs that influence all tests.
+     */
+    public TestJournal(File file, String languageFingerprint) {
+        this.file = file;
+        this.languageFingerprint = languageFingerprint;
+    }
+
+
+    /**
+     * Loads the journal from disk. A journal that does not exist or cannot be read is treated as empty.
+     */
+    public void load() {
+        entries.clear();
+        if(!file.exists()) {
+            return;
+        }
+        try(final InputStream stream = new FileInputStream(file)) {
+            entries.load(stream);
+        } catch(IOException e) {
+            logger.warn("Cannot read test journal {}, ignoring it", e, file);
+            entries.clear();
+        }
+    }
+
+    /**
+     * Saves the journal to disk.
+     */
+    public void save() {
+        final File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            file.getParentFile().mkdirs();
+            try(final OutputStream stream = new FileOutputStream(tempFile)) {
+                entries.store(stream, "Spoofax test journal");
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            logger.warn("Cannot write test journal {}", e, file);
+        }
+    }
+
+
+    /**
+     * Checks if given shard passed against the current language under test, with test suites of given fingerprint.
+     */
+    public boolean upToDate(String shard, String testsFingerprint) {
+        return entry(testsFingerprint).equals(entries.getProperty(shard));
+    }
+
+    /**
+     * Records that given shard passed with test suites of given fingerprint.
+     */
+    public void passed(String shard, String testsFingerprint) {
+        entries.setProperty(shard, entry(testsFingerprint));
+    }
+
+    /**
+     * Records that given shard failed, such that it is tested again the next time.
+     */
+    public void failed(String shard) {
+        entries.remove(shard);
+    }
+
+
+    private String entry(String testsFingerprint) {
+        return languageFingerprint + separator + testsFingerprint;
+    }
+}
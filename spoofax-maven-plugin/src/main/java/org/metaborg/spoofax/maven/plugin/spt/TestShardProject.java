@@ -0,0 +1,34 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import org.apache.commons.vfs2.FileObject;
+import org.metaborg.core.config.IProjectConfig;
+import org.metaborg.core.project.IProject;
+
+/**
+ * View of a project that is restricted to a directory inside the project. The SPT runner tests all test suites in the
+ * location of the project it is given, so running it on a shard only tests the suites in that directory. Analysis
+ * contexts are created per project location, which isolates shards from each other.
+ */
+public class TestShardProject implements IProject {
+    private final FileObject location;
+    private final IProjectConfig config;
+
+
+    public TestShardProject(FileObject location, IProjectConfig config) {
+        this.location = location;
+        this.config = config;
+    }
+
+
+    @Override public FileObject location() {
+        return location;
+    }
+
+    @Override public IProjectConfig config() {
+        return config;
+    }
+
+    @Override public String toString() {
+        return location.toString();
+    }
+}
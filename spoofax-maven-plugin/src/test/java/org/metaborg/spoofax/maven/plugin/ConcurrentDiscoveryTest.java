@@ -0,0 +1,142 @@
+package org.metaborg.spoofax.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.core.language.ILanguageComponent;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.language.LanguageVersion;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+/**
+ * Stress test of loading the same language dependencies from concurrently building projects, as done by the mojos of
+ * a parallel reactor build. Each language must be loaded by exactly one project.
+ */
+public class ConcurrentDiscoveryTest {
+    private static final int projects = 8;
+    private static final int languages = 3;
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @BeforeClass public static void initSpoofax() throws Exception {
+        if(SpoofaxInit.shouldInit()) {
+            SpoofaxInit.init();
+        }
+    }
+
+
+    @Test(timeout = 120000) public void concurrentProjectsLoadEachLanguageOnce() throws Exception {
+        final MavenSession session = new MavenSession(null, new DefaultRepositorySystemSession(),
+            new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        final List<AtomicInteger> loads = Lists.newArrayList();
+        for(int i = 0; i < languages; ++i) {
+            loads.add(new AtomicInteger());
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(projects);
+        try {
+            final List<Future<?>> futures = Lists.newArrayList();
+            for(int p = 0; p < projects; ++p) {
+                final int offset = p;
+                final AbstractSpoofaxMojo mojo = mojo(session);
+                // Artifacts are created per project, as Maven does, pointing to the same build outputs of the reactor.
+                final List<Artifact> artifacts = Lists.newArrayList();
+                for(int i = 0; i < languages; ++i) {
+                    artifacts.add(artifact("concurrent.lang" + i, language("concurrent.lang" + i)));
+                }
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        start.await();
+                        for(int i = 0; i < languages; ++i) {
+                            final int language = (offset + i) % languages;
+                            final Iterable<ILanguageComponent> components =
+                                mojo.loadComponents(artifacts.get(language), null);
+                            assertNotNull("Loading language " + language + " failed", components);
+                            if(!Iterables.isEmpty(components)) {
+                                loads.get(language).incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for(int i = 0; i < languages; ++i) {
+            assertEquals("Loads of language " + i, 1, loads.get(i).get());
+            assertNotNull(SpoofaxInit.spoofax().languageService.getComponent(identifier("concurrent.lang" + i)));
+        }
+    }
+
+
+    private static AbstractSpoofaxMojo mojo(MavenSession session) throws Exception {
+        final AbstractSpoofaxMojo mojo = new AbstractSpoofaxMojo() {};
+        final Field field = AbstractSpoofaxMojo.class.getDeclaredField("session");
+        field.setAccessible(true);
+        field.set(mojo, session);
+        return mojo;
+    }
+
+    private static Artifact artifact(String artifactId, File file) {
+        final Artifact artifact = new DefaultArtifact("org.example", artifactId, "1.0.0", Artifact.SCOPE_COMPILE,
+            Constants.languageSpecType, null, new DefaultArtifactHandler(Constants.languageSpecType));
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    private static LanguageIdentifier identifier(String artifactId) {
+        return new LanguageIdentifier("org.example", artifactId, LanguageVersion.parse("1.0.0"));
+    }
+
+    /**
+     * Creates the build output of a language specification, in its target/classes directory, once per language.
+     */
+    private File language(String artifactId) throws IOException {
+        final File classes = new File(temp.getRoot(), artifactId + "/target/classes");
+        if(!classes.exists()) {
+            write(new File(classes, "metaborg.component.yaml"),
+                "---\nid: org.example:" + artifactId + ":1.0.0\nname: " + artifactId + "\n");
+            write(new File(classes, "target/metaborg/editor.esv.af"), "Module(\"" + artifactId + "\", [], [])");
+        }
+        return classes;
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,74 @@
+package org.metaborg.spoofax.maven.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.metaborg.spoofax.core.Spoofax;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Stress test of concurrent initialisation, as done by the mojos of a parallel reactor build. Must run in a fresh JVM,
+ * since {@link SpoofaxInit} can only be initialised once per JVM.
+ */
+public class SpoofaxInitTest {
+    private static final int threads = 16;
+    private static final int reads = 200;
+
+
+    @Test(timeout = 120000) public void concurrentInitPublishesOneInstance() throws Exception {
+        final Set<Spoofax> observed = Sets.newConcurrentHashSet();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = Lists.newArrayList();
+            for(int i = 0; i < threads; ++i) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override public Void call() throws Exception {
+                        start.await();
+                        if(SpoofaxInit.shouldInit()) {
+                            SpoofaxInit.init();
+                        }
+                        // Once initialisation is observed, all services must be visible to this thread, and must not
+                        // be replaced by a concurrent initialisation later on.
+                        for(int read = 0; read < reads; ++read) {
+                            assertFalse(SpoofaxInit.shouldInit());
+                            assertNotNull(SpoofaxInit.spoofaxMeta());
+                            assertNotNull(SpoofaxInit.sptInjector());
+                            assertNotNull(SpoofaxInit.projectService());
+                            assertNotNull(SpoofaxInit.discoveredArtifacts());
+                            assertNotNull(SpoofaxInit.dialectJournal());
+                            observed.add(SpoofaxInit.spoofax());
+                            Thread.sleep(1);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, observed.size());
+        assertSame(observed.iterator().next(), SpoofaxInit.spoofax());
+
+        SpoofaxInit.init();
+        assertSame(observed.iterator().next(), SpoofaxInit.spoofax());
+    }
+}
@@ -0,0 +1,298 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileType;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Tests that archives written by {@link java.util.zip} read the same through {@link MappedZip}, and that the
+ * {@code mapped-zip} file system maps changed archives again.
+ */
+public class MappedZipTest {
+    /** 2017-03-04 05:06:08, a time that can be represented in a ZIP archive. */
+    private static final long time = new java.util.GregorianCalendar(2017, 2, 4, 5, 6, 8).getTimeInMillis();
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    private DefaultFileSystemManager manager;
+
+
+    @Before public void createManager() throws Exception {
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("file", new DefaultLocalFileProvider());
+        manager.addProvider(MappedZipFileProvider.scheme, new MappedZipFileProvider());
+        manager.init();
+    }
+
+    @After public void closeManager() {
+        manager.close();
+    }
+
+
+    @Test public void deflatedEntriesWithDataDescriptors() throws Exception {
+        final File archive = temp.newFile("deflated.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            // Deflated entries are written with data descriptors, the local header has no sizes.
+            deflated(zip, "a.txt", bytes("contents of a"));
+            deflated(zip, "large.bin", random(1 << 20, 1));
+            deflated(zip, "empty.txt", new byte[0]);
+        }
+        assertSameEntries(archive);
+    }
+
+    @Test public void storedEntries() throws Exception {
+        final File archive = temp.newFile("stored.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            stored(zip, "lib/nested.jar", random(64 * 1024, 2));
+            stored(zip, "empty.txt", new byte[0]);
+            deflated(zip, "b.txt", bytes("contents of b"));
+        }
+        assertSameEntries(archive);
+    }
+
+    @Test public void comments() throws Exception {
+        final File archive = temp.newFile("comments.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            zip.setComment("Archive comment, with a fake end signature: PK\u0005\u0006");
+            final ZipEntry entry = new ZipEntry("commented.txt");
+            entry.setComment("Entry comment");
+            entry.setExtra(new byte[] { (byte) 0xCA, (byte) 0xFE, 4, 0, 1, 2, 3, 4 });
+            entry.setTime(time);
+            zip.putNextEntry(entry);
+            zip.write(bytes("commented"));
+            zip.closeEntry();
+            deflated(zip, "after.txt", bytes("after the commented entry"));
+        }
+        assertSameEntries(archive);
+    }
+
+    @Test public void missingDirectoryEntries() throws Exception {
+        final File archive = temp.newFile("directories.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            deflated(zip, "a/b/c.txt", bytes("c"));
+            deflated(zip, "a/d.txt", bytes("d"));
+            zip.putNextEntry(new ZipEntry("explicit/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("explicit/empty/"));
+            zip.closeEntry();
+            deflated(zip, "explicit/e.txt", bytes("e"));
+        }
+        assertSameEntries(archive);
+
+        final MappedZip zip = new MappedZip(archive);
+        assertTrue(zip.isDirectory(""));
+        assertTrue(zip.isDirectory("a"));
+        assertTrue(zip.isDirectory("a/b"));
+        assertFalse(zip.isFile("a/b"));
+        assertTrue(zip.isDirectory("explicit/empty"));
+        assertFalse(zip.isDirectory("missing"));
+        assertEquals(sorted("a", "explicit"), sorted(zip.children("")));
+        assertEquals(sorted("b", "d.txt"), sorted(zip.children("a")));
+        assertEquals(sorted("e.txt", "empty"), sorted(zip.children("explicit")));
+        assertEquals(Collections.emptyList(), zip.children("explicit/empty"));
+    }
+
+    @Test public void closedArchiveCannotBeRead() throws Exception {
+        final File archive = temp.newFile("closed.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            deflated(zip, "a.txt", bytes("contents of a"));
+        }
+        final MappedZip zip = new MappedZip(archive);
+        try(final InputStream stream = zip.open("a.txt")) {
+            zip.close();
+            // Open streams keep reading from the archive file.
+            assertArrayEquals(bytes("contents of a"), ByteStreams.toByteArray(stream));
+        }
+        try {
+            zip.isFile("a.txt");
+            fail("Closed archive was read");
+        } catch(IOException e) {
+            // Expected.
+        }
+    }
+
+    @Test public void archiveRewrittenInPlaceFailsReads() throws Exception {
+        final File archive = temp.newFile("rewritten.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            stored(zip, "lib/nested.jar", random(64 * 1024, 3));
+            deflated(zip, "a.txt", bytes("contents of a"));
+        }
+        final MappedZip zip = new MappedZip(archive);
+        try(final InputStream stream = zip.open("lib/nested.jar")) {
+            assertEquals(1024, ByteStreams.read(stream, new byte[1024], 0, 1024));
+            // Truncates the archive that is being read, which must fail reads instead of crashing the JVM.
+            try(final ZipOutputStream rewritten = new ZipOutputStream(new FileOutputStream(archive))) {
+                deflated(rewritten, "a.txt", bytes("rewritten"));
+            }
+            try {
+                ByteStreams.toByteArray(stream);
+                fail("Truncated archive was read");
+            } catch(IOException e) {
+                // Expected.
+            }
+        }
+        assertTrue(zip.isStale());
+        try {
+            zip.open("a.txt");
+            fail("Rewritten archive was read");
+        } catch(IOException e) {
+            assertEquals("Archive " + archive + " changed since it was opened", e.getMessage());
+        }
+    }
+
+    @Test public void changedArchiveIsMappedAgain() throws Exception {
+        final File archive = temp.newFile("changing.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            deflated(zip, "a.txt", bytes("first"));
+        }
+        final String url = MappedZipFileProvider.scheme + ":" + archive.getPath() + "!/";
+        final FileObject first = manager.resolveFile(url + "a.txt");
+        assertEquals("first", read(first));
+        assertSame(first.getFileSystem(), manager.resolveFile(url + "a.txt").getFileSystem());
+
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            deflated(zip, "a.txt", bytes("second"));
+            deflated(zip, "b.txt", bytes("added"));
+        }
+        final FileObject second = manager.resolveFile(url + "a.txt");
+        assertNotSame(first.getFileSystem(), second.getFileSystem());
+        assertEquals("second", read(second));
+        assertEquals(FileType.FILE, manager.resolveFile(url + "b.txt").getType());
+    }
+
+    @Test public void closingFileSystemClosesArchive() throws Exception {
+        final File archive = temp.newFile("closing.zip");
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            deflated(zip, "a.txt", bytes("contents of a"));
+        }
+        final FileObject file = manager.resolveFile(MappedZipFileProvider.scheme + ":" + archive.getPath() + "!/a.txt");
+        final MappedZipFileSystem fileSystem = (MappedZipFileSystem) file.getFileSystem();
+        final MappedZip zip = fileSystem.zip();
+        manager.closeFileSystem(fileSystem);
+        try {
+            zip.isFile("a.txt");
+            fail("Archive of closed file system was not closed");
+        } catch(IOException e) {
+            // Expected.
+        }
+        // File objects of a closed file system map the archive again.
+        assertNotSame(zip, fileSystem.zip());
+        assertTrue(fileSystem.zip().isFile("a.txt"));
+    }
+
+
+    /**
+     * Asserts that all entries of given archive read the same with {@link MappedZip} and the {@code mapped-zip} file
+     * system as with {@link ZipFile}.
+     */
+    private void assertSameEntries(File archive) throws IOException {
+        final MappedZip mapped = new MappedZip(archive);
+        final String url = MappedZipFileProvider.scheme + ":" + archive.getPath() + "!/";
+        try(final ZipFile zip = new ZipFile(archive)) {
+            assertEquals(zip.size(), mapped.size());
+            for(ZipEntry entry : Collections.list(zip.entries())) {
+                final String name = entry.getName();
+                if(entry.isDirectory()) {
+                    assertTrue(name, mapped.isDirectory(name.substring(0, name.length() - 1)));
+                    continue;
+                }
+                final byte[] expected;
+                try(final InputStream stream = zip.getInputStream(entry)) {
+                    expected = ByteStreams.toByteArray(stream);
+                }
+                assertTrue(name, mapped.isFile(name));
+                assertEquals(name, entry.getSize(), mapped.size(name));
+                assertEquals(name, entry.getTime(), mapped.lastModified(name));
+                try(final InputStream stream = mapped.open(name)) {
+                    assertArrayEquals(name, expected, ByteStreams.toByteArray(stream));
+                }
+
+                final FileObject file = manager.resolveFile(url + name);
+                assertEquals(name, FileType.FILE, file.getType());
+                assertEquals(name, entry.getSize(), file.getContent().getSize());
+                try(final InputStream stream = file.getContent().getInputStream()) {
+                    assertArrayEquals(name, expected, ByteStreams.toByteArray(stream));
+                }
+            }
+        }
+    }
+
+    private static void deflated(ZipOutputStream zip, String name, byte[] contents) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setTime(time);
+        zip.putNextEntry(entry);
+        zip.write(contents);
+        zip.closeEntry();
+    }
+
+    private static void stored(ZipOutputStream zip, String name, byte[] contents) throws IOException {
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setTime(time);
+        entry.setSize(contents.length);
+        entry.setCompressedSize(contents.length);
+        final CRC32 crc = new CRC32();
+        crc.update(contents);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(contents);
+        zip.closeEntry();
+    }
+
+    private static String read(FileObject file) throws IOException {
+        try(final InputStream stream = file.getContent().getInputStream()) {
+            return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] bytes(String contents) {
+        return contents.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] random(int size, long seed) {
+        final byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static List<String> sorted(String... names) {
+        return sorted(Arrays.asList(names));
+    }
+
+    private static List<String> sorted(List<String> names) {
+        final List<String> sorted = Lists.newArrayList(names);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
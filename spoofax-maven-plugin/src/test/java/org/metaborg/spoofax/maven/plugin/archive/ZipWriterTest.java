@@ -0,0 +1,144 @@
+package org.metaborg.spoofax.maven.plugin.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+public class ZipWriterTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void writesEntriesInOrder() throws Exception {
+        final ZipWriter writer = new ZipWriter(2);
+        for(int i = 0; i < 20; ++i) {
+            writer.add("dir/f" + (char) ('t' - i) + ".txt", file("f" + i + ".txt", "file " + i));
+        }
+        writer.add("lib/nested.jar", file("nested.jar", "not really a jar"));
+        final File archive = new File(temp.getRoot(), "archive.zip");
+        writer.write(archive);
+
+        final List<String> names = Lists.newArrayList();
+        try(final ZipFile zip = new ZipFile(archive)) {
+            for(ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+            assertEquals("file 3", new String(ByteStreams.toByteArray(zip.getInputStream(zip.getEntry("dir/fq.txt"))),
+                StandardCharsets.UTF_8));
+            assertEquals(ZipEntry.STORED, zip.getEntry("lib/nested.jar").getMethod());
+        }
+        final List<String> sorted = Lists.newArrayList(names);
+        Collections.sort(sorted);
+        assertEquals(sorted, names);
+        assertEquals(21, names.size());
+    }
+
+    @Test(timeout = 60000) public void failingEntryFailsWriteWithQueuedEntries() throws Exception {
+        final String[] tempFiles = tempFiles();
+        final ZipWriter writer = new ZipWriter(4);
+        writer.add("a-missing.txt", new File(temp.getRoot(), "missing.txt"));
+        // Large entries are compressed into temporary files while the missing file fails, which must be deleted.
+        for(int i = 0; i < 8; ++i) {
+            writer.add("large" + i + ".txt", largeFile("large" + i + ".txt"));
+        }
+        for(int i = 0; i < 32; ++i) {
+            writer.add("small" + i + ".txt", file("small" + i + ".txt", "file " + i));
+        }
+        final File archive = new File(temp.getRoot(), "archive.zip");
+        try {
+            writer.write(archive);
+            fail("Missing file did not fail writing");
+        } catch(FileNotFoundException e) {
+            // Expected.
+        }
+
+        assertFalse(archive.exists());
+        assertFalse(new File(archive.getPath() + ".tmp").exists());
+        for(Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse(thread.getName(), thread.getName().startsWith("spoofax-archive-") && thread.isAlive());
+        }
+        assertEquals(Arrays.asList(tempFiles), Arrays.asList(tempFiles()));
+    }
+
+    @Test public void changedStoredEntriesOfPreviousArchiveFailWrite() throws Exception {
+        final File nested = file("nested.jar", "stored entry that is copied from the previous archive");
+        final File previous = new File(temp.getRoot(), "previous.zip");
+        final ZipWriter previousWriter = new ZipWriter(1);
+        previousWriter.add("lib/nested.jar", nested);
+        previousWriter.write(previous);
+
+        // Change the stored data of the entry in the previous archive, but not its size.
+        final byte[] bytes = Files.readAllBytes(previous.toPath());
+        final String contents = new String(bytes, StandardCharsets.ISO_8859_1);
+        bytes[contents.indexOf("stored entry")] = 'S';
+        Files.write(previous.toPath(), bytes);
+
+        final ZipWriter writer = new ZipWriter(1);
+        writer.add("lib/nested.jar", nested);
+        assertEquals(1, writer.reuse(previous, Collections.singleton("lib/nested.jar")));
+        final File archive = new File(temp.getRoot(), "archive.zip");
+        try {
+            writer.write(archive);
+            fail("Changed stored entry did not fail writing");
+        } catch(IOException e) {
+            assertEquals("File " + previous + " changed while it was being archived", e.getMessage());
+        }
+        assertFalse(archive.exists());
+
+        writer.clearReused();
+        writer.write(archive);
+        try(final ZipFile zip = new ZipFile(archive)) {
+            assertEquals("stored entry that is copied from the previous archive", new String(
+                ByteStreams.toByteArray(zip.getInputStream(zip.getEntry("lib/nested.jar"))), StandardCharsets.UTF_8));
+        }
+    }
+
+
+    private File file(String name, String contents) throws IOException {
+        final File file = new File(temp.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File largeFile(String name) throws IOException {
+        final File file = new File(temp.getRoot(), name);
+        final byte[] line = (name + " is larger than the memory threshold\n").getBytes(StandardCharsets.UTF_8);
+        try(final OutputStream output = new FileOutputStream(file)) {
+            for(long size = 0; size <= 9 * 1024 * 1024; size += line.length) {
+                output.write(line);
+            }
+        }
+        return file;
+    }
+
+    private static String[] tempFiles() {
+        final String[] names = new File(System.getProperty("java.io.tmpdir")).list();
+        final List<String> tempFiles = Lists.newArrayList();
+        for(String name : names) {
+            if(name.startsWith("spoofax-archive") && name.endsWith(".deflate")) {
+                tempFiles.add(name);
+            }
+        }
+        Collections.sort(tempFiles);
+        return tempFiles.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,109 @@
+package org.metaborg.spoofax.maven.plugin.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildOutputsTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void missingOutputs() throws Exception {
+        final File srcGen = temp.newFolder("src-gen");
+        final File metaborg = new File(temp.getRoot(), "target/metaborg");
+        final File archive = new File(temp.getRoot(), "target/lang.spoofax-language");
+        final BuildOutputs outputs =
+            new BuildOutputs().add("src-gen", srcGen).add("metaborg", metaborg).add("archive", archive);
+        assertEquals(Arrays.asList("archive", "metaborg"), outputs.missing());
+
+        metaborg.mkdirs();
+        archive.createNewFile();
+        assertEquals(Collections.emptyList(), outputs.missing());
+    }
+
+    @Test public void roundTripThroughCache() throws Exception {
+        final File project = temp.newFolder("project");
+        write(new File(project, "src-gen/syntax/Lang.sdf3"), "module Lang");
+        write(new File(project, "src-gen/empty.txt"), "");
+        new File(project, "src-gen/emptyDirectory").mkdirs();
+        write(new File(project, "target/metaborg/sdf.tbl"), "table");
+        final File key = temp.newFile("key.zip");
+        outputs(project).pack(key);
+        final IBuildCache cache = new LocalBuildCache(temp.newFolder("cache"));
+        cache.put("abc123", key);
+
+        final File clean = temp.newFolder("clean");
+        // Stale outputs in the clean tree are replaced.
+        write(new File(clean, "src-gen/stale.txt"), "stale");
+        final File entry = temp.newFile("entry.zip");
+        assertFalse(cache.get("def456", entry));
+        assertTrue(cache.get("abc123", entry));
+        outputs(clean).unpack(entry);
+
+        assertEquals("module Lang", read(new File(clean, "src-gen/syntax/Lang.sdf3")));
+        assertEquals("", read(new File(clean, "src-gen/empty.txt")));
+        assertTrue(new File(clean, "src-gen/emptyDirectory").isDirectory());
+        assertEquals("table", read(new File(clean, "target/metaborg/sdf.tbl")));
+        assertFalse(new File(clean, "src-gen/stale.txt").exists());
+        final String[] names = new File(clean, "src-gen").list();
+        Arrays.sort(names);
+        assertArrayEquals(new String[] { "empty.txt", "emptyDirectory", "syntax" }, names);
+    }
+
+    @Test public void entryOutsideOfOutputsIsRejected() throws Exception {
+        assertRejected("../x");
+    }
+
+    @Test public void entryTraversingOutOfOutputIsRejected() throws Exception {
+        assertRejected("src-gen/../../x");
+    }
+
+
+    private void assertRejected(String name) throws IOException {
+        final File entry = temp.newFile();
+        try(final ZipOutputStream stream = new ZipOutputStream(new FileOutputStream(entry))) {
+            stream.putNextEntry(new ZipEntry(name));
+            stream.write("escaped".getBytes(StandardCharsets.UTF_8));
+            stream.closeEntry();
+        }
+        final File project = temp.newFolder();
+        try {
+            outputs(project).unpack(entry);
+            fail("Entry " + name + " was unpacked");
+        } catch(IOException e) {
+            // Expected.
+        }
+        assertFalse(new File(project.getParentFile(), "x").exists());
+        assertFalse(new File(project, "x").exists());
+    }
+
+    private static BuildOutputs outputs(File project) {
+        return new BuildOutputs().add("src-gen", new File(project, "src-gen")).add("metaborg",
+            new File(project, "target/metaborg"));
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
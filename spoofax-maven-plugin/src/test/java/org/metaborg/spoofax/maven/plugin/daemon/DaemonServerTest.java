@@ -0,0 +1,151 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+
+public class DaemonServerTest {
+    private static final String version = "2.5.0";
+
+    /** Log that records the messages of the daemon. */
+    private static class RecordingLog extends SystemStreamLog {
+        public final List<String> messages = Lists.newArrayList();
+
+
+        @Override public void info(CharSequence content) {
+            messages.add("info " + content);
+        }
+
+        @Override public void error(CharSequence content) {
+            messages.add("error " + content);
+        }
+    }
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    private DaemonServer server;
+    private File file;
+
+
+    @Before public void startServer() throws Exception {
+        server = new DaemonServer(new IDaemonHandler() {
+            @Override public Properties handle(Properties request, Log log)
+                throws MojoExecutionException, MojoFailureException {
+                final String goal = request.getProperty("goal");
+                log.info("Executing " + goal);
+                if(goal.equals("fail")) {
+                    throw new MojoFailureException("Tests failed");
+                }
+                if(goal.equals("crash")) {
+                    throw new IllegalStateException("Crashed");
+                }
+                final Properties result = new Properties();
+                result.setProperty("executed", goal);
+                return result;
+            }
+        }, 0);
+        final Thread thread = new Thread() {
+            @Override public void run() {
+                server.run();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+        file = new File(temp.getRoot(), "spoofax/daemon.properties");
+        server.info(version).write(file);
+    }
+
+    @After public void stopServer() throws Exception {
+        server.close();
+    }
+
+
+    @Test public void executesRequestsAndForwardsLog() throws Exception {
+        final RecordingLog log = new RecordingLog();
+        for(String goal : new String[] { "compile", "package" }) {
+            try(final DaemonClient client = DaemonClient.connect(file, version, log)) {
+                assertNotNull(client);
+                assertEquals(goal, client.execute(request(goal), log).getProperty("executed"));
+            }
+        }
+        assertEquals(Lists.newArrayList("info Executing compile", "info Executing package"), log.messages);
+    }
+
+    @Test public void failuresAreThrownByClient() throws Exception {
+        final RecordingLog log = new RecordingLog();
+        try(final DaemonClient client = DaemonClient.connect(file, version, log)) {
+            client.execute(request("fail"), log);
+            fail("Expected a failure");
+        } catch(MojoFailureException e) {
+            assertEquals("Tests failed", e.getMessage());
+        }
+        try(final DaemonClient client = DaemonClient.connect(file, version, log)) {
+            client.execute(request("crash"), log);
+            fail("Expected an error");
+        } catch(MojoExecutionException e) {
+            assertEquals("Spoofax daemon failed: Crashed", e.getMessage());
+        }
+        assertEquals("error Unexpected error in the Spoofax daemon", log.messages.get(2).split("\n")[0]);
+    }
+
+    @Test public void requestsWithoutTokenAreRejected() throws Exception {
+        final RecordingLog log = new RecordingLog();
+        final DaemonInfo info = DaemonInfo.read(file);
+        new DaemonInfo(info.port(), "other token", version).write(file);
+        try(final DaemonClient client = DaemonClient.connect(file, version, log)) {
+            client.execute(request("compile"), log);
+            fail("Expected an error");
+        } catch(MojoExecutionException e) {
+            assertEquals("Spoofax daemon failed: Request does not have the token of the Spoofax daemon",
+                e.getMessage());
+        }
+        assertEquals(Lists.newArrayList(), log.messages);
+    }
+
+    @Test public void fallsBackWithoutDaemon() throws Exception {
+        final RecordingLog log = new RecordingLog();
+        assertNull(DaemonClient.connect(new File(temp.getRoot(), "missing.properties"), version, log));
+        assertNull(DaemonClient.connect(file, "2.6.0", log));
+
+        // A daemon that stopped without removing its information.
+        final int port;
+        try(final ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        new DaemonInfo(port, "token", version).write(file);
+        assertNull(DaemonClient.connect(file, version, log));
+        assertEquals(3, log.messages.size());
+    }
+
+    @Test public void informationIsOnlyDeletedByItsDaemon() throws Exception {
+        new DaemonInfo(1, "other token", version).delete(file);
+        assertNotNull(DaemonInfo.read(file));
+        server.info(version).delete(file);
+        assertNull(DaemonInfo.read(file));
+    }
+
+
+    private static Properties request(String goal) {
+        final Properties request = new Properties();
+        request.setProperty("goal", goal);
+        return request;
+    }
+}
@@ -0,0 +1,115 @@
+package org.metaborg.spoofax.maven.plugin.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class MojoRequestsTest {
+    public static class BaseMojo extends AbstractMojo {
+        private boolean skip;
+        private File directory;
+
+        @Override public void execute() {
+        }
+    }
+
+    public static class ExampleMojo extends BaseMojo {
+        private boolean skip;
+        private int threads;
+        private long maxSize;
+        private String name;
+        private List<String> includes;
+        private transient boolean state;
+    }
+
+
+    @Test public void parametersAreSent() throws Exception {
+        final ExampleMojo mojo = new ExampleMojo();
+        ((BaseMojo) mojo).skip = true;
+        ((BaseMojo) mojo).directory = new File("/project/target");
+        mojo.threads = 4;
+        mojo.maxSize = 1L << 40;
+        mojo.name = "lang";
+        mojo.includes = Lists.newArrayList("**/*.str");
+        mojo.state = true;
+
+        final Properties properties = new Properties();
+        MojoRequests.writeMojo(mojo, properties);
+        final ExampleMojo sent = MojoRequests.readMojo(properties, ExampleMojo.class);
+
+        assertTrue(((BaseMojo) sent).skip);
+        assertFalse(sent.skip);
+        assertEquals(new File("/project/target"), ((BaseMojo) sent).directory);
+        assertEquals(4, sent.threads);
+        assertEquals(1L << 40, sent.maxSize);
+        assertEquals("lang", sent.name);
+        assertNull(sent.includes);
+        assertFalse(sent.state);
+    }
+
+    @Test public void projectAndArtifactsAreSent() throws Exception {
+        final Model model = new Model();
+        model.setGroupId("org.example");
+        model.setArtifactId("lang");
+        model.setVersion("1.0.0-SNAPSHOT");
+        model.setPackaging("spoofax-language");
+        model.setBuild(new Build());
+        model.getBuild().setDirectory("/project/target");
+        model.getBuild().setOutputDirectory("/project/target/classes");
+        model.getBuild().setFinalName("lang-1.0.0-SNAPSHOT");
+        final MavenProject project = new MavenProject(model);
+        project.setFile(new File("/project/pom.xml"));
+
+        final Artifact artifact = new DefaultArtifact("org.example", "dependency", "1.0.0-20180101.120000-1",
+            Artifact.SCOPE_COMPILE, "spoofax-language", null, new DefaultArtifactHandler("spoofax-language"));
+        artifact.setFile(new File("/repository/dependency.spoofax-language"));
+
+        final Properties properties = new Properties();
+        MojoRequests.writeProject(project, properties);
+        MojoRequests.writeArtifacts(Lists.newArrayList(artifact), properties);
+        MojoRequests.writeContext(ImmutableMap.of("executed.compile", true), properties);
+
+        final MavenProject sentProject = new MavenProject();
+        MojoRequests.readProject(properties, sentProject);
+        assertEquals(project.getId(), sentProject.getId());
+        assertEquals(new File("/project"), sentProject.getBasedir());
+        assertEquals("/project/target", sentProject.getBuild().getDirectory());
+        assertEquals("/project/target/classes", sentProject.getBuild().getOutputDirectory());
+        assertEquals("lang-1.0.0-SNAPSHOT", sentProject.getBuild().getFinalName());
+        assertEquals("spoofax-language", sentProject.getArtifact().getType());
+
+        final List<Artifact> sentArtifacts = MojoRequests.readArtifacts(properties);
+        assertEquals(1, sentArtifacts.size());
+        final Artifact sentArtifact = sentArtifacts.get(0);
+        assertEquals(artifact.getId(), sentArtifact.getId());
+        assertEquals("1.0.0-SNAPSHOT", sentArtifact.getBaseVersion());
+        assertEquals(artifact.getFile(), sentArtifact.getFile());
+        assertTrue(sentArtifact.isResolved());
+
+        final Map<String, Boolean> sentContext = MojoRequests.readContext(properties);
+        assertEquals(ImmutableMap.of("executed.compile", true), sentContext);
+
+        final Properties result = new Properties();
+        sentProject.getArtifact().setFile(new File("/project/target/lang.spoofax-language"));
+        MojoRequests.writeProjectArtifactFile(sentProject, result);
+        assertEquals(new File("/project/target/lang.spoofax-language"), MojoRequests.readProjectArtifactFile(result));
+    }
+}
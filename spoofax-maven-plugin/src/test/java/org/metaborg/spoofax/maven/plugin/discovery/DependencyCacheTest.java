@@ -0,0 +1,93 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class DependencyCacheTest {
+    private static final Set<String> compileScope = Collections.singleton(Artifact.SCOPE_COMPILE);
+
+
+    @Test public void closureKeyIsIndependentOfProjectAndDependencyOrder() {
+        final MavenProject project1 = project("project1", dependency("lang1", "1.0"), dependency("lang2", "2.0"));
+        final MavenProject project2 = project("project2", dependency("lang2", "2.0"), dependency("lang1", "1.0"));
+        assertEquals(DependencyCache.closureKey(project1, compileScope),
+            DependencyCache.closureKey(project2, compileScope));
+    }
+
+    @Test public void closureKeyDependsOnDependenciesAndScopes() {
+        final MavenProject project1 = project("project", dependency("lang1", "1.0"));
+        final MavenProject project2 = project("project", dependency("lang1", "1.1"));
+        assertNotEquals(DependencyCache.closureKey(project1, compileScope),
+            DependencyCache.closureKey(project2, compileScope));
+        assertNotEquals(DependencyCache.closureKey(project1, compileScope),
+            DependencyCache.closureKey(project1, Sets.newHashSet(Artifact.SCOPE_COMPILE, Artifact.SCOPE_TEST)));
+    }
+
+    @Test public void resolvingRetrievedArtifactsDoesNotChangeCache() {
+        final DependencyCache cache = new DependencyCache();
+        assertNull(cache.dependencies("key"));
+
+        final Artifact artifact = artifact("lang1", "1.0");
+        cache.putDependencies("key", Lists.newArrayList(artifact));
+        artifact.setFile(new File("lang1.spoofax-language"));
+        artifact.setResolved(true);
+
+        final Collection<Artifact> first = cache.dependencies("key");
+        final Artifact copy = Iterables.getOnlyElement(first);
+        assertEquals(artifact, copy);
+        assertNotSame(artifact, copy);
+        assertFalse(copy.isResolved());
+        copy.setFile(new File("lang1.spoofax-language"));
+        copy.setResolved(true);
+
+        final Artifact secondCopy = Iterables.getOnlyElement(cache.dependencies("key"));
+        assertNotSame(copy, secondCopy);
+        assertFalse(secondCopy.isResolved());
+        assertNull(secondCopy.getFile());
+    }
+
+
+    private static MavenProject project(String artifactId, Dependency... dependencies) {
+        final Model model = new Model();
+        model.setGroupId("org.example");
+        model.setArtifactId(artifactId);
+        model.setVersion("1.0");
+        model.setDependencies(Lists.newArrayList(dependencies));
+        return new MavenProject(model);
+    }
+
+    private static Dependency dependency(String artifactId, String version) {
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId("org.example");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        dependency.setType("spoofax-language");
+        dependency.setScope(Artifact.SCOPE_COMPILE);
+        return dependency;
+    }
+
+    private static Artifact artifact(String artifactId, String version) {
+        return new DefaultArtifact("org.example", artifactId, version, Artifact.SCOPE_COMPILE, "spoofax-language", null,
+            new DefaultArtifactHandler("spoofax-language"));
+    }
+}
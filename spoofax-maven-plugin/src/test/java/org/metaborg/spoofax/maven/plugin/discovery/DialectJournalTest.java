@@ -0,0 +1,148 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.core.resource.ResourceChange;
+
+import com.google.common.collect.Lists;
+
+public class DialectJournalTest {
+    private static final long twoHoursAgo = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+    /** Selects all files, except those in the target directory, like the Spoofax ignores do. */
+    private static final FileSelector selector = new FileSelector() {
+        @Override public boolean includeFile(FileSelectInfo info) {
+            return true;
+        }
+
+        @Override public boolean traverseDescendents(FileSelectInfo info) {
+            return !info.getFile().getName().getBaseName().equals("target");
+        }
+    };
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    private DefaultFileSystemManager manager;
+    private File project;
+    private FileObject location;
+    private File journalFile;
+
+
+    @Before public void createProject() throws Exception {
+        manager = new DefaultFileSystemManager();
+        manager.addProvider("file", new DefaultLocalFileProvider());
+        manager.init();
+        project = temp.newFolder("project");
+        write("syntax/lang.sdf3");
+        write("trans/lang.str");
+        write("src-gen/dialect.tbl");
+        write("target/classes/ignored.txt");
+        touchAll(project);
+        location = manager.resolveFile(project.toURI().toString());
+        journalFile = new File(project, "target/spoofax/dialects.journal");
+    }
+
+    @After public void closeManager() {
+        manager.close();
+    }
+
+
+    @Test public void firstUpdateCreatesAllFiles() throws Exception {
+        assertEquals(sorted("Create src-gen/dialect.tbl", "Create syntax/lang.sdf3", "Create trans/lang.str"),
+            changes(new DialectJournal(selector)));
+    }
+
+    @Test public void laterUpdatesInSameJournalPassChangedFiles() throws Exception {
+        final DialectJournal journal = new DialectJournal(selector);
+        changes(journal);
+        assertEquals(Collections.emptyList(), changes(journal));
+
+        write("trans/added/added.str");
+        modify("syntax/lang.sdf3");
+        new File(project, "trans/lang.str").delete();
+        assertEquals(sorted("Create trans/added/added.str", "Delete trans/lang.str", "Modify syntax/lang.sdf3"),
+            changes(journal));
+        assertEquals(Collections.emptyList(), changes(journal));
+    }
+
+    @Test public void persistedJournalPassesChangedFilesAndParseTables() throws Exception {
+        changes(new DialectJournal(selector));
+
+        // A new JVM reads the journal of the previous build, and registers the dialects of unchanged parse tables.
+        assertEquals(sorted("Create src-gen/dialect.tbl"), changes(new DialectJournal(selector)));
+
+        write("syntax/added.sdf3");
+        modify("trans/lang.str");
+        assertEquals(sorted("Create src-gen/dialect.tbl", "Create syntax/added.sdf3", "Modify trans/lang.str"),
+            changes(new DialectJournal(selector)));
+    }
+
+    @Test public void invalidatedJournalCreatesAllFiles() throws Exception {
+        final DialectJournal journal = new DialectJournal(selector);
+        changes(journal);
+        journal.invalidate(location, journalFile);
+        assertEquals(sorted("Create src-gen/dialect.tbl", "Create syntax/lang.sdf3", "Create trans/lang.str"),
+            changes(journal));
+        assertTrue(journalFile.exists());
+    }
+
+
+    private List<String> changes(DialectJournal journal) throws Exception {
+        final List<String> changes = Lists.newArrayList();
+        for(ResourceChange change : journal.update(location, journalFile)) {
+            changes.add(change.kind() + " " + location.getName().getRelativeName(change.resource().getName()));
+        }
+        Collections.sort(changes);
+        return changes;
+    }
+
+    private void write(String path) throws IOException {
+        final File file = new File(project, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), path.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void modify(String path) throws IOException {
+        final File file = new File(project, path);
+        Files.write(file.toPath(), "modified".getBytes(StandardCharsets.UTF_8));
+        file.setLastModified(twoHoursAgo + 1000);
+    }
+
+    /**
+     * Sets the modification time of all files and directories to the past, such that directories are not modified
+     * during an update, like in a real build.
+     */
+    private static void touchAll(File file) {
+        final File[] children = file.listFiles();
+        if(children != null) {
+            for(File child : children) {
+                touchAll(child);
+            }
+        }
+        file.setLastModified(twoHoursAgo);
+    }
+
+    private static List<String> sorted(String... changes) {
+        final List<String> sorted = Lists.newArrayList(changes);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
@@ -0,0 +1,26 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.metaborg.core.language.LanguageIdentifier;
+import org.metaborg.core.language.LanguageVersion;
+
+/**
+ * Tests the per-identifier locks that prevent concurrently building projects from loading the same language component
+ * twice. Concurrent loading itself is tested by {@link org.metaborg.spoofax.maven.plugin.ConcurrentDiscoveryTest}.
+ */
+public class DiscoveredArtifactsTest {
+    @Test public void lockIsSharedForEqualIdentifiers() {
+        final DiscoveredArtifacts artifacts = new DiscoveredArtifacts();
+        final Object lock = artifacts.lock(identifier(0));
+        assertSame(lock, artifacts.lock(identifier(0)));
+        assertNotSame(lock, artifacts.lock(identifier(1)));
+    }
+
+
+    private static LanguageIdentifier identifier(int index) {
+        return new LanguageIdentifier("org.example", "lang" + index, LanguageVersion.parse("1.0.0"));
+    }
+}
@@ -0,0 +1,121 @@
+package org.metaborg.spoofax.maven.plugin.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Strings;
+
+public class ExtractionCacheTest {
+    private static final long twoHoursAgo = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2);
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void extractsArchiveOnce() throws Exception {
+        final File archive = archive("lang.spoofax-language", "lang");
+        final ExtractionCache cache = new ExtractionCache(temp.newFolder("cache"), Long.MAX_VALUE);
+        final File entry = cache.extract(archive);
+        assertEquals("lang", read(new File(entry, "editor/lang.txt")));
+        assertEquals(entry, cache.extract(archive));
+
+        // Another archive with the same contents shares the entry.
+        final File copy = temp.newFile("copy.spoofax-language");
+        Files.copy(archive.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(entry, cache.extract(copy));
+    }
+
+    @Test public void hashesArePersistedInCache() throws Exception {
+        final File directory = temp.newFolder("cache");
+        final File archive = archive("lang.spoofax-language", "lang");
+        final File entry = new ExtractionCache(directory, Long.MAX_VALUE).extract(archive);
+        final List<String> lines = Files.readAllLines(new File(directory, "hashes").toPath(), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).endsWith("\t" + entry.getName()));
+
+        // A new cache uses the persisted hash instead of hashing the archive, point it to another entry to observe it.
+        final String fakeHash = Strings.repeat("ab", 20);
+        final String hashes = lines.get(0).replace(entry.getName(), fakeHash) + "\npartially written line";
+        Files.write(new File(directory, "hashes").toPath(), hashes.getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.TRUNCATE_EXISTING);
+        assertEquals(fakeHash, new ExtractionCache(directory, Long.MAX_VALUE).extract(archive).getName());
+
+        // A changed archive is hashed again.
+        archive("lang.spoofax-language", "changed lang");
+        final File changedEntry = new ExtractionCache(directory, Long.MAX_VALUE).extract(archive);
+        assertNotEquals(fakeHash, changedEntry.getName());
+        assertEquals("changed lang", read(new File(changedEntry, "editor/lang.txt")));
+    }
+
+    @Test public void trimRemovesLeastRecentlyUsedEntriesAndStaleHashes() throws Exception {
+        final File directory = temp.newFolder("cache");
+        final ExtractionCache cache = new ExtractionCache(directory, 15);
+        final File oldArchive = archive("old.spoofax-language", Strings.repeat("o", 10));
+        final File usedArchive = archive("used.spoofax-language", Strings.repeat("u", 10));
+        final File oldEntry = cache.extract(oldArchive);
+        final File usedEntry = cache.extract(usedArchive);
+        oldEntry.setLastModified(twoHoursAgo);
+        usedEntry.setLastModified(twoHoursAgo);
+        oldArchive.delete();
+
+        // Builds that keep using a loaded language extract its archive again, which touches the entry.
+        assertEquals(usedEntry, cache.extract(usedArchive));
+        final File newEntry = cache.extract(archive("new.spoofax-language", Strings.repeat("n", 10)));
+
+        assertFalse(oldEntry.exists());
+        assertTrue(usedEntry.isDirectory());
+        assertTrue(newEntry.isDirectory());
+        final String hashes = read(new File(directory, "hashes"));
+        assertFalse(hashes.contains(oldEntry.getName()));
+        assertTrue(hashes.contains(usedEntry.getName()));
+        assertTrue(hashes.contains(newEntry.getName()));
+    }
+
+    @Test public void removedEntryOfLoadedLanguageIsRestored() throws Exception {
+        final File directory = temp.newFolder("cache");
+        final File archive = archive("lang.spoofax-language", "lang");
+        final File entry = new ExtractionCache(directory, Long.MAX_VALUE).extract(archive);
+        // Removed by the trim of another build.
+        FileUtils.deleteDirectory(entry);
+        assertEquals(entry, new ExtractionCache(directory, Long.MAX_VALUE).extract(archive));
+        assertEquals("lang", read(new File(entry, "editor/lang.txt")));
+    }
+
+
+    private File archive(String name, String contents) throws IOException {
+        final File archive = new File(temp.getRoot(), name);
+        final long lastModified = archive.exists() ? archive.lastModified() : -1;
+        try(final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("editor/lang.txt"));
+            zip.write(contents.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        if(lastModified >= 0) {
+            // Make sure that a rewritten archive has a different modification time.
+            archive.setLastModified(lastModified + 2000);
+        }
+        return archive;
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
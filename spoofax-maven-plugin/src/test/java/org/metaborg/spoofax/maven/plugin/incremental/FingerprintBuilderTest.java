@@ -0,0 +1,67 @@
+package org.metaborg.spoofax.maven.plugin.incremental;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.impl.DefaultFileSystemManager;
+import org.apache.commons.vfs2.provider.local.DefaultLocalFileProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FingerprintBuilderTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void directoryFingerprintDependsOnContents() throws Exception {
+        final File classes = temp.newFolder("target", "classes");
+        write(new File(classes, "metaborg/editor.esv.af"), "editor");
+        final String original = fingerprint(classes, true);
+        assertEquals(original, fingerprint(classes, true));
+
+        write(new File(classes, "metaborg/editor.esv.af"), "changed editor");
+        final String changed = fingerprint(classes, true);
+        assertNotEquals(original, changed);
+
+        write(new File(classes, "metaborg/sdf.tbl"), "table");
+        assertNotEquals(changed, fingerprint(classes, true));
+    }
+
+    @Test public void directoryResourceFingerprintDependsOnContents() throws Exception {
+        final File base = temp.getRoot();
+        write(new File(base, "target/metaborg/editor.esv.af"), "editor");
+        final DefaultFileSystemManager manager = new DefaultFileSystemManager();
+        manager.addProvider("file", new DefaultLocalFileProvider());
+        manager.init();
+        try {
+            final FileObject baseLocation = manager.resolveFile(base.toURI().toString());
+            final FileObject metaborg = baseLocation.resolveFile("target/metaborg");
+            final String original =
+                new FingerprintBuilder(true).addResource("language", baseLocation, metaborg).build().hash();
+
+            write(new File(base, "target/metaborg/editor.esv.af"), "changed editor");
+            metaborg.refresh();
+            assertNotEquals(original,
+                new FingerprintBuilder(true).addResource("language", baseLocation, metaborg).build().hash());
+        } finally {
+            manager.close();
+        }
+    }
+
+
+    private static String fingerprint(File directory, boolean hashContents) throws IOException {
+        return new FingerprintBuilder(hashContents).addFile("languages", directory.getName(), directory).build()
+            .hash();
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
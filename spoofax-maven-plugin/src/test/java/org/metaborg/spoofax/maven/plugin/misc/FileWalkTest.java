@@ -0,0 +1,151 @@
+package org.metaborg.spoofax.maven.plugin.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSelectInfo;
+import org.apache.commons.vfs2.FileSelector;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class FileWalkTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+    private FileObject root;
+
+
+    @Before public void setUp() throws IOException {
+        final File directory = temp.newFolder("root");
+        for(String path : new String[] { "b.txt", "a.txt", "z.txt", "sub1/c.txt", "sub1/deep/d.txt", "sub0/e.txt",
+            "skip/f.txt", "empty/" }) {
+            final File file = new File(directory, path);
+            if(path.endsWith("/")) {
+                file.mkdirs();
+            } else {
+                file.getParentFile().mkdirs();
+                file.createNewFile();
+            }
+        }
+        root = VFS.getManager().toFileObject(directory);
+    }
+
+
+    @Test public void filesOfDirectoryBeforeSubdirectoriesInNameOrder() {
+        assertEquals(Arrays.asList("a.txt", "b.txt", "z.txt", "skip/f.txt", "sub0/e.txt", "sub1/c.txt",
+            "sub1/deep/d.txt"), walk(Selectors.SELECT_FILES));
+    }
+
+    @Test public void selectsSameFilesAsFindFiles() throws FileSystemException {
+        final List<String> found = Lists.newArrayList();
+        for(FileObject file : root.findFiles(Selectors.SELECT_FILES)) {
+            found.add(root.getName().getRelativeName(file.getName()));
+        }
+        assertEquals(Sets.newHashSet(found), Sets.newHashSet(walk(Selectors.SELECT_FILES)));
+    }
+
+    @Test public void doesNotTraverseExcludedDirectories() {
+        final List<String> traversed = Lists.newArrayList();
+        final List<String> files = walk(new FileSelector() {
+            @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+                return true;
+            }
+
+            @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+                final String name = fileInfo.getFile().getName().getBaseName();
+                traversed.add(name);
+                return !name.equals("skip");
+            }
+        });
+        assertFalse(files.contains("skip/f.txt"));
+        assertTrue(files.contains("sub1/deep/d.txt"));
+        assertFalse(traversed.contains("f.txt"));
+    }
+
+    @Test public void selectorExceptionPropagatesAfterEarlierFiles() {
+        final RuntimeException failure = new RuntimeException("Cannot select");
+        final Iterator<FileObject> iterator = new FileWalk(root, new FileSelector() {
+            @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+                return true;
+            }
+
+            @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+                if(fileInfo.getFile().getName().getBaseName().equals("deep")) {
+                    throw failure;
+                }
+                return true;
+            }
+        }).iterator();
+
+        final List<String> files = Lists.newArrayList();
+        try {
+            while(iterator.hasNext()) {
+                files.add(relativeName(iterator.next()));
+            }
+            fail("Selector exception was not propagated");
+        } catch(UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof FileSystemException);
+            assertSame(failure, e.getCause().getCause());
+        }
+        // The walk is lazy: files up to the failing directory were produced before the failure.
+        assertEquals(Arrays.asList("a.txt", "b.txt", "z.txt", "skip/f.txt", "sub0/e.txt"), files);
+    }
+
+    @Test public void selectorExceptionOnRootPropagatesFromIterator() {
+        final FileSystemException failure = new FileSystemException("Cannot traverse");
+        final FileWalk walk = new FileWalk(root, new FileSelector() {
+            @Override public boolean includeFile(FileSelectInfo fileInfo) throws Exception {
+                return true;
+            }
+
+            @Override public boolean traverseDescendents(FileSelectInfo fileInfo) throws Exception {
+                throw failure;
+            }
+        });
+        try {
+            walk.iterator();
+            fail("Selector exception was not propagated");
+        } catch(UncheckedIOException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test public void missingRootHasNoFiles() throws FileSystemException {
+        assertFalse(new FileWalk(root.resolveFile("missing"), Selectors.SELECT_FILES).iterator().hasNext());
+    }
+
+
+    private List<String> walk(FileSelector selector) {
+        final List<String> files = Lists.newArrayList();
+        for(FileObject file : new FileWalk(root, selector)) {
+            files.add(relativeName(file));
+        }
+        return files;
+    }
+
+    private String relativeName(FileObject file) {
+        try {
+            return root.getName().getRelativeName(file.getName());
+        } catch(FileSystemException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
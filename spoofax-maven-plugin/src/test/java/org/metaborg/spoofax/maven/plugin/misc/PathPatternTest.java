@@ -0,0 +1,175 @@
+package org.metaborg.spoofax.maven.plugin.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.apache.maven.shared.utils.io.SelectorUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Differential tests of compiled path patterns against {@link SelectorUtils}, on randomly generated patterns and paths
+ * over a small alphabet, such that patterns and paths often almost match.
+ */
+public class PathPatternTest {
+    private static final String[] pathSegments = { "a", "b", "ab", "ba", "aa", "a.str", "b.str", "x.sdf3" };
+    private static final String[] patternSegments =
+        { "**", "**", "*", "a", "b", "ab", "a*", "*a", "?", "?b", "a?", "*.str", "a.str", "*.*", "*b*" };
+    private static final int iterations = 20000;
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void matchesAgreeWithSelectorUtils() {
+        final Random random = new Random(0);
+        for(int i = 0; i < iterations; ++i) {
+            final String pattern = pattern(random);
+            final PathPattern compiled = PathPattern.compile(pattern);
+            for(int j = 0; j < 10; ++j) {
+                final List<String> path = path(random);
+                final String pathString = Joiner.on('/').join(path);
+                assertEquals("Pattern " + pattern + " on path " + pathString,
+                    SelectorUtils.matchPath(pattern, pathString), compiled.matches(pathString, path));
+            }
+        }
+    }
+
+    @Test public void mayMatchBelowHoldsForAncestorsOfMatchingPaths() {
+        final Random random = new Random(1);
+        for(int i = 0; i < iterations; ++i) {
+            final String pattern = pattern(random);
+            final PathPattern compiled = PathPattern.compile(pattern);
+            for(int j = 0; j < 10; ++j) {
+                final List<String> path = path(random);
+                if(!SelectorUtils.matchPath(pattern, Joiner.on('/').join(path))) {
+                    continue;
+                }
+                for(int length = 0; length < path.size(); ++length) {
+                    final List<String> directory = path.subList(0, length);
+                    assertTrue("Pattern " + pattern + " matches " + path + " but not below " + directory,
+                        compiled.mayMatchBelow(directory));
+                }
+            }
+        }
+    }
+
+    @Test public void matchesAllBelowHoldsForAllDescendants() {
+        final Random random = new Random(2);
+        for(int i = 0; i < iterations; ++i) {
+            final String pattern = pattern(random);
+            final PathPattern compiled = PathPattern.compile(pattern);
+            for(int j = 0; j < 10; ++j) {
+                final List<String> directory = path(random);
+                if(!compiled.matchesAllBelow(directory)) {
+                    continue;
+                }
+                for(int k = 0; k < 10; ++k) {
+                    final List<String> path = Lists.newArrayList(directory);
+                    path.addAll(path(random));
+                    final String pathString = Joiner.on('/').join(path);
+                    assertTrue("Pattern " + pattern + " matches all below " + directory + " but not " + pathString,
+                        SelectorUtils.matchPath(pattern, pathString));
+                }
+            }
+        }
+    }
+
+    @Test public void fileSetSelectorAgreesWithSelectorUtils() throws IOException {
+        final Random random = new Random(3);
+        final File directory = temp.newFolder();
+        final List<String> files = Lists.newArrayList();
+        for(int i = 0; i < 300; ++i) {
+            final String path = Joiner.on('/').join(path(random));
+            final File file = new File(directory, path);
+            if(file.exists() || parentIsFile(directory, file)) {
+                continue;
+            }
+            file.getParentFile().mkdirs();
+            if(file.createNewFile()) {
+                files.add(path);
+            }
+        }
+        final FileObject root = VFS.getManager().toFileObject(directory);
+
+        for(int i = 0; i < 500; ++i) {
+            final List<String> includes = patterns(random, random.nextInt(3));
+            final List<String> excludes = patterns(random, random.nextInt(3));
+            final Set<String> expected = Sets.newTreeSet();
+            for(String file : files) {
+                if(selected(file, includes, excludes)) {
+                    expected.add(file);
+                }
+            }
+            final Set<String> actual = Sets.newTreeSet();
+            for(FileObject file : new FileWalk(root, new FileSetSelector(includes, excludes))) {
+                actual.add(root.getName().getRelativeName(file.getName()));
+            }
+            assertEquals("Includes " + includes + ", excludes " + excludes, expected, actual);
+        }
+    }
+
+
+    private static boolean selected(String path, List<String> includes, List<String> excludes) {
+        for(String exclude : excludes) {
+            if(SelectorUtils.matchPath(exclude, path)) {
+                return false;
+            }
+        }
+        if(includes.isEmpty()) {
+            return true;
+        }
+        for(String include : includes) {
+            if(SelectorUtils.matchPath(include, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean parentIsFile(File root, File file) {
+        for(File parent = file.getParentFile(); !parent.equals(root); parent = parent.getParentFile()) {
+            if(parent.isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> patterns(Random random, int count) {
+        final List<String> patterns = Lists.newArrayList();
+        for(int i = 0; i < count; ++i) {
+            patterns.add(pattern(random));
+        }
+        return patterns;
+    }
+
+    private static String pattern(Random random) {
+        final String[] segments = new String[1 + random.nextInt(4)];
+        for(int i = 0; i < segments.length; ++i) {
+            segments[i] = patternSegments[random.nextInt(patternSegments.length)];
+        }
+        return Joiner.on('/').join(segments);
+    }
+
+    private static List<String> path(Random random) {
+        final String[] segments = new String[1 + random.nextInt(5)];
+        for(int i = 0; i < segments.length; ++i) {
+            segments[i] = pathSegments[random.nextInt(pathSegments.length)];
+        }
+        return Arrays.asList(segments);
+    }
+}
@@ -0,0 +1,156 @@
+package org.metaborg.spoofax.maven.plugin.mojo.language;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.core.resource.ResourceChange;
+import org.metaborg.core.resource.ResourceChangeKind;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests that transforming files in concurrent batches gives the same outputs as transforming all files in a single
+ * build, for a language whose context locks.
+ */
+public class BatchTransformerTest {
+    private static final int files = 250;
+
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void concurrentBatchesGiveSameOutputsAsSingleBuild() throws Exception {
+        final File sourceDirectory = temp.newFolder("sources");
+        final List<FileObject> sources = Lists.newArrayList();
+        for(int i = 0; i < files; ++i) {
+            final File source = new File(sourceDirectory, "f" + i + ".txt");
+            write(source, "file " + i);
+            sources.add(VFS.getManager().toFileObject(source));
+        }
+        final FileObject removedSource = VFS.getManager().toFileObject(new File(sourceDirectory, "removed.txt"));
+        final List<ResourceChange> removed =
+            Collections.singletonList(new ResourceChange(removedSource, ResourceChangeKind.Delete));
+
+        final LockingLanguage serial = new LockingLanguage(temp.newFolder("serial"));
+        serial.build(1, sources, removed);
+
+        final LockingLanguage concurrent = new LockingLanguage(temp.newFolder("concurrent"));
+        final int batches = new BatchTransformer(4, 7).transform(sources, Suppliers.ofInstance(removed), concurrent);
+
+        assertEquals((files + 6) / 7, batches);
+        for(FileObject source : sources) {
+            assertEquals(source.toString(), 1, concurrent.builds.get(source.getName().getBaseName()).get());
+        }
+        assertEquals(tree(serial.output), tree(concurrent.output));
+        assertTrue(tree(concurrent.output).containsKey("index"));
+    }
+
+    @Test public void failingBatchFailsAfterAllBatchesCompleted() throws Exception {
+        final File sourceDirectory = temp.newFolder("sources");
+        final List<FileObject> sources = Lists.newArrayList();
+        for(int i = 0; i < 50; ++i) {
+            final File source = new File(sourceDirectory, "f" + i + ".txt");
+            write(source, "file " + i);
+            sources.add(VFS.getManager().toFileObject(source));
+        }
+        final Set<Integer> built = Sets.newConcurrentHashSet();
+        final Supplier<List<ResourceChange>> noRemoved =
+            Suppliers.ofInstance(Collections.<ResourceChange>emptyList());
+        try {
+            new BatchTransformer(3, 5).transform(sources, noRemoved, new BatchTransformer.IBatchBuild() {
+                @Override public void build(int index, List<FileObject> batch, List<ResourceChange> removed) {
+                    if(index == 3) {
+                        throw new IllegalStateException("Batch 3 failed");
+                    }
+                    built.add(index);
+                }
+            });
+            fail("Failing batch did not fail the transformation");
+        } catch(MojoFailureException e) {
+            assertEquals("1 of 10 batches failed", e.getMessage());
+        }
+        assertEquals(Sets.newHashSet(1, 2, 4, 5, 6, 7, 8, 9, 10), built);
+    }
+
+
+    /**
+     * Language that writes an output per source, and records all outputs in an index in its context. Access to the
+     * context is serialized with a lock, as Spoofax does for languages whose contexts lock.
+     */
+    private static class LockingLanguage implements BatchTransformer.IBatchBuild {
+        private final File output;
+        private final Object contextLock = new Object();
+        private final Set<String> index = Sets.newTreeSet();
+        private final Map<String, AtomicInteger> builds = Maps.newConcurrentMap();
+
+
+        public LockingLanguage(File output) throws IOException {
+            this.output = output;
+            // Output of a file that was removed since the previous build.
+            write(new File(output, "removed.txt.out"), "removed");
+            index.add("removed.txt");
+        }
+
+
+        @Override public void build(int batchIndex, List<FileObject> sources, List<ResourceChange> removed)
+            throws IOException {
+            for(FileObject source : sources) {
+                final String name = source.getName().getBaseName();
+                final String contents = read(source);
+                write(new File(output, name + ".out"), new StringBuilder(contents).reverse().toString());
+                builds.putIfAbsent(name, new AtomicInteger());
+                builds.get(name).incrementAndGet();
+            }
+            synchronized(contextLock) {
+                for(FileObject source : sources) {
+                    index.add(source.getName().getBaseName());
+                }
+                for(ResourceChange change : removed) {
+                    final String name = change.resource().getName().getBaseName();
+                    index.remove(name);
+                    new File(output, name + ".out").delete();
+                }
+                write(new File(output, "index"), Joiner.on('\n').join(index));
+            }
+        }
+    }
+
+
+    private static Map<String, String> tree(File directory) throws IOException {
+        final Map<String, String> tree = Maps.newTreeMap();
+        for(File file : directory.listFiles()) {
+            tree.put(file.getName(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+        return tree;
+    }
+
+    private static String read(FileObject file) throws IOException {
+        return new String(Files.readAllBytes(new File(file.getName().getPath()).toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,97 @@
+package org.metaborg.spoofax.maven.plugin.mojo.language;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.vfs2.FileObject;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.maven.plugin.SpoofaxInit;
+import org.metaborg.spoofax.maven.plugin.archive.ZipWriter;
+import org.metaborg.spoofax.meta.core.build.LanguageSpecBuildInput;
+import org.metaborg.spoofax.meta.core.project.ISpoofaxLanguageSpec;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Checks that the archive written in parallel by the package goal has the same entries as the archive of the Spoofax
+ * meta builder, which it replaces.
+ */
+public class PackageMojoTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @BeforeClass public static void initSpoofax() throws Exception {
+        if(SpoofaxInit.shouldInit()) {
+            SpoofaxInit.init();
+        }
+    }
+
+
+    @Test public void parallelArchiveHasEntriesOfMetaBuilderArchive() throws Exception {
+        final File basedir = temp.newFolder("lang");
+        write(new File(basedir, "metaborg.yaml"), "---\nid: org.example:lang:1.0.0\nname: lang\nexports:\n"
+            + "- language: ATerm\n  directory: src-gen/syntax\n  includes: \"**/*.aterm\"\n"
+            + "- language: Stratego-Sugar\n  file: trans/lang.str\n"
+            + "- directory: lib\n  excludes: \"**/*.tmp\"\n");
+        write(new File(basedir, "src-gen/metaborg.component.yaml"), "---\nid: org.example:lang:1.0.0\nname: lang\n");
+        write(new File(basedir, "target/metaborg/editor.esv.af"), "Module(\"lang\", [], [])");
+        write(new File(basedir, "target/metaborg/stratego.jar"), "not really a jar");
+        write(new File(basedir, "target/metaborg/sdf/lang.tbl"), "table");
+        write(new File(basedir, "src-gen/syntax/lang.aterm"), "Module(\"lang\")");
+        write(new File(basedir, "src-gen/syntax/lang.sdf3"), "module lang");
+        write(new File(basedir, "trans/lang.str"), "module lang");
+        write(new File(basedir, "trans/other.str"), "module other");
+        write(new File(basedir, "lib/runtime/lib.str"), "module lib");
+        write(new File(basedir, "lib/runtime/lib.tmp"), "temporary");
+        write(new File(basedir, "target/classes/Lang.class"), "not archived");
+
+        final FileObject location = SpoofaxInit.spoofax().resourceService.resolve(basedir);
+        final IProject project = SpoofaxInit.projectService().create(location);
+        final ISpoofaxLanguageSpec languageSpec = SpoofaxInit.spoofaxMeta().languageSpecService.get(project);
+
+        final FileObject expectedArchive = SpoofaxInit.spoofaxMeta().metaBuilder.archive(
+            new LanguageSpecBuildInput(languageSpec));
+        final ZipWriter writer = new ZipWriter(2);
+        PackageMojo.addEntries(writer, languageSpec);
+        final File archive = new File(temp.getRoot(), "parallel.spoofax-language");
+        writer.write(archive);
+
+        assertEquals(entries(SpoofaxInit.spoofax().resourceService.localFile(expectedArchive)), entries(archive));
+    }
+
+
+    /**
+     * @return Contents of the file entries of given archive, by name. Directory entries are not compared, since the
+     *         writer does not write them.
+     */
+    private static Map<String, String> entries(File archive) throws IOException {
+        final Map<String, String> entries = Maps.newTreeMap();
+        try(final ZipFile zip = new ZipFile(archive)) {
+            for(ZipEntry entry : Collections.list(zip.entries())) {
+                if(!entry.isDirectory()) {
+                    entries.put(entry.getName(),
+                        new String(ByteStreams.toByteArray(zip.getInputStream(entry)), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,151 @@
+package org.metaborg.spoofax.maven.plugin.spt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.vfs2.FileName;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.VFS;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.metaborg.core.MetaborgException;
+import org.metaborg.core.language.ILanguageImpl;
+import org.metaborg.core.project.IProject;
+import org.metaborg.spoofax.maven.plugin.metrics.BuildMetrics;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.inject.Provider;
+
+/**
+ * Tests that shards are only recorded as passed in the test journal when their tester reports that no tests failed,
+ * and that testers are given the discovered test suites.
+ */
+public class SptTestExecutorTest {
+    @Rule public TemporaryFolder temp = new TemporaryFolder();
+
+
+    @Test public void failingSuiteIsNotJournaledAsPassed() throws Exception {
+        final File root = temp.newFolder("project");
+        final List<FileObject> testSuites = Lists.newArrayList();
+        for(String shard : new String[] { "a", "b", "c" }) {
+            testSuites.add(testSuite(root, shard));
+        }
+        final IProject project = new TestShardProject(VFS.getManager().toFileObject(root), null);
+        final File journalFile = new File(temp.getRoot(), "spt.journal");
+
+        final FakeTester failingB = new FakeTester(ImmutableSet.of("b"));
+        try {
+            executor(failingB).test(project, testSuites, null, null, 2, journal(journalFile));
+            fail("Failing test suite did not fail testing");
+        } catch(MetaborgException e) {
+            // Expected.
+        }
+        assertEquals(Sets.newHashSet("a", "b", "c"), failingB.tested);
+
+        // Only the failed shard is tested again.
+        final FakeTester failingB2 = new FakeTester(ImmutableSet.of("b"));
+        try {
+            executor(failingB2).test(project, testSuites, null, null, 2, journal(journalFile));
+            fail("Failing test suite did not fail testing");
+        } catch(MetaborgException e) {
+            // Expected.
+        }
+        assertEquals(Sets.newHashSet("b"), failingB2.tested);
+
+        final FakeTester passing = new FakeTester(ImmutableSet.<String>of());
+        executor(passing).test(project, testSuites, null, null, 2, journal(journalFile));
+        assertEquals(Sets.newHashSet("b"), passing.tested);
+
+        final FakeTester none = new FakeTester(ImmutableSet.<String>of());
+        executor(none).test(project, testSuites, null, null, 2, journal(journalFile));
+        assertEquals(Sets.newHashSet(), none.tested);
+    }
+
+    @Test public void failingSuiteFailsTestingWithoutJournal() throws Exception {
+        final File root = temp.newFolder("project");
+        final List<FileObject> testSuites = Lists.newArrayList(testSuite(root, "a"), testSuite(root, "b"));
+        final IProject project = new TestShardProject(VFS.getManager().toFileObject(root), null);
+        final FakeTester failingA = new FakeTester(ImmutableSet.of("a"));
+        try {
+            executor(failingA).test(project, testSuites, null, null, 2, null);
+            fail("Failing test suite did not fail testing");
+        } catch(MetaborgException e) {
+            // Expected.
+        }
+        assertEquals(Sets.newHashSet("a", "b"), failingA.tested);
+    }
+
+    @Test public void testersAreGivenDiscoveredSuites() throws Exception {
+        final File root = temp.newFolder("project");
+        final List<FileObject> testSuites = Lists.newArrayList(testSuite(root, "a"), testSuite(root, "b"));
+        // Not discovered, for example because it is in an ignored directory.
+        testSuite(root, "target");
+        final IProject project = new TestShardProject(VFS.getManager().toFileObject(root), null);
+
+        final FakeTester serial = new FakeTester(ImmutableSet.<String>of());
+        executor(serial).test(project, testSuites, null, null, 1, null);
+        assertEquals(Sets.newHashSet("project"), serial.tested);
+        assertEquals(Sets.newHashSet("a/test.spt", "b/test.spt"), serial.testedSuites);
+
+        final FakeTester sharded = new FakeTester(ImmutableSet.<String>of());
+        executor(sharded).test(project, testSuites, null, null, 2, null);
+        assertEquals(Sets.newHashSet("a", "b"), sharded.tested);
+        assertEquals(Sets.newHashSet("a/test.spt", "b/test.spt"), sharded.testedSuites);
+    }
+
+
+    private static SptTestExecutor executor(final ISptTester tester) {
+        return new SptTestExecutor(new Provider<ISptTester>() {
+            @Override public ISptTester get() {
+                return tester;
+            }
+        }, new BuildMetrics(), null);
+    }
+
+    private static TestJournal journal(File file) {
+        final TestJournal journal = new TestJournal(file, "language");
+        journal.load();
+        return journal;
+    }
+
+    private static FileObject testSuite(File root, String shard) throws IOException {
+        final File file = new File(root, shard + "/test.spt");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), ("module " + shard).getBytes(StandardCharsets.UTF_8));
+        return VFS.getManager().toFileObject(file);
+    }
+
+
+    private static class FakeTester implements ISptTester {
+        private final Set<String> failing;
+        private final Set<String> tested = Sets.newConcurrentHashSet();
+        private final Set<String> testedSuites = Sets.newConcurrentHashSet();
+
+
+        public FakeTester(Set<String> failing) {
+            this.failing = failing;
+        }
+
+
+        @Override public int test(IProject project, Iterable<FileObject> testSuites, ILanguageImpl sptLang,
+            ILanguageImpl testLang) {
+            final String shard = project.location().getName().getBaseName();
+            tested.add(shard);
+            for(FileObject testSuite : testSuites) {
+                final FileName name = testSuite.getName();
+                testedSuites.add(name.getParent().getBaseName() + "/" + name.getBaseName());
+            }
+            return failing.contains(shard) ? 1 : 0;
+        }
+    }
+}